@@ -0,0 +1,88 @@
+package com.domain.customer.benchmark;
+
+import com.domain.customer.CustomerApplication;
+import com.domain.customer.service.CustomerIngestService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Id lookup latency while one client floods {@code POST /searchByName}, with admission control {@code off} and
+ * {@code on} (the limits in application.yaml). The {@code idLookup} percentiles are the ones to compare, the
+ * flood mostly measures how fast it is shed.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class AdmissionControlBenchmark {
+    private static final int ROWS = 100000;
+    @Param({"off", "on"})
+    private String admission;
+    private ConfigurableApplicationContext context;
+    private HttpClient httpClient;
+    private String baseUrl;
+    private Path databaseDirectory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        databaseDirectory = Files.createTempDirectory("customers-admission");
+        context = new SpringApplicationBuilder(CustomerApplication.class)
+                .properties(
+                        "server.port=0",
+                        "customers.h2.path=" + databaseDirectory.resolve("customersdb"),
+                        "spring.cache.type=none",
+                        "customers.admission.enabled=" + "on".equals(admission))
+                .run();
+        context.getBean(CustomerIngestService.class).ingest(
+                IntStream.rangeClosed(1, ROWS).mapToObj(BenchmarkData::customerDto).iterator());
+        baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        httpClient = HttpClient.newHttpClient();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        FileSystemUtils.deleteRecursively(databaseDirectory);
+    }
+
+    @Benchmark
+    @Group("searchFlood")
+    @GroupThreads(28)
+    public int flood() throws IOException, InterruptedException {
+        String body = "{\"firstName\":\"userFirstName" + randomId() + "\"}";
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + "/searchByName"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build());
+    }
+
+    @Benchmark
+    @Group("searchFlood")
+    @GroupThreads(4)
+    public int idLookup() throws IOException, InterruptedException {
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + "/customers/" + randomId())).GET().build());
+    }
+
+    private static long randomId() {
+        return ThreadLocalRandom.current().nextInt(ROWS) + 1;
+    }
+
+    private int send(HttpRequest request) throws IOException, InterruptedException {
+        return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
@@ -0,0 +1,37 @@
+package com.domain.customer.benchmark;
+
+import com.domain.customer.dto.AddressDto;
+import com.domain.customer.dto.CustomerDto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+final class BenchmarkData {
+    private BenchmarkData() {
+    }
+
+    static CustomerDto customerDto(long id) {
+        return CustomerDto.builder()
+                .id(id)
+                .firstName("userFirstName" + id)
+                .lastName("userLastName" + (id % 1000))
+                .age(20 + (int) (id % 60))
+                .addressDto(AddressDto.builder()
+                        .addressId(id)
+                        .addressLine1("addressline" + id)
+                        .addressLine2("addressline2")
+                        .postalCode("8888JK")
+                        .city("Amsterdam")
+                        .country("NL")
+                        .build())
+                .build();
+    }
+
+    static List<CustomerDto> customerDtos(int count) {
+        List<CustomerDto> customerDtos = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            customerDtos.add(customerDto(i));
+        }
+        return customerDtos;
+    }
+}
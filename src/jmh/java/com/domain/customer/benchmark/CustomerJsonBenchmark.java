@@ -0,0 +1,103 @@
+package com.domain.customer.benchmark;
+
+import com.domain.customer.dto.CustomerDto;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encoding and decoding of a customer and a customer list with reflective property access ({@code default}) and
+ * with the {@code blackbird} module, plus the Smile form of the list. The setup prints the size of the list
+ * as JSON and Smile, plain and gzipped, to compare bytes on the wire.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CustomerJsonBenchmark {
+    private static final TypeReference<List<CustomerDto>> CUSTOMER_LIST = new TypeReference<>() {
+    };
+    @Param({"100"})
+    private int listSize;
+    @Param({"default", "blackbird"})
+    private String module;
+    private ObjectMapper objectMapper;
+    private ObjectMapper smileMapper;
+    private CustomerDto customerDto;
+    private String customerJson;
+    private List<CustomerDto> customerDtos;
+    private String customerListJson;
+    private byte[] customerListSmile;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = objectMapperBuilder().build();
+        smileMapper = objectMapperBuilder().factory(new SmileFactory()).build();
+        customerDto = BenchmarkData.customerDto(1);
+        customerJson = objectMapper.writeValueAsString(customerDto);
+        customerDtos = BenchmarkData.customerDtos(listSize);
+        customerListJson = objectMapper.writeValueAsString(customerDtos);
+        customerListSmile = smileMapper.writeValueAsBytes(customerDtos);
+        byte[] json = objectMapper.writeValueAsBytes(customerDtos);
+        System.out.printf("%n%d customers: json %d bytes (gzip %d), smile %d bytes (gzip %d)%n", listSize,
+                json.length, gzip(json).length, customerListSmile.length, gzip(customerListSmile).length);
+    }
+
+    private Jackson2ObjectMapperBuilder objectMapperBuilder() {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        return "blackbird".equals(module)
+                ? builder.modulesToInstall(new ParameterNamesModule(), new BlackbirdModule())
+                : builder.modulesToInstall(new ParameterNamesModule());
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(bytes);
+        }
+        return compressed.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] encodeCustomer() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(customerDto);
+    }
+
+    @Benchmark
+    public CustomerDto decodeCustomer() throws JsonProcessingException {
+        return objectMapper.readValue(customerJson, CustomerDto.class);
+    }
+
+    @Benchmark
+    public byte[] encodeCustomerList() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(customerDtos);
+    }
+
+    @Benchmark
+    public List<CustomerDto> decodeCustomerList() throws JsonProcessingException {
+        return objectMapper.readValue(customerListJson, CUSTOMER_LIST);
+    }
+
+    @Benchmark
+    public byte[] encodeCustomerListSmile() throws JsonProcessingException {
+        return smileMapper.writeValueAsBytes(customerDtos);
+    }
+
+    @Benchmark
+    public List<CustomerDto> decodeCustomerListSmile() throws IOException {
+        return smileMapper.readValue(customerListSmile, CUSTOMER_LIST);
+    }
+}
@@ -0,0 +1,69 @@
+package com.domain.customer.benchmark;
+
+import com.domain.customer.dto.AddressDto;
+import com.domain.customer.dto.CustomerDto;
+import com.domain.customer.entity.Address;
+import com.domain.customer.entity.Customer;
+import com.domain.customer.mapper.AddressMapper;
+import com.domain.customer.mapper.CustomerMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CustomerMapperBenchmark {
+    @Param({"100", "10000"})
+    private int listSize;
+    private CustomerDto customerDto;
+    private Customer customer;
+    private Address address;
+    private AddressDto addressDto;
+    private List<Customer> customers;
+    private List<CustomerDto> customerDtos;
+
+    @Setup
+    public void setUp() {
+        customerDto = BenchmarkData.customerDto(1);
+        customer = CustomerMapper.MAPPER.customerDtoToCustomer(customerDto);
+        addressDto = customerDto.getAddressDto();
+        address = customer.getAddress();
+        customerDtos = BenchmarkData.customerDtos(listSize);
+        customers = CustomerMapper.MAPPER.customerDtoListToCustomer(customerDtos);
+    }
+
+    @Benchmark
+    public CustomerDto customerToCustomerDto() {
+        return CustomerMapper.MAPPER.customerToCustomerDto(customer);
+    }
+
+    @Benchmark
+    public Customer customerDtoToCustomer() {
+        return CustomerMapper.MAPPER.customerDtoToCustomer(customerDto);
+    }
+
+    @Benchmark
+    public AddressDto addressToAddressDto() {
+        return AddressMapper.MAPPER.mapAddressToAddressDto(address);
+    }
+
+    @Benchmark
+    public Address addressDtoToAddress() {
+        return AddressMapper.MAPPER.mapAddressDtoToAddress(addressDto);
+    }
+
+    @Benchmark
+    public List<CustomerDto> customerToCustomerDtoList() {
+        return CustomerMapper.MAPPER.customerToCustomerDtoList(customers);
+    }
+
+    @Benchmark
+    public List<Customer> customerDtoListToCustomer() {
+        return CustomerMapper.MAPPER.customerDtoListToCustomer(customerDtos);
+    }
+}
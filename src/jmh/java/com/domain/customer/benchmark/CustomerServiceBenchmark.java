@@ -0,0 +1,92 @@
+package com.domain.customer.benchmark;
+
+import com.domain.customer.CustomerApplication;
+import com.domain.customer.dto.CustomerDto;
+import com.domain.customer.dto.CustomerNameDto;
+import com.domain.customer.service.CustomerIngestService;
+import com.domain.customer.service.CustomerService;
+import com.domain.customer.store.CustomerStore;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+/**
+ * Runs the service against an in-memory H2 or the memory-mapped store, seeded with {@code rows} customers
+ * through the bulk ingest path. The customer cache is off, so id lookups measure the store and not cache hits.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CustomerServiceBenchmark {
+    @Param({"10000", "1000000"})
+    private int rows;
+    @Param({"jpa", "mapped"})
+    private String store;
+    private ConfigurableApplicationContext context;
+    private Path storeDirectory;
+    private CustomerService customerService;
+    private long[] customerIds;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        storeDirectory = Files.createTempDirectory("customers-store");
+        context = new SpringApplicationBuilder(CustomerApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:benchmark-" + rows + ";DB_CLOSE_DELAY=-1",
+                        "spring.h2.console.enabled=false",
+                        "spring.cache.type=none",
+                        "customers.store=" + store,
+                        "customers.mapped-store.path=" + storeDirectory.resolve("customers.store"))
+                .run();
+        customerService = context.getBean(CustomerService.class);
+        context.getBean(CustomerIngestService.class).ingest(
+                IntStream.rangeClosed(1, rows).mapToObj(BenchmarkData::customerDto).iterator());
+        LongStream.Builder ids = LongStream.builder();
+        context.getBean(CustomerStore.class).forEachNameOrderById((id, firstName, lastName) -> ids.add(id));
+        customerIds = ids.build().toArray();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        FileSystemUtils.deleteRecursively(storeDirectory);
+    }
+
+    @Benchmark
+    public CustomerDto searchCustomerById() {
+        return customerService.searchCustomerById(customerIds[ThreadLocalRandom.current().nextInt(customerIds.length)]);
+    }
+
+    @Benchmark
+    public List<CustomerDto> searchCustomerByName() {
+        long id = ThreadLocalRandom.current().nextInt(rows) + 1;
+        return customerService.searchCustomerByName(CustomerNameDto.builder()
+                .firstName("userFirstName" + id)
+                .lastName("userLastName" + (id % 1000))
+                .build());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public List<CustomerDto> getCustomers() {
+        return customerService.getCustomers();
+    }
+}
@@ -0,0 +1,144 @@
+package com.domain.customer.benchmark;
+
+import com.domain.customer.CustomerApplication;
+import com.domain.customer.service.CustomerIngestService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+/**
+ * Load test for every endpoint against the file based H2 store, once with the default settings and once
+ * with the {@code throughput} profile. Each trial starts from a fresh database in a temporary directory
+ * seeded with the same rows, so the two profiles are compared on identical data.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(32)
+@Fork(1)
+public class EndpointLoadBenchmark {
+    private static final int ROWS = 100000;
+    private static final int LOOKUP_IDS = 200;
+    @Param({"default", "throughput"})
+    private String profile;
+    private ConfigurableApplicationContext context;
+    private HttpClient httpClient;
+    private String baseUrl;
+    private Path databaseDirectory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        databaseDirectory = Files.createTempDirectory("customers-load");
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(CustomerApplication.class)
+                .properties(
+                        "server.port=0",
+                        "customers.h2.path=" + databaseDirectory.resolve("customersdb"),
+                        "spring.cache.type=none");
+        if (!"default".equals(profile)) {
+            builder.profiles(profile);
+        }
+        context = builder.run();
+        context.getBean(CustomerIngestService.class).ingest(
+                IntStream.rangeClosed(1, ROWS).mapToObj(BenchmarkData::customerDto).iterator());
+        baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        httpClient = HttpClient.newHttpClient();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        FileSystemUtils.deleteRecursively(databaseDirectory);
+    }
+
+    @Benchmark
+    public int addCustomer() throws IOException, InterruptedException {
+        String body = "{\"firstName\":\"loadFirstName\",\"lastName\":\"loadLastName\",\"age\":30,"
+                + addressJson(ThreadLocalRandom.current().nextInt()) + "}";
+        return send(json("/customers").POST(HttpRequest.BodyPublishers.ofString(body)).build());
+    }
+
+    @Benchmark
+    public int upsertCustomer() throws IOException, InterruptedException {
+        long id = randomId();
+        String body = "{\"firstName\":\"userFirstName" + id + "\",\"lastName\":\"userLastName" + (id % 1000)
+                + "\",\"age\":40," + addressJson(id) + "}";
+        return send(json("/customers/" + id).PUT(HttpRequest.BodyPublishers.ofString(body)).build());
+    }
+
+    @Benchmark
+    public int updateAddress() throws IOException, InterruptedException {
+        long id = randomId();
+        String body = "{\"customerId\":" + id + ",\"addressDto\":{\"city\":\"Utrecht" + (id % 10) + "\"}}";
+        return send(json("/updateAddress").method("PATCH", HttpRequest.BodyPublishers.ofString(body)).build());
+    }
+
+    @Benchmark
+    public int searchCustomerById() throws IOException, InterruptedException {
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + "/customers/" + randomId())).GET().build());
+    }
+
+    @Benchmark
+    public int lookupCustomers() throws IOException, InterruptedException {
+        String body = LongStream.range(0, LOOKUP_IDS).mapToObj(i -> String.valueOf(randomId()))
+                .collect(Collectors.joining(",", "[", "]"));
+        return send(json("/customers/lookup").POST(HttpRequest.BodyPublishers.ofString(body)).build());
+    }
+
+    @Benchmark
+    public int searchCustomerByName() throws IOException, InterruptedException {
+        long id = randomId();
+        String body = "{\"firstName\":\"userFirstName" + id + "\",\"lastName\":\"userLastName" + (id % 1000) + "\"}";
+        return send(json("/searchByName").POST(HttpRequest.BodyPublishers.ofString(body)).build());
+    }
+
+    @Benchmark
+    public int searchCustomerByNamePage() throws IOException, InterruptedException {
+        String body = "{\"firstName\":\"userFirstName" + (randomId() % 100) + "\",\"limit\":50}";
+        return send(json("/searchByName/page").POST(HttpRequest.BodyPublishers.ofString(body)).build());
+    }
+
+    @Benchmark
+    public int typeahead() throws IOException, InterruptedException {
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + "/customers/typeahead?q=userfirstname" + randomId()))
+                .GET().build());
+    }
+
+    @Benchmark
+    public int getCustomersPage() throws IOException, InterruptedException {
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + "/customers/page?after=" + randomId() + "&limit=100"))
+                .GET().build());
+    }
+
+    private HttpRequest.Builder json(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).header("Content-Type", "application/json");
+    }
+
+    private static String addressJson(long id) {
+        return "\"addressDto\":{\"addressLine1\":\"addressline" + id + "\",\"addressLine2\":\"addressline2\","
+                + "\"postalCode\":\"8888JK\",\"city\":\"Amsterdam\",\"country\":\"NL\"}";
+    }
+
+    private static long randomId() {
+        return ThreadLocalRandom.current().nextInt(ROWS) + 1;
+    }
+
+    private int send(HttpRequest request) throws IOException, InterruptedException {
+        return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
@@ -0,0 +1,137 @@
+package com.domain.customer.benchmark;
+
+import com.domain.customer.CustomerApplication;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the 404 (unknown id) and 409 (duplicate id) paths over http with the previous logging setup
+ * ({@link Sync}: synchronous loggers, {@code com.domain.customer} at debug, immediate flush) and the current
+ * one ({@link Async}: async loggers, info level, rate-limited warnings). The log4j context selector is read
+ * once per JVM, before the benchmark code runs (loading Spring already initializes log4j), so each mode is its
+ * own benchmark class and the sync one sets the selector on the command line of its fork.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(32)
+public abstract class ErrorPathLoggingBenchmark {
+    private static final String SYNC_LOG_CONFIG = "Configuration:\n"
+            + "  status: debug\n"
+            + "  appenders:\n"
+            + "    Console:\n"
+            + "      name: LogToConsole\n"
+            + "      PatternLayout:\n"
+            + "        Pattern: \"[%-5level] %d{yyyy-MM-dd HH:mm:ss.SSS} [%t] %c{1} - %msg%n\"\n"
+            + "    RollingFile:\n"
+            + "      - name: LogToRollingFile\n"
+            + "        fileName: \"LOG_DIRECTORY/application.log\"\n"
+            + "        filePattern: \"LOG_DIRECTORY/app-%i.log.gz\"\n"
+            + "        PatternLayout:\n"
+            + "          pattern: \"[%-5level] %d{yyyy-MM-dd HH:mm:ss.SSS} [%t] %c{1} - %msg%n\"\n"
+            + "        Policies:\n"
+            + "          SizeBasedTriggeringPolicy:\n"
+            + "            size: 10MB\n"
+            + "  Loggers:\n"
+            + "    logger:\n"
+            + "      - name: com.domain.customer\n"
+            + "        level: debug\n"
+            + "        additivity: false\n"
+            + "        AppenderRef:\n"
+            + "          - ref: LogToConsole\n"
+            + "          - ref: LogToRollingFile\n"
+            + "    Root:\n"
+            + "      level: error\n"
+            + "      AppenderRef:\n"
+            + "        ref: LogToConsole\n";
+    private static final int ROWS = 1000;
+    private ConfigurableApplicationContext context;
+    private HttpClient httpClient;
+    private String baseUrl;
+    private Path workDirectory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, InterruptedException {
+        workDirectory = Files.createTempDirectory("customers-logging");
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(CustomerApplication.class)
+                .properties(
+                        "server.port=0",
+                        "customers.h2.path=" + workDirectory.resolve("customersdb"),
+                        "spring.cache.type=none");
+        configureLogging(builder, workDirectory);
+        context = builder.run();
+        baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        httpClient = HttpClient.newHttpClient();
+        for (int id = 1; id <= ROWS; id++) {
+            send(json("/customers/" + id).PUT(HttpRequest.BodyPublishers.ofString(customerJson(id))).build());
+        }
+    }
+
+    protected abstract void configureLogging(SpringApplicationBuilder builder, Path workDirectory) throws IOException;
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        FileSystemUtils.deleteRecursively(workDirectory);
+    }
+
+    @Benchmark
+    public int notFound() throws IOException, InterruptedException {
+        long id = ROWS + 1 + ThreadLocalRandom.current().nextInt(1_000_000);
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + "/customers/" + id)).GET().build());
+    }
+
+    @Benchmark
+    public int conflict() throws IOException, InterruptedException {
+        long id = ThreadLocalRandom.current().nextInt(ROWS) + 1;
+        return send(json("/customers").POST(HttpRequest.BodyPublishers.ofString(customerJson(id))).build());
+    }
+
+    private HttpRequest.Builder json(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).header("Content-Type", "application/json");
+    }
+
+    private static String customerJson(long id) {
+        return "{\"id\":" + id + ",\"firstName\":\"userFirstName" + id + "\",\"lastName\":\"userLastName" + id
+                + "\",\"age\":30,\"addressDto\":{\"addressLine1\":\"addressline" + id + "\",\"addressLine2\":\"addressline2\","
+                + "\"postalCode\":\"8888JK\",\"city\":\"Amsterdam\",\"country\":\"NL\"}}";
+    }
+
+    private int send(HttpRequest request) throws IOException, InterruptedException {
+        return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    @Fork(value = 1, jvmArgsAppend = "-Dlog4j2.contextSelector=org.apache.logging.log4j.core.selector.ClassLoaderContextSelector")
+    public static class Sync extends ErrorPathLoggingBenchmark {
+
+        @Override
+        protected void configureLogging(SpringApplicationBuilder builder, Path workDirectory) throws IOException {
+            Path logConfig = workDirectory.resolve("log4j2-sync.yaml");
+            Files.writeString(logConfig, SYNC_LOG_CONFIG.replace("LOG_DIRECTORY", workDirectory.toString()));
+            builder.properties("logging.config=" + logConfig.toUri());
+        }
+    }
+
+    @Fork(1)
+    public static class Async extends ErrorPathLoggingBenchmark {
+
+        @Override
+        protected void configureLogging(SpringApplicationBuilder builder, Path workDirectory) {
+            // log4j2.yaml and the async selector of log4j2.component.properties
+        }
+    }
+}
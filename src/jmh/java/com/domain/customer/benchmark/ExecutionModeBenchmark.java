@@ -0,0 +1,79 @@
+package com.domain.customer.benchmark;
+
+import com.domain.customer.CustomerApplication;
+import com.domain.customer.service.CustomerIngestService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Compares the platform thread pool with virtual threads under 64 concurrent clients and the same
+ * Hikari pool size. SampleTime reports p50/p99 latency next to throughput.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(64)
+@Fork(1)
+public class ExecutionModeBenchmark {
+    private static final int ROWS = 10000;
+    @Param({"platform", "virtual-threads"})
+    private String mode;
+    @Param({"10"})
+    private int poolSize;
+    private ConfigurableApplicationContext context;
+    private HttpClient httpClient;
+    private String baseUrl;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(CustomerApplication.class)
+                .properties(
+                        "server.port=0",
+                        "customers.execution.mode=" + mode,
+                        "spring.datasource.hikari.maximum-pool-size=" + poolSize,
+                        "spring.datasource.url=jdbc:h2:mem:execution-mode;DB_CLOSE_DELAY=-1",
+                        "spring.cache.type=none")
+                .run();
+        context.getBean(CustomerIngestService.class).ingest(
+                IntStream.rangeClosed(1, ROWS).mapToObj(BenchmarkData::customerDto).iterator());
+        baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        httpClient = HttpClient.newHttpClient();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int searchCustomerById() throws IOException, InterruptedException {
+        long id = ThreadLocalRandom.current().nextInt(ROWS) + 1;
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + "/customers/" + id)).GET().build());
+    }
+
+    @Benchmark
+    public int searchCustomerByName() throws IOException, InterruptedException {
+        long id = ThreadLocalRandom.current().nextInt(ROWS) + 1;
+        String body = "{\"firstName\":\"userFirstName" + id + "\",\"lastName\":\"userLastName" + (id % 1000) + "\"}";
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + "/searchByName"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build());
+    }
+
+    private int send(HttpRequest request) throws IOException, InterruptedException {
+        return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
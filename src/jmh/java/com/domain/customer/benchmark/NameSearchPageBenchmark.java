@@ -0,0 +1,84 @@
+package com.domain.customer.benchmark;
+
+import com.domain.customer.CustomerApplication;
+import com.domain.customer.dto.CustomerNameDto;
+import com.domain.customer.dto.CustomerPageDto;
+import com.domain.customer.service.CustomerIngestService;
+import com.domain.customer.service.CustomerService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Name search pages over a large table: a broad first-name prefix that matches every row and a last-name
+ * prefix that matches about a tenth of them, read from the start and from a (name, id) cursor deep into the
+ * result. With the keyset cursor the deep page should cost about the same as the first one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NameSearchPageBenchmark {
+    private static final int ROWS = 500000;
+    @Param({"first", "deep"})
+    private String page;
+    private ConfigurableApplicationContext context;
+    private CustomerService customerService;
+    private Path databaseDirectory;
+    private CustomerNameDto firstNameSearch;
+    private CustomerNameDto lastNameSearch;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        databaseDirectory = Files.createTempDirectory("customers-name-page");
+        context = new SpringApplicationBuilder(CustomerApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "customers.h2.path=" + databaseDirectory.resolve("customersdb"),
+                        "spring.cache.type=none")
+                .run();
+        context.getBean(CustomerIngestService.class).ingest(
+                IntStream.rangeClosed(1, ROWS).mapToObj(BenchmarkData::customerDto).iterator());
+        customerService = context.getBean(CustomerService.class);
+        boolean deep = "deep".equals(page);
+        firstNameSearch = CustomerNameDto.builder()
+                .firstName("user")
+                .afterName(deep ? "userfirstname9" : null)
+                .after(deep ? 0L : null)
+                .limit(50)
+                .build();
+        // userLastName1, 10-19 and 100-199 of every thousand ids
+        lastNameSearch = CustomerNameDto.builder()
+                .lastName("userLastName1")
+                .afterName(deep ? "userlastname19" : null)
+                .after(deep ? 0L : null)
+                .limit(50)
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        FileSystemUtils.deleteRecursively(databaseDirectory);
+    }
+
+    @Benchmark
+    public CustomerPageDto firstNamePrefix() {
+        return customerService.searchCustomerByNamePage(firstNameSearch);
+    }
+
+    @Benchmark
+    public CustomerPageDto lastNamePrefix() {
+        return customerService.searchCustomerByNamePage(lastNameSearch);
+    }
+}
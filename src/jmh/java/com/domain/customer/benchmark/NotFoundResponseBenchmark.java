@@ -0,0 +1,77 @@
+package com.domain.customer.benchmark;
+
+import com.domain.customer.exception.ErrorResponse;
+import com.domain.customer.exception.GenericExceptionHandler;
+import com.domain.customer.exception.NoSuchCustomerExistsException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one 404 from the throw in the service to the serialized error body. {@code depth} is the number of
+ * frames between the throw and the handler, a request through the filter chain, dispatcher servlet and service
+ * proxies is well over a hundred. {@code stackless} is the current path: a stackless exception with a fixed
+ * message answered with the preallocated 404 body. {@code withStackTrace} reproduces the previous path: an
+ * exception that fills in its stack trace and a body with a timestamp, the id and the client description.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NotFoundResponseBenchmark {
+    @Param({"20", "150"})
+    private int depth;
+    private ObjectMapper objectMapper;
+    private GenericExceptionHandler exceptionHandler;
+    private WebRequest webRequest;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        exceptionHandler = new GenericExceptionHandler();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/customers/404");
+        request.setRemoteAddr("10.0.0.1");
+        webRequest = new ServletWebRequest(request);
+    }
+
+    @Benchmark
+    public byte[] stackless() throws JsonProcessingException {
+        try {
+            throwAt(depth, true);
+            return null;
+        } catch (NoSuchCustomerExistsException e) {
+            return objectMapper.writeValueAsBytes(exceptionHandler.handleException().getBody());
+        }
+    }
+
+    @Benchmark
+    public byte[] withStackTrace() throws JsonProcessingException {
+        try {
+            throwAt(depth, false);
+            return null;
+        } catch (RuntimeException e) {
+            ErrorResponse errorResponse = new ErrorResponse(HttpStatus.NOT_FOUND.value(), LocalDateTime.now(),
+                    e.getMessage(), webRequest.getDescription(true));
+            return objectMapper.writeValueAsBytes(errorResponse);
+        }
+    }
+
+    private static void throwAt(int depth, boolean stackless) {
+        if (depth > 0) {
+            throwAt(depth - 1, stackless);
+            return;
+        }
+        throw stackless ? new NoSuchCustomerExistsException()
+                : new RuntimeException("No Customer present with Id " + 404);
+    }
+}
@@ -0,0 +1,89 @@
+package com.domain.customer.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Launches the packaged application as a new process and measures until the first {@code GET /customers/1}
+ * is answered: the fat jar as the current image runs it, and the thin jar with the AppCDS archive of the
+ * {@code cds} profile. Needs {@code mvn -Pcds,benchmark -DskipTests verify -Djmh.args="ProcessStartupBenchmark"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ProcessStartupBenchmark {
+    private static final Path TARGET = Path.of(System.getProperty("customers.target", "target")).toAbsolutePath();
+    private static final Duration STARTUP_TIMEOUT = Duration.ofSeconds(60);
+    @Param({"fat-jar", "cds"})
+    private String image;
+    private Process process;
+    private Path databaseDirectory;
+    private HttpClient httpClient;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        databaseDirectory = Files.createTempDirectory("customers-process");
+        httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(200)).build();
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException, InterruptedException {
+        process.destroy();
+        process.waitFor(10, TimeUnit.SECONDS);
+        FileSystemUtils.deleteRecursively(databaseDirectory);
+    }
+
+    @Benchmark
+    public int timeToFirstRequest() throws IOException, InterruptedException {
+        int port = freePort();
+        List<String> command = new ArrayList<>(List.of(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-Dserver.port=" + port, "-Dcustomers.h2.path=" + databaseDirectory.resolve("customersdb")));
+        if ("cds".equals(image)) {
+            command.addAll(List.of("-XX:SharedArchiveFile=customers.jsa", "-Xshare:auto", "-jar", "customers-1.0.0-cds.jar"));
+        } else {
+            command.addAll(List.of("-jar", "customers-1.0.0.jar"));
+        }
+        process = new ProcessBuilder(command)
+                .directory(TARGET.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(new File(databaseDirectory.toFile(), "console.log"))
+                .start();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/customers/1")).GET().build();
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            try {
+                return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            } catch (ConnectException e) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("Application exited with " + process.exitValue());
+                }
+                Thread.sleep(5);
+            }
+        }
+        throw new IllegalStateException("Application did not answer within " + STARTUP_TIMEOUT);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.domain.customer.benchmark;
+
+import com.domain.customer.CustomerApplication;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time-to-first-request: starts the application in a fresh JVM per fork, against a new file store, and
+ * measures until the first {@code GET /customers/1} has been answered. Compares the default profile with
+ * the {@code fast-start} profile.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class StartupBenchmark {
+    @Param({"default", "fast-start"})
+    private String profile;
+    private Path databaseDirectory;
+    private ConfigurableApplicationContext context;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        databaseDirectory = Files.createTempDirectory("customers-startup");
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        context.close();
+        FileSystemUtils.deleteRecursively(databaseDirectory);
+    }
+
+    @Benchmark
+    public int timeToFirstRequest() throws IOException, InterruptedException {
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(CustomerApplication.class)
+                .applicationStartup(new BufferingApplicationStartup(4096))
+                .properties(
+                        "server.port=0",
+                        "customers.h2.path=" + databaseDirectory.resolve("customersdb"));
+        if (!"default".equals(profile)) {
+            builder.profiles(profile);
+        }
+        context = builder.run();
+        String port = context.getEnvironment().getProperty("local.server.port");
+        return HttpClient.newHttpClient()
+                .send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/customers/1")).GET().build(),
+                        HttpResponse.BodyHandlers.discarding())
+                .statusCode();
+    }
+}
@@ -0,0 +1,106 @@
+package com.domain.customer.benchmark;
+
+import com.domain.customer.CustomerApplication;
+import com.domain.customer.dto.CustomerDto;
+import com.domain.customer.dto.CustomerNameDto;
+import com.domain.customer.service.CustomerIngestService;
+import com.domain.customer.service.CustomerService;
+import com.domain.customer.store.CustomerStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+/**
+ * 200 threads reading the same customer by id and by name with the cache off, as right after a deploy or a
+ * cache flush, with read coalescing off and on. After each iteration the store calls per second (from the
+ * {@code customer.store} timers) are printed next to the reads per second that JMH reports.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(200)
+@Fork(1)
+public class ThunderingHerdBenchmark {
+    @Param({"false", "true"})
+    private boolean coalesce;
+    private ConfigurableApplicationContext context;
+    private CustomerService customerService;
+    private MeterRegistry meterRegistry;
+    private long hotId;
+    private CustomerNameDto hotName;
+    private long storeCallsAtStart;
+    private long iterationStart;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(CustomerApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:herd;DB_CLOSE_DELAY=-1",
+                        "spring.h2.console.enabled=false",
+                        "spring.cache.type=none",
+                        "customers.reads.coalesce=" + coalesce)
+                .run();
+        context.getBean(CustomerIngestService.class).ingest(
+                IntStream.rangeClosed(1, 10000).mapToObj(BenchmarkData::customerDto).iterator());
+        customerService = context.getBean(CustomerService.class);
+        meterRegistry = context.getBean(MeterRegistry.class);
+        LongStream.Builder ids = LongStream.builder();
+        context.getBean(CustomerStore.class).forEachNameOrderById((id, firstName, lastName) -> ids.add(id));
+        hotId = ids.build().skip(41).findFirst().orElseThrow();
+        CustomerDto hotCustomer = customerService.searchCustomerById(hotId);
+        hotName = CustomerNameDto.builder()
+                .firstName(hotCustomer.getFirstName())
+                .lastName(hotCustomer.getLastName())
+                .build();
+    }
+
+    @Setup(Level.Iteration)
+    public void startIteration() {
+        storeCallsAtStart = storeCalls();
+        iterationStart = System.nanoTime();
+    }
+
+    @TearDown(Level.Iteration)
+    public void endIteration() {
+        double seconds = (System.nanoTime() - iterationStart) / 1_000_000_000d;
+        System.out.printf("%ncoalesce=%s: %.0f store reads/s%n", coalesce, (storeCalls() - storeCallsAtStart) / seconds);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public CustomerDto searchCustomerById() {
+        return customerService.searchCustomerById(hotId);
+    }
+
+    @Benchmark
+    public List<CustomerDto> searchCustomerByName() {
+        return customerService.searchCustomerByName(hotName);
+    }
+
+    private long storeCalls() {
+        return meterRegistry.find("customer.store").timers().stream()
+                .filter(timer -> isRead(timer.getId().getTag("operation")))
+                .mapToLong(Timer::count)
+                .sum();
+    }
+
+    private static boolean isRead(String operation) {
+        return "findById".equals(operation) || "findByFirstNameAndLastName".equals(operation)
+                || "findByFirstNameOrLastName".equals(operation);
+    }
+}
@@ -1,18 +1,29 @@
 package com.domain.customer;
 
-import io.micrometer.core.aop.TimedAspect;
-import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.LazyInitializationExcludeFilter;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 
+@EnableCaching
 @SpringBootApplication
 public class CustomerApplication {
+	static final int STARTUP_STEPS_CAPACITY = 4096;
+
 	public static void main(String[] args) {
-		SpringApplication.run(CustomerApplication.class, args);
+		SpringApplication application = new SpringApplication(CustomerApplication.class);
+		application.setApplicationStartup(new BufferingApplicationStartup(STARTUP_STEPS_CAPACITY));
+		application.run(args);
 	}
+	/**
+	 * With spring.main.lazy-initialization the first request would pay for creating the controller, services and
+	 * store, so those stay eager and only framework beans that are not on the request path are deferred.
+	 */
 	@Bean
-	public TimedAspect timedAspect(MeterRegistry registry) {
-		return new TimedAspect(registry);
+	static LazyInitializationExcludeFilter eagerCustomerBeans() {
+		return (beanName, beanDefinition, beanType) -> beanType != null
+				&& beanType.getName().startsWith(CustomerApplication.class.getPackageName() + ".");
 	}
 }
@@ -3,24 +3,36 @@ package com.domain.customer;
 import com.domain.customer.dto.AddressDto;
 import com.domain.customer.dto.CustomerDto;
 import com.domain.customer.mapper.CustomerMapper;
-import com.domain.customer.repository.CustomerRespository;
+import com.domain.customer.store.CustomerStore;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
+/**
+ * Seeds two customers in one batch, only into an empty store so that restarts skip it.
+ */
+@Slf4j
 @Component
 @RequiredArgsConstructor
+@ConditionalOnProperty(name = "customers.seed.enabled", havingValue = "true", matchIfMissing = true)
 public class CustomerDataLoader implements CommandLineRunner {
-    private final CustomerRespository customerRespository;
+    private final CustomerStore customerStore;
 
     @Override
     public void run(String... strings) {
+        if (!customerStore.findPage(0L, 1).isEmpty()) {
+            log.debug("Customer store already has data, skipping seed customers");
+            return;
+        }
         CustomerDto customerDto = createCustomerDtoObject("userFirstName1","userLastName1",
                 23, "addressline1","addressline2", "8888JK", "Amsterdam", "NL", "");
         CustomerDto customerDto1 = createCustomerDtoObject("userFirstName2","userLastName2",
                  31,"addressline3", "addressline4", "6565SD", "Utrecht", "NL", null);
-        this.customerRespository.save(CustomerMapper.MAPPER.customerDtoToCustomer(customerDto));
-        this.customerRespository.save(CustomerMapper.MAPPER.customerDtoToCustomer(customerDto1));
+        this.customerStore.insertAll(CustomerMapper.MAPPER.customerDtoListToCustomer(List.of(customerDto, customerDto1)));
     }
 
     private CustomerDto createCustomerDtoObject(String firstName,
@@ -0,0 +1,208 @@
+package com.domain.customer.admission;
+
+import com.domain.customer.exception.TooManyRequestsException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.DeferredResultProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncManager;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Admission control in front of the controller handlers configured in {@link AdmissionControlProperties}: a
+ * token bucket per client key and endpoint, then a bulkhead of {@code max-concurrent} permits per endpoint.
+ * Rejected requests fail with {@link TooManyRequestsException} before the handler runs. Async handlers
+ * (change feed, streams) hold their permit until the async part completes, the release is registered with the
+ * request's {@link WebAsyncManager} so it also happens on timeouts and client disconnects. Clients are keyed by
+ * remote address unless {@code trust-client-key-header} is set.
+ */
+public class AdmissionControlInterceptor implements HandlerInterceptor {
+    static final String REJECTED_COUNTER = "customer.admission.rejected";
+    static final String QUEUE_TIMER = "customer.admission.queue";
+    private static final String ADMITTED_ATTRIBUTE = AdmissionControlInterceptor.class.getName() + ".ADMITTED";
+    private final AdmissionControlProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<Method, Optional<EndpointAdmission>> admissions = new ConcurrentHashMap<>();
+
+    public AdmissionControlInterceptor(AdmissionControlProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getDispatcherType() != DispatcherType.REQUEST || !(handler instanceof HandlerMethod)) {
+            return true;
+        }
+        Optional<EndpointAdmission> admission = admissions.computeIfAbsent(((HandlerMethod) handler).getMethod(),
+                method -> Optional.ofNullable(properties.getEndpoints().get(method.getName()))
+                        .map(limits -> new EndpointAdmission(method.getName(), limits)));
+        if (admission.isPresent()) {
+            admission.get().admit(clientKey(request));
+            Admitted admitted = new Admitted(admission.get());
+            request.setAttribute(ADMITTED_ATTRIBUTE, admitted);
+            WebAsyncManager asyncManager = WebAsyncUtils.getAsyncManager(request);
+            asyncManager.registerCallableInterceptor(ADMITTED_ATTRIBUTE, admitted);
+            asyncManager.registerDeferredResultInterceptor(ADMITTED_ATTRIBUTE, admitted);
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        release(request);
+    }
+
+    private static void release(HttpServletRequest request) {
+        Object admitted = request.getAttribute(ADMITTED_ATTRIBUTE);
+        if (admitted != null) {
+            ((Admitted) admitted).release();
+        }
+    }
+
+    private String clientKey(HttpServletRequest request) {
+        String clientKey = properties.isTrustClientKeyHeader() ? request.getHeader(properties.getClientKeyHeader()) : null;
+        return clientKey == null || clientKey.isEmpty() ? request.getRemoteAddr() : clientKey;
+    }
+
+    /**
+     * The permit of one request, released once by whichever of the sync completion, the async dispatch or the
+     * async completion comes first.
+     */
+    private static final class Admitted implements CallableProcessingInterceptor, DeferredResultProcessingInterceptor {
+        private final EndpointAdmission admission;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Admitted(EndpointAdmission admission) {
+            this.admission = admission;
+        }
+
+        @Override
+        public <T> void afterCompletion(NativeWebRequest request, Callable<T> task) {
+            release();
+        }
+
+        @Override
+        public <T> void afterCompletion(NativeWebRequest request, DeferredResult<T> deferredResult) {
+            release();
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                admission.release();
+            }
+        }
+    }
+
+    private final class EndpointAdmission {
+        private final String endpoint;
+        private final Semaphore permits;
+        private final long maxWaitNanos;
+        private final Cache<String, TokenBucket> buckets;
+        private final int burst;
+        private final double permitsPerSecond;
+        private final Timer queueTimer;
+        private final Counter concurrencyRejections;
+        private final Counter rateRejections;
+
+        private EndpointAdmission(String endpoint, AdmissionControlProperties.Limits limits) {
+            this.endpoint = endpoint;
+            this.permits = limits.getMaxConcurrent() > 0 ? new Semaphore(limits.getMaxConcurrent()) : null;
+            this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(limits.getMaxWaitMs());
+            this.permitsPerSecond = limits.getPermitsPerSecond();
+            this.burst = limits.getBurst() > 0 ? limits.getBurst() : (int) Math.ceil(permitsPerSecond);
+            this.buckets = permitsPerSecond > 0
+                    ? Caffeine.newBuilder()
+                    .maximumSize(properties.getMaxClients())
+                    .expireAfterAccess(Duration.ofMinutes(10))
+                    .build()
+                    : null;
+            this.queueTimer = Timer.builder(QUEUE_TIMER)
+                    .description("Time requests waited for a concurrency permit of the endpoint")
+                    .tag("endpoint", endpoint)
+                    .register(meterRegistry);
+            this.concurrencyRejections = rejectedCounter(endpoint, "concurrency");
+            this.rateRejections = rejectedCounter(endpoint, "rate");
+            if (permits != null) {
+                int maxConcurrent = limits.getMaxConcurrent();
+                Gauge.builder("customer.admission.in-flight", permits,
+                                semaphore -> maxConcurrent - semaphore.availablePermits())
+                        .description("Requests holding a concurrency permit of the endpoint")
+                        .tag("endpoint", endpoint)
+                        .register(meterRegistry);
+            }
+        }
+
+        private Counter rejectedCounter(String endpoint, String reason) {
+            return Counter.builder(REJECTED_COUNTER)
+                    .description("Requests shed by admission control")
+                    .tag("endpoint", endpoint)
+                    .tag("reason", reason)
+                    .register(meterRegistry);
+        }
+
+        private void admit(String clientKey) {
+            if (buckets != null) {
+                long now = System.nanoTime();
+                long waitNanos = buckets.get(clientKey, key -> new TokenBucket(burst, permitsPerSecond, now))
+                        .tryConsume(now);
+                if (waitNanos > 0) {
+                    rateRejections.increment();
+                    throw new TooManyRequestsException("Too many requests to " + endpoint + ", slow down",
+                            Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999)));
+                }
+            }
+            if (permits != null && !acquire()) {
+                concurrencyRejections.increment();
+                throw new TooManyRequestsException("Too many concurrent requests to " + endpoint + ", retry later", 1);
+            }
+        }
+
+        private boolean acquire() {
+            if (permits.tryAcquire()) {
+                queueTimer.record(0, TimeUnit.NANOSECONDS);
+                return true;
+            }
+            if (maxWaitNanos <= 0) {
+                return false;
+            }
+            long start = System.nanoTime();
+            try {
+                return permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } finally {
+                queueTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        private void release() {
+            if (permits != null) {
+                permits.release();
+            }
+        }
+    }
+}
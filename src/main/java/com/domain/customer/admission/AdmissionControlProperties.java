@@ -0,0 +1,46 @@
+package com.domain.customer.admission;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Limits per controller handler method name under {@code customers.admission.endpoints}, endpoints without an
+ * entry are not limited. A zero {@code max-concurrent} or {@code permits-per-second} turns that limit off.
+ */
+@Data
+@ConfigurationProperties(prefix = "customers.admission")
+public class AdmissionControlProperties {
+    private boolean enabled;
+    /**
+     * Header identifying the client for rate limiting, only read with {@code trustClientKeyHeader}, the remote
+     * address is used when it is absent.
+     */
+    private String clientKeyHeader = "X-Client-Id";
+    /**
+     * Whether the client key header can be trusted, e.g. because a gateway in front of the service sets it. Any
+     * client could otherwise send a fresh key per request and get a fresh token bucket with each.
+     */
+    private boolean trustClientKeyHeader;
+    /**
+     * Rate limited clients tracked per endpoint, the least recently seen are dropped beyond that.
+     */
+    private int maxClients = 10000;
+    private Map<String, Limits> endpoints = new HashMap<>();
+
+    @Data
+    public static class Limits {
+        private int maxConcurrent;
+        /**
+         * How long a request may wait for one of the {@code maxConcurrent} permits before it is shed.
+         */
+        private long maxWaitMs;
+        private double permitsPerSecond;
+        /**
+         * Requests a client may send at once above its rate, defaults to one second worth of permits.
+         */
+        private int burst;
+    }
+}
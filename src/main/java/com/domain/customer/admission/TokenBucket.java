@@ -0,0 +1,31 @@
+package com.domain.customer.admission;
+
+/**
+ * Starts full with {@code capacity} tokens and refills continuously at {@code permitsPerSecond}.
+ */
+final class TokenBucket {
+    private final double capacity;
+    private final double tokensPerNano;
+    private double tokens;
+    private long refilledAt;
+
+    TokenBucket(int capacity, double permitsPerSecond, long nowNanos) {
+        this.capacity = capacity;
+        this.tokensPerNano = permitsPerSecond / 1_000_000_000d;
+        this.tokens = capacity;
+        this.refilledAt = nowNanos;
+    }
+
+    /**
+     * Takes a token, returns 0 if there was one or else the nanos until the next token.
+     */
+    synchronized long tryConsume(long nowNanos) {
+        tokens = Math.min(capacity, tokens + (nowNanos - refilledAt) * tokensPerNano);
+        refilledAt = nowNanos;
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return (long) Math.ceil((1 - tokens) / tokensPerNano);
+    }
+}
@@ -0,0 +1,32 @@
+package com.domain.customer.config;
+
+import com.domain.customer.admission.AdmissionControlInterceptor;
+import com.domain.customer.admission.AdmissionControlProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Per-endpoint bulkheads and per-client rate limits, off unless {@code customers.admission.enabled=true}.
+ * The limits live in {@code customers.admission.endpoints}, see {@link AdmissionControlProperties}.
+ */
+@Configuration
+@RequiredArgsConstructor
+@EnableConfigurationProperties(AdmissionControlProperties.class)
+@ConditionalOnProperty(name = "customers.admission.enabled", havingValue = "true")
+public class AdmissionControlConfiguration implements WebMvcConfigurer {
+    private final AdmissionControlProperties admissionControlProperties;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new AdmissionControlInterceptor(admissionControlProperties,
+                meterRegistry.getIfAvailable(SimpleMeterRegistry::new)));
+    }
+}
@@ -0,0 +1,42 @@
+package com.domain.customer.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+
+/**
+ * Training run of the {@code cds} build profile, enabled with {@code customers.startup.training-run}: once the
+ * application is ready it calls a few read endpoints, so the request path is loaded too, and exits. The JVM
+ * then writes the loaded class list that the class data sharing archive is dumped from.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "customers.startup.training-run", havingValue = "true")
+public class CdsTrainingRun {
+    private static final List<String> TRAINING_PATHS = List.of("/customers/1", "/customers/page?limit=10",
+            "/customers/typeahead?q=user", "/actuator/prometheus");
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void train(ApplicationReadyEvent event) throws IOException, InterruptedException {
+        ConfigurableApplicationContext context = event.getApplicationContext();
+        String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        HttpClient httpClient = HttpClient.newHttpClient();
+        for (String path : TRAINING_PATHS) {
+            int status = httpClient.send(HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build(),
+                    HttpResponse.BodyHandlers.discarding()).statusCode();
+            log.info("Training request {} answered {}", path, status);
+        }
+        System.exit(SpringApplication.exit(context));
+    }
+}
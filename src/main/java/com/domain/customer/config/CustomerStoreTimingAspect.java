@@ -0,0 +1,51 @@
+package com.domain.customer.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every {@code CustomerStore} call as {@code customer.store} tagged with the store, the operation and the
+ * exception thrown, if any. The forEach operations include the time spent in the consumer.
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class CustomerStoreTimingAspect {
+    static final String STORE_TIMER = "customer.store";
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    @Around("execution(* com.domain.customer.store.CustomerStore+.*(..))")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        String store = joinPoint.getTarget().getClass().getSimpleName();
+        String operation = joinPoint.getSignature().getName();
+        long start = System.nanoTime();
+        String exception = "none";
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            timer(store, operation, exception).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer timer(String store, String operation, String exception) {
+        return timers.computeIfAbsent(store + '.' + operation + '.' + exception, key -> Timer.builder(STORE_TIMER)
+                .description("Time spent in customer store operations")
+                .tag("store", store)
+                .tag("operation", operation)
+                .tag("exception", exception)
+                .register(meterRegistry));
+    }
+}
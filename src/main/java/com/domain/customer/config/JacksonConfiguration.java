@@ -0,0 +1,55 @@
+package com.domain.customer.config;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Blackbird replaces reflective property access in every Jackson serializer and deserializer with generated
+ * lambdas. Smile ({@code application/x-jackson-smile}) is offered as a compact binary alternative to JSON for
+ * clients that ask for it in {@code Accept}; it is appended after the JSON converter so {@code *}/{@code *}
+ * still gets JSON. Turn Smile off with {@code customers.http.smile.enabled=false}.
+ */
+@Configuration
+public class JacksonConfiguration implements WebMvcConfigurer {
+    private final Jackson2ObjectMapperBuilder objectMapperBuilder;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final boolean smileEnabled;
+
+    public JacksonConfiguration(Jackson2ObjectMapperBuilder objectMapperBuilder,
+                                ObjectProvider<MeterRegistry> meterRegistry,
+                                @Value("${customers.http.smile.enabled:true}") boolean smileEnabled) {
+        this.objectMapperBuilder = objectMapperBuilder;
+        this.meterRegistry = meterRegistry;
+        this.smileEnabled = smileEnabled;
+    }
+
+    @Bean
+    public Module blackbirdModule() {
+        return new BlackbirdModule();
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        if (!smileEnabled) {
+            return;
+        }
+        ObjectMapper smileMapper = objectMapperBuilder.factory(new SmileFactory()).build();
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        converters.add(registry == null ? new MappingJackson2SmileHttpMessageConverter(smileMapper)
+                : new ResponseWriteMetricsConfiguration.TimedSmileHttpMessageConverter(smileMapper,
+                new ResponseWriteMetricsConfiguration.ResponseWriteTimers(registry, "smile")));
+    }
+}
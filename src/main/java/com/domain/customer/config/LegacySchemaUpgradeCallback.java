@@ -0,0 +1,88 @@
+package com.domain.customer.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.api.callback.Callback;
+import org.flywaydb.core.api.callback.Context;
+import org.flywaydb.core.api.callback.Event;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Brings an h2 file database written before Flyway (ids from IDENTITY columns, no normalized name columns,
+ * sequences or indexes) to the shape of V1 before the migrations run. Such databases are baselined at version 1,
+ * so V1 itself never runs on them. Every step checks the schema first, on databases created by V1 this is a
+ * handful of metadata queries.
+ */
+@Slf4j
+@Component
+public class LegacySchemaUpgradeCallback implements Callback {
+    static final int SEQUENCE_INCREMENT = 50;
+    private static final List<String[]> SEQUENCES = List.of(
+            new String[]{"CUSTOMER_SEQ", "customer", "id"},
+            new String[]{"ADDRESS_SEQ", "address", "address_id"});
+    private static final List<String> INDEXES = List.of(
+            "create index if not exists idx_customer_first_name on customer (first_name)",
+            "create index if not exists idx_customer_last_name on customer (last_name)",
+            "create index if not exists idx_customer_first_name_normalized on customer (first_name_normalized, id)",
+            "create index if not exists idx_customer_last_name_normalized on customer (last_name_normalized, id)");
+
+    @Override
+    public boolean supports(Event event, Context context) {
+        return event == Event.BEFORE_MIGRATE;
+    }
+
+    @Override
+    public boolean canHandleInTransaction(Event event, Context context) {
+        return true;
+    }
+
+    @Override
+    public void handle(Event event, Context context) {
+        try {
+            if (!"H2".equals(context.getConnection().getMetaData().getDatabaseProductName())) {
+                return;
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not read the database product", e);
+        }
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new SingleConnectionDataSource(context.getConnection(), true));
+        if (jdbcTemplate.queryForObject("select count(*) from information_schema.tables " +
+                "where table_schema = 'PUBLIC' and table_name = 'CUSTOMER'", Integer.class) == 0) {
+            return;
+        }
+        jdbcTemplate.execute("alter table customer add column if not exists first_name_normalized varchar(255)");
+        jdbcTemplate.execute("alter table customer add column if not exists last_name_normalized varchar(255)");
+        for (String[] sequence : SEQUENCES) {
+            upgradeSequence(jdbcTemplate, sequence[0], sequence[1], sequence[2]);
+        }
+        INDEXES.forEach(jdbcTemplate::execute);
+    }
+
+    /**
+     * Hibernate's pooled optimizer hands out the {@value #SEQUENCE_INCREMENT} ids up to each value it draws, so
+     * the next value must be at least the highest id written through IDENTITY plus the increment.
+     */
+    private static void upgradeSequence(JdbcTemplate jdbcTemplate, String sequence, String table, String idColumn) {
+        long maxId = jdbcTemplate.queryForObject("select coalesce(max(" + idColumn + "), 0) from " + table, Long.class);
+        long start = maxId == 0 ? 1 : maxId + SEQUENCE_INCREMENT;
+        List<Long> nextValue = jdbcTemplate.queryForList("select base_value from information_schema.sequences " +
+                "where sequence_schema = 'PUBLIC' and sequence_name = ?", Long.class, sequence);
+        if (nextValue.isEmpty()) {
+            log.info("Creating {} starting at {} for a database written before Flyway", sequence, start);
+            jdbcTemplate.execute("create sequence " + sequence + " start with " + start +
+                    " increment by " + SEQUENCE_INCREMENT);
+        } else if (maxId > 0 && nextValue.get(0) < start) {
+            log.info("Restarting {} at {}, above the ids already in {}", sequence, start, table);
+            jdbcTemplate.execute("alter sequence " + sequence + " restart with " + start);
+        }
+    }
+
+    @Override
+    public String getCallbackName() {
+        return getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,29 @@
+package com.domain.customer.config;
+
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Hands out replica connections inside read-only transactions and primary connections otherwise. The read-only
+ * flag is only published once the transaction has begun, after the transaction manager asked for its
+ * connection, so this must sit behind a {@link LazyConnectionDataSourceProxy}, which defers the lookup to the
+ * first statement.
+ */
+class ReadOnlyRoutingDataSource extends AbstractRoutingDataSource {
+    enum Route {PRIMARY, REPLICA}
+
+    ReadOnlyRoutingDataSource(DataSource primary, DataSource replica) {
+        setTargetDataSources(Map.<Object, Object>of(Route.PRIMARY, primary, Route.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly() ? Route.REPLICA : Route.PRIMARY;
+    }
+}
@@ -0,0 +1,90 @@
+package com.domain.customer.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replaces Boot's JSON message converter with one that times response serialization as
+ * {@code customer.response.write}, tagged with the format and the type of the body. The time includes writing
+ * to the response stream, so a slow client shows up here rather than in the store or mapping timers.
+ */
+@Configuration
+public class ResponseWriteMetricsConfiguration {
+    static final String RESPONSE_WRITE_TIMER = "customer.response.write";
+
+    @Bean
+    public MappingJackson2HttpMessageConverter timedJacksonHttpMessageConverter(ObjectMapper objectMapper,
+                                                                                MeterRegistry meterRegistry) {
+        return new TimedJacksonHttpMessageConverter(objectMapper, new ResponseWriteTimers(meterRegistry, "json"));
+    }
+
+    static class ResponseWriteTimers {
+        private final MeterRegistry meterRegistry;
+        private final String format;
+        private final Map<Class<?>, Timer> timers = new ConcurrentHashMap<>();
+
+        ResponseWriteTimers(MeterRegistry meterRegistry, String format) {
+            this.meterRegistry = meterRegistry;
+            this.format = format;
+        }
+
+        void record(Class<?> bodyType, long startNanos) {
+            timers.computeIfAbsent(bodyType, key -> Timer.builder(RESPONSE_WRITE_TIMER)
+                            .description("Time spent serializing and writing responses")
+                            .tag("format", format)
+                            .tag("type", key.getSimpleName())
+                            .register(meterRegistry))
+                    .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    static class TimedJacksonHttpMessageConverter extends MappingJackson2HttpMessageConverter {
+        private final ResponseWriteTimers timers;
+
+        TimedJacksonHttpMessageConverter(ObjectMapper objectMapper, ResponseWriteTimers timers) {
+            super(objectMapper);
+            this.timers = timers;
+        }
+
+        @Override
+        protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+            long start = System.nanoTime();
+            try {
+                super.writeInternal(object, type, outputMessage);
+            } finally {
+                timers.record(object.getClass(), start);
+            }
+        }
+    }
+
+    static class TimedSmileHttpMessageConverter extends MappingJackson2SmileHttpMessageConverter {
+        private final ResponseWriteTimers timers;
+
+        TimedSmileHttpMessageConverter(ObjectMapper objectMapper, ResponseWriteTimers timers) {
+            super(objectMapper);
+            this.timers = timers;
+        }
+
+        @Override
+        protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+            long start = System.nanoTime();
+            try {
+                super.writeInternal(object, type, outputMessage);
+            } finally {
+                timers.record(object.getClass(), start);
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.domain.customer.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Logs how long SpringApplication.run took until the application was ready and the slowest startup steps recorded by
+ * the {@link BufferingApplicationStartup} set in {@code CustomerApplication#main}. The full timeline is
+ * served by {@code /actuator/startup}.
+ */
+@Slf4j
+@Component
+public class StartupTimingReport {
+    private final int slowestSteps;
+
+    public StartupTimingReport(@Value("${customers.startup.report.slowest-steps:10}") int slowestSteps) {
+        this.slowestSteps = slowestSteps;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void report(ApplicationReadyEvent event) {
+        if (!(event.getApplicationContext().getApplicationStartup() instanceof BufferingApplicationStartup)) {
+            return;
+        }
+        StartupTimeline timeline = ((BufferingApplicationStartup) event.getApplicationContext()
+                .getApplicationStartup()).getBufferedTimeline();
+        log.info("Customers ready in {} ms, slowest startup steps:\n{}",
+                event.getTimeTaken() == null ? "?" : event.getTimeTaken().toMillis(), slowest(timeline.getEvents()));
+    }
+
+    private String slowest(List<StartupTimeline.TimelineEvent> events) {
+        return events.stream()
+                .sorted(Comparator.comparing(StartupTimeline.TimelineEvent::getDuration).reversed())
+                .limit(slowestSteps)
+                .map(event -> String.format("%8d ms  %s%s", event.getDuration().toMillis(),
+                        event.getStartupStep().getName(), describe(event.getStartupStep())))
+                .collect(Collectors.joining("\n"));
+    }
+
+    private static String describe(StartupStep step) {
+        StringBuilder tags = new StringBuilder();
+        step.getTags().forEach(tag -> tags.append(' ').append(tag.getKey()).append('=').append(tag.getValue()));
+        return tags.toString();
+    }
+}
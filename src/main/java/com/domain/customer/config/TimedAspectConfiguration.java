@@ -0,0 +1,19 @@
+package com.domain.customer.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Backs {@code @Timed} on the controller. Kept out of {@code CustomerApplication} so that test slices such as
+ * {@code @DataJpaTest}, which have no {@link MeterRegistry}, do not pick it up.
+ */
+@Configuration
+public class TimedAspectConfiguration {
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+}
@@ -0,0 +1,42 @@
+package com.domain.customer.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Opt-in with {@code customers.execution.mode=virtual-threads}. Tomcat request processing and MVC async
+ * (streaming responses) run on a virtual-thread-per-task executor instead of the fixed platform pool. The
+ * executor is closed once the web server has stopped, which waits for the requests still running on it.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "customers.execution.mode", havingValue = "virtual-threads")
+public class VirtualThreadConfiguration implements WebMvcConfigurer {
+    private final ExecutorService virtualThreadExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        log.info("Customer endpoints run on virtual threads");
+        return protocolHandler -> protocolHandler.setExecutor(virtualThreadExecutor);
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(new TaskExecutorAdapter(virtualThreadExecutor));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        virtualThreadExecutor.close();
+    }
+}
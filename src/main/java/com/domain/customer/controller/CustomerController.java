@@ -1,24 +1,50 @@
 package com.domain.customer.controller;
 
+import com.domain.customer.dto.BulkIngestReportDto;
+import com.domain.customer.dto.CustomerChangePageDto;
 import com.domain.customer.dto.CustomerDto;
+import com.domain.customer.dto.CustomerLookupDto;
 import com.domain.customer.dto.CustomerNameDto;
+import com.domain.customer.dto.CustomerNameMatchDto;
+import com.domain.customer.dto.CustomerPageDto;
 import com.domain.customer.dto.CustomerPatchDto;
+import com.domain.customer.search.CustomerNameIndex;
+import com.domain.customer.service.CustomerChangeFeed;
+import com.domain.customer.service.CustomerIngestService;
+import com.domain.customer.service.CustomerLookupService;
 import com.domain.customer.service.CustomerService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 
 @RestController
 @RequiredArgsConstructor
 public class CustomerController {
+    private static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
     private final CustomerService customerService;
+    private final CustomerIngestService customerIngestService;
+    private final CustomerLookupService customerLookupService;
+    private final CustomerChangeFeed customerChangeFeed;
+    private final CustomerNameIndex customerNameIndex;
+    private final ObjectMapper objectMapper;
     @Timed(value = "addCustomers.time", description = "Time taken to add customer")
     @PostMapping(path = "/customers",
             consumes = MediaType.APPLICATION_JSON_VALUE,
@@ -28,34 +54,146 @@ public class CustomerController {
         return new ResponseEntity<>(addedCustomer, HttpStatus.OK);
     }
 
+    @Timed(value = "upsertCustomer.time", description = "Time taken to create or replace customer")
+    @PutMapping(path = "/customers/{id}",
+            consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<CustomerDto> upsertCustomer(@PathVariable Long id, @Valid @RequestBody CustomerDto customerDto) {
+        return new ResponseEntity<>(customerService.upsertCustomer(id, customerDto), HttpStatus.OK);
+    }
+
+    @Timed(value = "bulkAddCustomers.time", description = "Time taken to bulk add customers")
+    @PostMapping(path = "/customers/bulk",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BulkIngestReportDto> bulkAddCustomers(InputStream body) throws IOException {
+        try (MappingIterator<CustomerDto> customers = objectMapper.readerFor(CustomerDto.class).readValues(body)) {
+            return new ResponseEntity<>(customerIngestService.ingest(customers), HttpStatus.OK);
+        }
+    }
+
     @Timed(value = "updateAddress.time", description = "Time taken to update customer")
     @PatchMapping(path = "/updateAddress")
-    public ResponseEntity<String> updateCustomerAddress(@Valid @RequestBody CustomerPatchDto patchDto) {
-        String response = customerService.updateCustomer(patchDto);
+    public ResponseEntity<String> updateCustomerAddress(@Valid @RequestBody CustomerPatchDto patchDto,
+                                                        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        String response = ifMatch == null ? customerService.updateCustomer(patchDto)
+                : customerService.updateCustomer(patchDto, CustomerETags.parseIfMatch(ifMatch));
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
 
     @Timed(value = "searchCustomerById.time", description = "Time taken to search customer by id")
     @GetMapping("/customers/{id}")
-    public CustomerDto searchCustomerById(@Valid @PathVariable Long id) {
-        return customerService.searchCustomerById(id);
+    public ResponseEntity<CustomerDto> searchCustomerById(@Valid @PathVariable Long id,
+                                                          @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (ifNoneMatch != null) {
+            Optional<LocalDateTime> lastModified = customerService.findLastModified(id);
+            if (lastModified.isPresent() && CustomerETags.matchesAny(ifNoneMatch, CustomerETags.eTag(lastModified.get()))) {
+                return CustomerETags.withValidators(ResponseEntity.status(HttpStatus.NOT_MODIFIED), lastModified.get()).build();
+            }
+        }
+        CustomerDto customerDto = customerService.searchCustomerById(id);
+        return CustomerETags.withValidators(ResponseEntity.ok(), CustomerETags.lastModified(customerDto)).body(customerDto);
+    }
+
+    @Timed(value = "lookupCustomers.time", description = "Time taken to look up customers by a list of ids")
+    @PostMapping(path = "/customers/lookup",
+            consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = {MediaType.APPLICATION_JSON_VALUE, APPLICATION_SMILE_VALUE})
+    public ResponseEntity<List<CustomerLookupDto>> lookupCustomers(@RequestBody List<Long> ids) {
+        return new ResponseEntity<>(customerLookupService.lookupCustomers(ids), HttpStatus.OK);
     }
 
     @Timed(value = "searchCustomerByName.time", description = "Time taken to search customer by name")
     @PostMapping(path = "/searchByName",
             consumes = MediaType.APPLICATION_JSON_VALUE,
-            produces = MediaType.APPLICATION_JSON_VALUE)
+            produces = {MediaType.APPLICATION_JSON_VALUE, APPLICATION_SMILE_VALUE})
     public ResponseEntity<List<CustomerDto>> searchCustomerByName(@RequestBody CustomerNameDto customerNameDto) {
         return new ResponseEntity<>(customerService.searchCustomerByName(customerNameDto), HttpStatus.OK);
     }
 
+    @Timed(value = "searchCustomerByNamePage.time", description = "Time taken to search a page of customers by name prefix")
+    @PostMapping(path = "/searchByName/page",
+            consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = {MediaType.APPLICATION_JSON_VALUE, APPLICATION_SMILE_VALUE})
+    public ResponseEntity<CustomerPageDto> searchCustomerByNamePage(@RequestBody CustomerNameDto customerNameDto) {
+        return new ResponseEntity<>(customerService.searchCustomerByNamePage(customerNameDto), HttpStatus.OK);
+    }
+
+    @Timed(value = "typeaheadCustomers.time", description = "Time taken to fuzzy search customer names")
+    @GetMapping(path = "/customers/typeahead", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<CustomerNameMatchDto>> typeaheadCustomers(@RequestParam String q,
+                                                                         @RequestParam(required = false) Integer limit) {
+        return new ResponseEntity<>(customerNameIndex.search(q, limit), HttpStatus.OK);
+    }
+
     @Timed(value = "getAllCustomers.time", description = "Time taken to search all the customers present")
     @GetMapping("/customers")
-    public ResponseEntity<List<CustomerDto>> getAllCustomers() {
+    public ResponseEntity<List<CustomerDto>> getAllCustomers(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (ifNoneMatch != null) {
+            CustomerETags.ListTag listTag = new CustomerETags.ListTag();
+            customerService.forEachLastModified(listTag);
+            if (CustomerETags.matchesAny(ifNoneMatch, listTag.eTag())) {
+                return CustomerETags.withValidators(ResponseEntity.status(HttpStatus.NOT_MODIFIED), listTag).build();
+            }
+        }
         List<CustomerDto> customers = customerService.getCustomers();
         if (customers.isEmpty()) {
             return new ResponseEntity<>(Collections.EMPTY_LIST, HttpStatus.OK);
         }
-        return new ResponseEntity<>(customers, HttpStatus.OK);
+        return CustomerETags.withValidators(ResponseEntity.ok(), customers).body(customers);
+    }
+
+    @Timed(value = "getCustomersPage.time", description = "Time taken to fetch a page of customers")
+    @GetMapping(path = "/customers/page", produces = {MediaType.APPLICATION_JSON_VALUE, APPLICATION_SMILE_VALUE})
+    public ResponseEntity<CustomerPageDto> getCustomersPage(@RequestParam(required = false) Long after,
+                                                            @RequestParam(required = false) Integer limit) {
+        return new ResponseEntity<>(customerService.getCustomersPage(after, limit), HttpStatus.OK);
+    }
+
+    @Timed(value = "customerChanges.time", description = "Time taken to read the customer change feed")
+    @GetMapping(path = "/customers/changes", produces = MediaType.APPLICATION_JSON_VALUE)
+    public DeferredResult<CustomerChangePageDto> customerChanges(@RequestParam(defaultValue = "0") long after,
+                                                                 @RequestParam(required = false) Integer limit,
+                                                                 @RequestParam(required = false) Long waitMs) {
+        return customerChangeFeed.changesAfter(after, limit, waitMs);
+    }
+
+    @Timed(value = "streamCustomers.time", description = "Time taken to stream all the customers present")
+    @GetMapping(path = "/customers/stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamCustomers() {
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.writeStartArray();
+                customerService.streamCustomers(customerDto -> writeCustomer(generator, customerDto));
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    @Timed(value = "streamCustomersNdjson.time", description = "Time taken to stream all the customers present as ndjson")
+    @GetMapping(path = "/customers/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamCustomersNdjson() {
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                customerService.streamCustomers(customerDto -> {
+                    writeCustomer(generator, customerDto);
+                    try {
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    private static void writeCustomer(JsonGenerator generator, CustomerDto customerDto) {
+        try {
+            generator.writeObject(customerDto);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 }
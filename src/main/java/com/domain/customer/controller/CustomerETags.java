@@ -0,0 +1,161 @@
+package com.domain.customer.controller;
+
+import com.domain.customer.dto.CustomerDto;
+import com.domain.customer.entity.Customer;
+import com.domain.customer.store.CustomerStore;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Validators for customer responses. The entity tag of a customer is its {@link Customer#lastModified()} in
+ * epoch microseconds, so it can be compared with the update times in the database without loading the customer.
+ * Responses must be revalidated, caches send the tag back in {@code If-None-Match}. The tags are weak: JSON and
+ * Smile, gzip and identity bodies of one version share a tag, so responses vary by {@code Accept}, and Tomcat
+ * still compresses them.
+ */
+final class CustomerETags {
+    private static final String WEAK_PREFIX = "W/";
+    private static final String ANY = "*";
+    private static final int LIST_TAG_BYTES = 16;
+
+    private CustomerETags() {
+    }
+
+    static String eTag(LocalDateTime lastModified) {
+        return weak(Long.toHexString(epochMicros(lastModified)));
+    }
+
+    private static long epochMicros(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + dateTime.getNano() / 1000;
+    }
+
+    static LocalDateTime lastModified(CustomerDto customerDto) {
+        return Customer.lastModified(customerDto.getUpdateTime(),
+                customerDto.getAddressDto() == null ? null : customerDto.getAddressDto().getUpdateTime());
+    }
+
+    static ResponseEntity.BodyBuilder withValidators(ResponseEntity.BodyBuilder builder, LocalDateTime lastModified) {
+        if (lastModified == null) {
+            return builder;
+        }
+        return builder.eTag(eTag(lastModified))
+                .lastModified(lastModified.atZone(ZoneId.systemDefault()).toInstant())
+                .cacheControl(CacheControl.noCache())
+                .varyBy(HttpHeaders.ACCEPT);
+    }
+
+    static ResponseEntity.BodyBuilder withValidators(ResponseEntity.BodyBuilder builder, List<CustomerDto> customers) {
+        ListTag listTag = new ListTag();
+        customers.stream()
+                .sorted(Comparator.comparing(CustomerDto::getId, Comparator.nullsFirst(Comparator.naturalOrder())))
+                .forEach(customerDto -> listTag.visit(customerDto.getId() == null ? 0 : customerDto.getId(),
+                        lastModified(customerDto)));
+        return withValidators(builder, listTag);
+    }
+
+    static ResponseEntity.BodyBuilder withValidators(ResponseEntity.BodyBuilder builder, ListTag listTag) {
+        builder.eTag(listTag.eTag()).cacheControl(CacheControl.noCache()).varyBy(HttpHeaders.ACCEPT);
+        LocalDateTime latest = listTag.lastModified();
+        return latest == null ? builder : builder.lastModified(latest.atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    /**
+     * A list changes when a customer is added or modified, so its tag is the first 128 bits of a SHA-256 over
+     * every id and its last modification in epoch microseconds, in id order. A weaker hash could give two versions
+     * of the list the same tag, and a client would be told its outdated copy is current. Fed from
+     * {@link CustomerStore#forEachLastModifiedOrderById} it gives the tag of the list without loading it.
+     */
+    static final class ListTag implements CustomerStore.LastModifiedVisitor {
+        private final MessageDigest digest = sha256();
+        private final ByteBuffer entry = ByteBuffer.allocate(2 * Long.BYTES);
+        private LocalDateTime latest;
+        private String eTag;
+
+        @Override
+        public void visit(long id, LocalDateTime lastModified) {
+            entry.clear();
+            entry.putLong(id).putLong(lastModified == null ? Long.MIN_VALUE : epochMicros(lastModified));
+            digest.update(entry.array());
+            if (lastModified != null && (latest == null || lastModified.isAfter(latest))) {
+                latest = lastModified;
+            }
+        }
+
+        String eTag() {
+            if (eTag == null) {
+                eTag = weak(HexFormat.of().formatHex(digest.digest(), 0, LIST_TAG_BYTES));
+            }
+            return eTag;
+        }
+
+        LocalDateTime lastModified() {
+            return latest;
+        }
+    }
+
+    /**
+     * Weak comparison, as {@code If-None-Match} requires.
+     */
+    static boolean matchesAny(String header, String eTag) {
+        String opaqueTag = opaqueTag(eTag);
+        for (String candidate : header.split(",")) {
+            String tag = candidate.trim();
+            if (ANY.equals(tag) || opaqueTag.equals(opaqueTag(tag))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Last modifications named by an {@code If-Match} header, or null for {@code *}. Our own tags are weak but
+     * name an exact version, so they are accepted with or without the weak prefix; foreign tags never match.
+     */
+    static List<LocalDateTime> parseIfMatch(String header) {
+        List<LocalDateTime> lastModified = new ArrayList<>();
+        for (String candidate : header.split(",")) {
+            String tag = opaqueTag(candidate.trim());
+            if (ANY.equals(tag)) {
+                return null;
+            }
+            if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+                try {
+                    long micros = Long.parseUnsignedLong(tag.substring(1, tag.length() - 1), 16);
+                    lastModified.add(LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000),
+                            (int) Math.floorMod(micros, 1_000_000) * 1000, ZoneOffset.UTC));
+                } catch (NumberFormatException e) {
+                    // not one of our tags, cannot match
+                }
+            }
+        }
+        return lastModified;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is required of every Java platform", e);
+        }
+    }
+
+    private static String weak(String value) {
+        return WEAK_PREFIX + "\"" + value + "\"";
+    }
+
+    private static String opaqueTag(String tag) {
+        return tag.startsWith(WEAK_PREFIX) ? tag.substring(WEAK_PREFIX.length()) : tag;
+    }
+}
@@ -1,10 +1,12 @@
 package com.domain.customer.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import lombok.Builder;
 import lombok.Data;
 
 import javax.validation.constraints.NotBlank;
+import java.time.LocalDateTime;
 
 @Builder
 @Data
@@ -20,4 +22,6 @@ public class AddressDto {
     private String city;
     @NotBlank
     private String country;
+    @JsonIgnore
+    private LocalDateTime updateTime;
 }
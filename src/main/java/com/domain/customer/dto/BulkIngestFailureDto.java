@@ -0,0 +1,13 @@
+package com.domain.customer.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Builder;
+import lombok.Data;
+
+@Builder
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class BulkIngestFailureDto {
+    private long index;
+    private String reason;
+}
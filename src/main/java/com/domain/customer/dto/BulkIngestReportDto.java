@@ -0,0 +1,16 @@
+package com.domain.customer.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Builder
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class BulkIngestReportDto {
+    private long received;
+    private long inserted;
+    private List<BulkIngestFailureDto> failures;
+}
@@ -0,0 +1,17 @@
+package com.domain.customer.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Builder
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class CustomerChangeDto {
+    private Long sequence;
+    private Long customerId;
+    private CustomerChangeType type;
+    private LocalDateTime changeTime;
+}
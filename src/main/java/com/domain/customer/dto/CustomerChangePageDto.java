@@ -0,0 +1,19 @@
+package com.domain.customer.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * {@code nextCursor} is the sequence of the last change in the page, or the requested one if the page is empty;
+ * pass it as {@code after} to resume.
+ */
+@Builder
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class CustomerChangePageDto {
+    private List<CustomerChangeDto> changes;
+    private Long nextCursor;
+}
@@ -0,0 +1,7 @@
+package com.domain.customer.dto;
+
+public enum CustomerChangeType {
+    CREATED,
+    SAVED,
+    ADDRESS_UPDATED
+}
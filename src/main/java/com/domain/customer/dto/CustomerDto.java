@@ -1,5 +1,6 @@
 package com.domain.customer.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import lombok.Builder;
@@ -8,6 +9,7 @@ import lombok.Data;
 import javax.validation.Valid;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
+import java.time.LocalDateTime;
 
 @Builder
 @Data
@@ -24,4 +26,6 @@ public class CustomerDto {
     @Valid
     private AddressDto addressDto;
     private String message;
+    @JsonIgnore
+    private LocalDateTime updateTime;
 }
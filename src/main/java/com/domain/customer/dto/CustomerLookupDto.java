@@ -0,0 +1,16 @@
+package com.domain.customer.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+import lombok.Data;
+
+@Builder
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class CustomerLookupDto {
+    private Long id;
+    private boolean found;
+    private CustomerDto customer;
+}
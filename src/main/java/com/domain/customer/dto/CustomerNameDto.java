@@ -12,4 +12,8 @@ import lombok.Data;
 public class CustomerNameDto {
     private String firstName;
     private String lastName;
+    private NameMatchMode matchMode;
+    private String afterName;
+    private Long after;
+    private Integer limit;
 }
@@ -0,0 +1,15 @@
+package com.domain.customer.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Builder;
+import lombok.Data;
+
+@Builder
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class CustomerNameMatchDto {
+    private Long id;
+    private String firstName;
+    private String lastName;
+    private double score;
+}
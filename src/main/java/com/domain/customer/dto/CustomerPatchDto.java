@@ -5,7 +5,6 @@ import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import lombok.Builder;
 import lombok.Data;
 
-import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
 
 @Builder
@@ -15,6 +14,6 @@ import javax.validation.constraints.NotNull;
 public class CustomerPatchDto {
     @NotNull
     private Long customerId;
-    @Valid
+    @NotNull
     private AddressDto addressDto;
 }
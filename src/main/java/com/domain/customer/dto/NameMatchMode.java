@@ -0,0 +1,7 @@
+package com.domain.customer.dto;
+
+public enum NameMatchMode {
+    EXACT,
+    IGNORE_CASE,
+    PREFIX
+}
@@ -7,16 +7,27 @@ import org.hibernate.annotations.UpdateTimestamp;
 
 import javax.persistence.*;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Locale;
 
 @Entity
 @Getter
 @Setter
+@Table(indexes = {
+        @Index(name = "idx_customer_first_name", columnList = "firstName"),
+        @Index(name = "idx_customer_last_name", columnList = "lastName"),
+        @Index(name = "idx_customer_first_name_normalized", columnList = "firstNameNormalized, id"),
+        @Index(name = "idx_customer_last_name_normalized", columnList = "lastNameNormalized, id")
+})
 public class Customer {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "customer_seq")
+    @SequenceGenerator(name = "customer_seq", sequenceName = "customer_seq", allocationSize = 50)
     private Long id;
     private String firstName;
     private String lastName;
+    private String firstNameNormalized;
+    private String lastNameNormalized;
     private Integer age;
     @OneToOne(cascade = CascadeType.ALL)
     @JoinColumn(name = "addressId")
@@ -25,4 +36,29 @@ public class Customer {
     private LocalDateTime creationTime;
     @UpdateTimestamp
     private LocalDateTime updateTime;
+
+    @PrePersist
+    @PreUpdate
+    void normalizeNames() {
+        firstNameNormalized = normalizeName(firstName);
+        lastNameNormalized = normalizeName(lastName);
+    }
+
+    public static String normalizeName(String name) {
+        return name == null ? null : name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    public LocalDateTime lastModified() {
+        return lastModified(updateTime, address == null ? null : address.getUpdateTime());
+    }
+
+    /**
+     * Latest update of a customer or its address, truncated to the microsecond precision of the update_time
+     * columns so that a value read back from the database compares equal to the one written.
+     */
+    public static LocalDateTime lastModified(LocalDateTime customerUpdateTime, LocalDateTime addressUpdateTime) {
+        LocalDateTime lastModified = customerUpdateTime == null || (addressUpdateTime != null
+                && addressUpdateTime.isAfter(customerUpdateTime)) ? addressUpdateTime : customerUpdateTime;
+        return lastModified == null ? null : lastModified.truncatedTo(ChronoUnit.MICROS);
+    }
 }
@@ -0,0 +1,16 @@
+package com.domain.customer.exception;
+
+/**
+ * Thrown when a change feed consumer resumes from a sequence whose following changes were already pruned.
+ * The consumer has to resynchronize from the customer pages before following the feed again.
+ */
+public class ChangeFeedExpiredException extends RuntimeException {
+
+    public ChangeFeedExpiredException() {
+        this(null);
+    }
+
+    public ChangeFeedExpiredException(String msg) {
+        super(msg, null, false, false);
+    }
+}
@@ -0,0 +1,15 @@
+package com.domain.customer.exception;
+
+/**
+ * Thrown when the change feed is read on a node whose customer store does not write the outbox.
+ */
+public class ChangeFeedUnavailableException extends RuntimeException {
+
+    public ChangeFeedUnavailableException() {
+        this(null);
+    }
+
+    public ChangeFeedUnavailableException(String msg) {
+        super(msg, null, false, false);
+    }
+}
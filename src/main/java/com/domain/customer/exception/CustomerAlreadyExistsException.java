@@ -1,15 +1,17 @@
 package com.domain.customer.exception;
 
-import lombok.NoArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
-
-@Slf4j
-@NoArgsConstructor
+/**
+ * Thrown when a customer is added with an id that is already taken. Stackless, like
+ * {@link NoSuchCustomerExistsException}.
+ */
 public class CustomerAlreadyExistsException extends RuntimeException {
-    private String message;
+    public static final String MESSAGE = "Customer with this id already exists!!!";
+
+    public CustomerAlreadyExistsException() {
+        this(MESSAGE);
+    }
 
     public CustomerAlreadyExistsException(String msg) {
-        super(msg);
-        this.message = msg;
+        super(msg, null, false, false);
     }
 }
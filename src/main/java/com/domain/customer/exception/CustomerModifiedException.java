@@ -0,0 +1,16 @@
+package com.domain.customer.exception;
+
+/**
+ * Thrown when a conditional update finds that the customer changed since the entity tag the client sent.
+ * Like the other expected outcomes it carries no stack trace.
+ */
+public class CustomerModifiedException extends RuntimeException {
+
+    public CustomerModifiedException() {
+        this(null);
+    }
+
+    public CustomerModifiedException(String msg) {
+        super(msg, null, false, false);
+    }
+}
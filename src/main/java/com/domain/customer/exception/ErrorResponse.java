@@ -1,17 +1,18 @@
 package com.domain.customer.exception;
 
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Value;
 
 import java.time.LocalDateTime;
 
-@Data
-@NoArgsConstructor
-@AllArgsConstructor
+/**
+ * Immutable, as the not-found and conflict bodies are one instance shared by every response.
+ */
+@Value
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class ErrorResponse {
-    private int statusCode;
-    private LocalDateTime timestamp;
-    private String message;
-    private String description;
+    int statusCode;
+    LocalDateTime timestamp;
+    String message;
+    String description;
 }
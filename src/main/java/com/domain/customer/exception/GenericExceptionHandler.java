@@ -1,12 +1,12 @@
 package com.domain.customer.exception;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
-import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.context.request.WebRequest;
 
@@ -15,27 +15,61 @@ import java.time.LocalDateTime;
 @Slf4j
 @ControllerAdvice
 public class GenericExceptionHandler {
+    /**
+     * Not-found and conflict are the frequent expected outcomes, their bodies are allocated once and shared by
+     * every response: no timestamp (the Date header has it) and no description (it is the client's own request).
+     */
+    private static final ResponseEntity<ErrorResponse> NOT_FOUND = fixedResponse(HttpStatus.NOT_FOUND,
+            NoSuchCustomerExistsException.MESSAGE);
+    private static final ResponseEntity<ErrorResponse> CONFLICT = fixedResponse(HttpStatus.CONFLICT,
+            CustomerAlreadyExistsException.MESSAGE);
 
     @ExceptionHandler(value
             = NoSuchCustomerExistsException.class)
-    public @ResponseBody ErrorResponse handleException(NoSuchCustomerExistsException ex,
-                                                       WebRequest webRequest) {
-        return new ErrorResponse(HttpStatus.NOT_FOUND.value(),
-                LocalDateTime.now(),
-                ex.getMessage(),
-                webRequest.getDescription(true));
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    public ResponseEntity<ErrorResponse> handleException() {
+        return NOT_FOUND;
     }
 
     @ExceptionHandler(value
             = CustomerAlreadyExistsException.class)
     @ResponseStatus(HttpStatus.CONFLICT)
-    public ResponseEntity<ErrorResponse> handleCustomerAlreadyExistsException(
-            CustomerAlreadyExistsException ex, WebRequest webRequest) {
-        ErrorResponse errorResponse = new ErrorResponse(HttpStatus.CONFLICT.value(),
-                LocalDateTime.now(),
-                ex.getMessage(),
-                webRequest.getDescription(true));
-        return new ResponseEntity<>(errorResponse, HttpStatus.CONFLICT);
+    public ResponseEntity<ErrorResponse> handleCustomerAlreadyExistsException() {
+        return CONFLICT;
+    }
+
+    @ExceptionHandler(value
+            = CustomerModifiedException.class)
+    @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+    public ResponseEntity<ErrorResponse> handleCustomerModifiedException(
+            CustomerModifiedException ex, WebRequest webRequest) {
+        return errorResponse(HttpStatus.PRECONDITION_FAILED, ex.getMessage(), webRequest);
+    }
+
+    @ExceptionHandler(value
+            = ChangeFeedExpiredException.class)
+    @ResponseStatus(HttpStatus.GONE)
+    public ResponseEntity<ErrorResponse> handleChangeFeedExpiredException(
+            ChangeFeedExpiredException ex, WebRequest webRequest) {
+        return errorResponse(HttpStatus.GONE, ex.getMessage(), webRequest);
+    }
+
+    @ExceptionHandler(value
+            = ChangeFeedUnavailableException.class)
+    @ResponseStatus(HttpStatus.NOT_IMPLEMENTED)
+    public ResponseEntity<ErrorResponse> handleChangeFeedUnavailableException(
+            ChangeFeedUnavailableException ex, WebRequest webRequest) {
+        return errorResponse(HttpStatus.NOT_IMPLEMENTED, ex.getMessage(), webRequest);
+    }
+
+    @ExceptionHandler(value
+            = TooManyRequestsException.class)
+    @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+    public ResponseEntity<ErrorResponse> handleTooManyRequestsException(
+            TooManyRequestsException ex, WebRequest webRequest) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(ex.getRetryAfterSeconds()))
+                .body(errorResponse(HttpStatus.TOO_MANY_REQUESTS, ex.getMessage(), webRequest).getBody());
     }
 
     @ExceptionHandler(value
@@ -43,11 +77,7 @@ public class GenericExceptionHandler {
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ResponseEntity<ErrorResponse> handleInvalidRequest(
             InvalidRequestException ex, WebRequest webRequest) {
-        ErrorResponse errorResponse = new ErrorResponse(HttpStatus.BAD_REQUEST.value(),
-                LocalDateTime.now(),
-                ex.getMessage(),
-                webRequest.getDescription(true));
-        return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+        return errorResponse(HttpStatus.BAD_REQUEST, ex.getMessage(), webRequest);
     }
 
     @ExceptionHandler(value
@@ -71,4 +101,17 @@ public class GenericExceptionHandler {
         log.error("Exception occured: {} ", message);
         return new ResponseEntity<>(message, HttpStatus.INTERNAL_SERVER_ERROR);
     }
+
+    private static ResponseEntity<ErrorResponse> fixedResponse(HttpStatus status, String message) {
+        return new ResponseEntity<>(new ErrorResponse(status.value(), null, message, null), status);
+    }
+
+    /**
+     * Body for the other expected outcomes. The description is only the request uri: client and session details are
+     * not looked up for every rejected request.
+     */
+    static ResponseEntity<ErrorResponse> errorResponse(HttpStatus status, String message, WebRequest webRequest) {
+        return new ResponseEntity<>(new ErrorResponse(status.value(), LocalDateTime.now(), message,
+                webRequest.getDescription(false)), status);
+    }
 }
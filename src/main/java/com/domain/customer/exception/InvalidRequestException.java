@@ -1,16 +1,16 @@
 package com.domain.customer.exception;
 
-import lombok.NoArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
-
-@Slf4j
-@NoArgsConstructor
+/**
+ * Validation failure raised by the service. Only its message ends up in the error response, so no stack trace is
+ * captured.
+ */
 public class InvalidRequestException extends RuntimeException {
 
-    private String message;
+    public InvalidRequestException() {
+        this(null);
+    }
 
-    public InvalidRequestException(String msg){
-        super(msg);
-        this.message = msg;
+    public InvalidRequestException(String msg) {
+        super(msg, null, false, false);
     }
 }
@@ -1,12 +1,18 @@
 package com.domain.customer.exception;
 
-import lombok.NoArgsConstructor;
-
-@NoArgsConstructor
+/**
+ * Thrown for lookups and updates of unknown customer ids. This is an expected outcome that is mapped to an error
+ * response by {@link GenericExceptionHandler}, so it is created without a stack trace or suppressed exceptions.
+ * The message is fixed, the id or names looked up are in the client's request already.
+ */
 public class NoSuchCustomerExistsException extends RuntimeException {
-    private String message;
+    public static final String MESSAGE = "No Customer present";
+
+    public NoSuchCustomerExistsException() {
+        this(MESSAGE);
+    }
+
     public NoSuchCustomerExistsException(String msg) {
-        super(msg);
-        this.message = msg;
+        super(msg, null, false, false);
     }
 }
@@ -0,0 +1,18 @@
+package com.domain.customer.exception;
+
+/**
+ * Thrown by admission control when an endpoint is at its concurrency limit or a client is over its rate.
+ * Shed requests are answered 429 with {@code Retry-After}, so the exception carries no stack trace.
+ */
+public class TooManyRequestsException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public TooManyRequestsException(String msg, long retryAfterSeconds) {
+        super(msg, null, false, false);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,7 @@
+package com.domain.customer.repository;
+
+import com.domain.customer.dto.AddressDto;
+
+public interface AddressRepositoryCustom {
+    int updateAddressOfCustomer(Long customerId, AddressDto changes);
+}
@@ -0,0 +1,49 @@
+package com.domain.customer.repository;
+
+import com.domain.customer.dto.AddressDto;
+import com.domain.customer.entity.Address;
+import com.domain.customer.entity.Customer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Subquery;
+import java.time.LocalDateTime;
+
+@RequiredArgsConstructor
+public class AddressRepositoryImpl implements AddressRepositoryCustom {
+    private final EntityManager entityManager;
+
+    /**
+     * Writes only the non-null fields of {@code changes} to the customer's address in a single
+     * update statement, resolving the address through the customer id instead of loading the customer.
+     */
+    @Override
+    @Transactional
+    public int updateAddressOfCustomer(Long customerId, AddressDto changes) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<Address> update = criteriaBuilder.createCriteriaUpdate(Address.class);
+        Root<Address> address = update.from(Address.class);
+        setIfPresent(update, "addressLine1", changes.getAddressLine1());
+        setIfPresent(update, "addressLine2", changes.getAddressLine2());
+        setIfPresent(update, "postalCode", changes.getPostalCode());
+        setIfPresent(update, "city", changes.getCity());
+        setIfPresent(update, "country", changes.getCountry());
+        update.set("updateTime", LocalDateTime.now());
+        Subquery<Long> customerAddress = update.subquery(Long.class);
+        Root<Customer> customer = customerAddress.from(Customer.class);
+        customerAddress.select(customer.get("address").get("addressId"))
+                .where(criteriaBuilder.equal(customer.get("id"), customerId));
+        update.where(address.get("addressId").in(customerAddress));
+        return entityManager.createQuery(update).executeUpdate();
+    }
+
+    private static void setIfPresent(CriteriaUpdate<Address> update, String attribute, String value) {
+        if (value != null) {
+            update.set(attribute, value);
+        }
+    }
+}
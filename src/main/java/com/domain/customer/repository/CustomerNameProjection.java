@@ -0,0 +1,7 @@
+package com.domain.customer.repository;
+
+public interface CustomerNameProjection {
+    Long getId();
+    String getFirstName();
+    String getLastName();
+}
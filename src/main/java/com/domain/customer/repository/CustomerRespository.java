@@ -1,14 +1,90 @@
 package com.domain.customer.repository;
 
 import com.domain.customer.entity.Customer;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 @Repository
-public interface CustomerRespository extends JpaRepository<Customer, Long> {
+public interface CustomerRespository extends JpaRepository<Customer, Long>, CustomerRespositoryCustom {
+    @Override
+    @EntityGraph(attributePaths = "address")
+    List<Customer> findAll();
+
+    @EntityGraph(attributePaths = "address")
+    List<Customer> findByIdIn(Collection<Long> ids);
+
+    @Query("select c.updateTime as customerUpdateTime, a.updateTime as addressUpdateTime " +
+            "from Customer c left join c.address a where c.id = :id")
+    Optional<CustomerUpdateTimesProjection> findUpdateTimesById(@Param("id") Long id);
+
+    @EntityGraph(attributePaths = "address")
     Optional<List<Customer>> findCustomerByFirstNameOrLastName(String firstName, String lastName);
+
+    @EntityGraph(attributePaths = "address")
     Optional<List<Customer>> findCustomerByFirstNameAndLastName(String firstName, String lastName);
+
+    @EntityGraph(attributePaths = "address")
+    List<Customer> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    @EntityGraph(attributePaths = "address")
+    @Query("select c from Customer c where c.firstNameNormalized like :firstName escape '!' " +
+            "and c.lastNameNormalized like :lastName escape '!' " +
+            "and c.firstNameNormalized >= :afterName and (c.firstNameNormalized > :afterName or c.id > :afterId) " +
+            "order by c.firstNameNormalized, c.id")
+    List<Customer> searchByNormalizedNames(@Param("firstName") String firstNamePattern,
+                                           @Param("lastName") String lastNamePattern,
+                                           @Param("afterName") String afterName,
+                                           @Param("afterId") Long afterId, Pageable pageable);
+
+    @EntityGraph(attributePaths = "address")
+    @Query("select c from Customer c where c.firstNameNormalized like :firstName escape '!' " +
+            "and c.firstNameNormalized >= :afterName and (c.firstNameNormalized > :afterName or c.id > :afterId) " +
+            "order by c.firstNameNormalized, c.id")
+    List<Customer> searchByNormalizedFirstName(@Param("firstName") String firstNamePattern,
+                                               @Param("afterName") String afterName,
+                                               @Param("afterId") Long afterId, Pageable pageable);
+
+    @EntityGraph(attributePaths = "address")
+    @Query("select c from Customer c where c.lastNameNormalized like :lastName escape '!' " +
+            "and c.lastNameNormalized >= :afterName and (c.lastNameNormalized > :afterName or c.id > :afterId) " +
+            "order by c.lastNameNormalized, c.id")
+    List<Customer> searchByNormalizedLastName(@Param("lastName") String lastNamePattern,
+                                              @Param("afterName") String afterName,
+                                              @Param("afterId") Long afterId, Pageable pageable);
+
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    @Query("select c from Customer c left join fetch c.address order by c.id")
+    Stream<Customer> streamAllOrderById();
+
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    @Query("select c.id as id, c.firstName as firstName, c.lastName as lastName from Customer c order by c.id")
+    Stream<CustomerNameProjection> streamNamesOrderById();
+
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    @Query("select c.id as id, c.updateTime as customerUpdateTime, a.updateTime as addressUpdateTime " +
+            "from Customer c left join c.address a order by c.id")
+    Stream<CustomerUpdateTimesProjection> streamUpdateTimesOrderById();
 }
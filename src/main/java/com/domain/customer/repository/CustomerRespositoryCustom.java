@@ -0,0 +1,7 @@
+package com.domain.customer.repository;
+
+import com.domain.customer.dto.CustomerDto;
+
+public interface CustomerRespositoryCustom {
+    void upsert(CustomerDto customerDto);
+}
@@ -0,0 +1,162 @@
+package com.domain.customer.repository;
+
+import com.domain.customer.dto.AddressDto;
+import com.domain.customer.dto.CustomerDto;
+import com.domain.customer.entity.Customer;
+import com.domain.customer.exception.InvalidRequestException;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.dialect.PostgreSQL81Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.jpa.TypedParameterValue;
+import org.hibernate.type.StandardBasicTypes;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.time.LocalDateTime;
+
+@RequiredArgsConstructor
+public class CustomerRespositoryImpl implements CustomerRespositoryCustom {
+    static final String MERGE_ADDRESS_SQL = "merge into address (address_id, address_line1, address_line2, " +
+            "postal_code, city, country, creation_time, update_time) key (address_id) values (" +
+            "coalesce((select c.address_id from customer c where c.id = :id), next value for address_seq), " +
+            ":addressLine1, :addressLine2, :postalCode, :city, :country, " +
+            "coalesce((select a.creation_time from address a join customer c on c.address_id = a.address_id " +
+            "where c.id = :id), :now), :now)";
+    static final String MERGE_CUSTOMER_SQL = "merge into customer (id, first_name, first_name_normalized, " +
+            "last_name, last_name_normalized, age, address_id, creation_time, update_time) key (id) values (" +
+            ":id, :firstName, :firstNameNormalized, :lastName, :lastNameNormalized, :age, " +
+            "coalesce((select c.address_id from customer c where c.id = :id), current value for address_seq), " +
+            "coalesce((select c.creation_time from customer c where c.id = :id), :now), :now)";
+    static final String UPSERT_POSTGRES_SQL = "with upserted_address as (insert into address (address_id, " +
+            "address_line1, address_line2, postal_code, city, country, creation_time, update_time) values (" +
+            "coalesce((select c.address_id from customer c where c.id = :id), nextval('address_seq')), " +
+            ":addressLine1, :addressLine2, :postalCode, :city, :country, :now, :now) " +
+            "on conflict (address_id) do update set address_line1 = excluded.address_line1, " +
+            "address_line2 = excluded.address_line2, postal_code = excluded.postal_code, city = excluded.city, " +
+            "country = excluded.country, update_time = excluded.update_time returning address_id) " +
+            "insert into customer (id, first_name, first_name_normalized, last_name, last_name_normalized, age, " +
+            "address_id, creation_time, update_time) select :id, :firstName, :firstNameNormalized, :lastName, " +
+            ":lastNameNormalized, :age, address_id, :now, :now from upserted_address " +
+            "on conflict (id) do update set first_name = excluded.first_name, " +
+            "first_name_normalized = excluded.first_name_normalized, last_name = excluded.last_name, " +
+            "last_name_normalized = excluded.last_name_normalized, age = excluded.age, " +
+            "address_id = excluded.address_id, update_time = excluded.update_time";
+    static final String UPDATE_CUSTOMER_SQL = "update customer set first_name = :firstName, " +
+            "first_name_normalized = :firstNameNormalized, last_name = :lastName, " +
+            "last_name_normalized = :lastNameNormalized, age = :age, update_time = :now where id = :id";
+    static final String UPDATE_ADDRESS_SQL = "update address set address_line1 = :addressLine1, " +
+            "address_line2 = :addressLine2, postal_code = :postalCode, city = :city, country = :country, " +
+            "update_time = :now where address_id = (select c.address_id from customer c where c.id = :id)";
+    static final String REPLACE_POSTGRES_SQL = "with updated_customer as (" + UPDATE_CUSTOMER_SQL +
+            " returning address_id) update address set address_line1 = :addressLine1, " +
+            "address_line2 = :addressLine2, postal_code = :postalCode, city = :city, country = :country, " +
+            "update_time = :now from updated_customer where address.address_id = updated_customer.address_id";
+    static final String LOCK_CUSTOMER_IDS_SQL = "select id from customer_id_lock where id = 1 for update";
+    static final String CUSTOMER_EXISTS_SQL = "select count(*) from customer where id = :id";
+    static final String LAST_CUSTOMER_ID_H2_SQL = "select base_value - increment from information_schema.sequences " +
+            "where sequence_schema = 'PUBLIC' and sequence_name = 'CUSTOMER_SEQ'";
+    static final String LAST_CUSTOMER_ID_POSTGRES_SQL = "select case when is_called then last_value " +
+            "else last_value - 1 end from customer_seq";
+    static final String RESERVE_CUSTOMER_ID_POSTGRES_SQL = "select setval('customer_seq', " +
+            "greatest(:id, (select last_value from customer_seq)))";
+    static final int CUSTOMER_ID_BLOCK_SIZE = 50;
+    private final EntityManager entityManager;
+
+    /**
+     * Idempotent create-or-replace keyed by customer id. PostgreSQL does it in one INSERT ... ON CONFLICT whose
+     * address upsert is a data-modifying CTE; H2 has no such CTEs, so there the address is merged first and the
+     * customer merge picks up its id, which keeps the customer's foreign key pointing at an existing address.
+     * Parameters are typed because PostgreSQL cannot infer the type of a null bind value. Replacing an existing
+     * customer is tried first, only a customer that is not there yet or has no address goes through the merge.
+     */
+    @Override
+    @Transactional
+    public void upsert(CustomerDto customerDto) {
+        boolean postgres = isPostgres();
+        LocalDateTime now = LocalDateTime.now();
+        if (replace(customerDto, now, postgres)) {
+            return;
+        }
+        reserveId(customerDto.getId(), postgres);
+        if (postgres) {
+            Query upsert = entityManager.createNativeQuery(UPSERT_POSTGRES_SQL);
+            bindCustomer(bindAddress(upsert, customerDto, now), customerDto, now).executeUpdate();
+        } else {
+            bindAddress(entityManager.createNativeQuery(MERGE_ADDRESS_SQL), customerDto, now).executeUpdate();
+            bindCustomer(entityManager.createNativeQuery(MERGE_CUSTOMER_SQL), customerDto, now).executeUpdate();
+        }
+    }
+
+    /**
+     * Updates the customer and its address in place, one statement on PostgreSQL and two on H2, which cannot update
+     * two tables in one statement. An existing id needs neither the id lock nor the sequence: it is below the last
+     * generated id or was reserved when it was created.
+     */
+    private boolean replace(CustomerDto customerDto, LocalDateTime now, boolean postgres) {
+        if (postgres) {
+            Query replace = entityManager.createNativeQuery(REPLACE_POSTGRES_SQL);
+            return bindCustomer(bindAddress(replace, customerDto, now), customerDto, now).executeUpdate() > 0;
+        }
+        return bindCustomer(entityManager.createNativeQuery(UPDATE_CUSTOMER_SQL), customerDto, now).executeUpdate() > 0
+                && bindAddress(entityManager.createNativeQuery(UPDATE_ADDRESS_SQL), customerDto, now).executeUpdate() > 0;
+    }
+
+    private static Query bindAddress(Query query, CustomerDto customerDto, LocalDateTime now) {
+        AddressDto addressDto = customerDto.getAddressDto();
+        return query.setParameter("id", customerDto.getId())
+                .setParameter("addressLine1", string(addressDto.getAddressLine1()))
+                .setParameter("addressLine2", string(addressDto.getAddressLine2()))
+                .setParameter("postalCode", string(addressDto.getPostalCode()))
+                .setParameter("city", string(addressDto.getCity()))
+                .setParameter("country", string(addressDto.getCountry()))
+                .setParameter("now", now);
+    }
+
+    private static Query bindCustomer(Query query, CustomerDto customerDto, LocalDateTime now) {
+        return query.setParameter("id", customerDto.getId())
+                .setParameter("firstName", string(customerDto.getFirstName()))
+                .setParameter("firstNameNormalized", string(Customer.normalizeName(customerDto.getFirstName())))
+                .setParameter("lastName", string(customerDto.getLastName()))
+                .setParameter("lastNameNormalized", string(Customer.normalizeName(customerDto.getLastName())))
+                .setParameter("age", new TypedParameterValue(StandardBasicTypes.INTEGER, customerDto.getAge()))
+                .setParameter("now", now);
+    }
+
+    /**
+     * Ids up to the last value drawn from {@code customer_seq} belong to blocks Hibernate's pooled optimizer may
+     * still hand out, so only existing customers can be replaced there. A new id above it moves the sequence
+     * past the id, generated ids then start after it. Moving the sequence is not undone on rollback and takes
+     * effect for every session at once, so upserts take the {@code customer_id_lock} row first: the sequence read
+     * under it is current, and the sequence is only ever raised.
+     */
+    private void reserveId(Long id, boolean postgres) {
+        entityManager.createNativeQuery(LOCK_CUSTOMER_IDS_SQL).getSingleResult();
+        long lastGeneratedId = ((Number) entityManager.createNativeQuery(postgres ? LAST_CUSTOMER_ID_POSTGRES_SQL
+                : LAST_CUSTOMER_ID_H2_SQL).getSingleResult()).longValue();
+        if (id <= lastGeneratedId) {
+            long existing = ((Number) entityManager.createNativeQuery(CUSTOMER_EXISTS_SQL)
+                    .setParameter("id", id).getSingleResult()).longValue();
+            if (existing == 0) {
+                throw new InvalidRequestException("Customer id " + id + " is reserved for generated ids, " +
+                        "create the customer with POST /customers!!!");
+            }
+        } else if (postgres) {
+            entityManager.createNativeQuery(RESERVE_CUSTOMER_ID_POSTGRES_SQL).setParameter("id", id).getSingleResult();
+        } else {
+            // the next value is the top of the next block of ids, above the next value read under the lock as the
+            // id is above the last one drawn; restarting does not end the transaction
+            entityManager.createNativeQuery("alter sequence customer_seq restart with " +
+                    (id + CUSTOMER_ID_BLOCK_SIZE)).executeUpdate();
+        }
+    }
+
+    private boolean isPostgres() {
+        return entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect() instanceof PostgreSQL81Dialect;
+    }
+
+    private static TypedParameterValue string(String value) {
+        return new TypedParameterValue(StandardBasicTypes.STRING, value);
+    }
+}
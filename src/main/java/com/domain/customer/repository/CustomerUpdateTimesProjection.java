@@ -0,0 +1,9 @@
+package com.domain.customer.repository;
+
+import java.time.LocalDateTime;
+
+public interface CustomerUpdateTimesProjection {
+    Long getId();
+    LocalDateTime getCustomerUpdateTime();
+    LocalDateTime getAddressUpdateTime();
+}
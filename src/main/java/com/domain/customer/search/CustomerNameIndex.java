@@ -0,0 +1,73 @@
+package com.domain.customer.search;
+
+import com.domain.customer.dto.CustomerNameMatchDto;
+import com.domain.customer.entity.Customer;
+import com.domain.customer.store.CustomerStore;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Slf4j
+@Component
+public class CustomerNameIndex {
+    static final int DEFAULT_LIMIT = 10;
+    static final int MAX_LIMIT = 100;
+    private final CustomerStore customerStore;
+    private final Timer buildTimer;
+    private final Object buildLock = new Object();
+    private volatile TrigramIndex index = new TrigramIndex();
+    private List<Customer> addedWhileBuilding = new ArrayList<>();
+
+    public CustomerNameIndex(CustomerStore customerStore, MeterRegistry meterRegistry) {
+        this.customerStore = customerStore;
+        this.buildTimer = Timer.builder("customer.name.index.build")
+                .description("Time taken to build the customer name index")
+                .register(meterRegistry);
+        Gauge.builder("customer.name.index.size", this, nameIndex -> nameIndex.index.size())
+                .description("Number of customers in the name index")
+                .register(meterRegistry);
+        Gauge.builder("customer.name.index.memory", this, nameIndex -> nameIndex.index.estimatedMemoryBytes())
+                .description("Estimated heap used by the name index")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        TrigramIndex builtIndex = new TrigramIndex();
+        buildTimer.record(() -> customerStore.forEachNameOrderById(builtIndex::add));
+        synchronized (buildLock) {
+            for (Customer customer : addedWhileBuilding) {
+                builtIndex.add(customer.getId(), customer.getFirstName(), customer.getLastName());
+            }
+            addedWhileBuilding = null;
+            index = builtIndex;
+        }
+        log.info("Customer name index built with {} customers", builtIndex.size());
+    }
+
+    public void add(Customer customer) {
+        if (customer == null || customer.getId() == null) {
+            return;
+        }
+        synchronized (buildLock) {
+            if (addedWhileBuilding != null) {
+                addedWhileBuilding.add(customer);
+                return;
+            }
+        }
+        index.add(customer.getId(), customer.getFirstName(), customer.getLastName());
+    }
+
+    public List<CustomerNameMatchDto> search(String query, Integer limit) {
+        int topK = limit == null || limit <= 0 ? DEFAULT_LIMIT : Math.min(limit, MAX_LIMIT);
+        return index.search(query, topK);
+    }
+}
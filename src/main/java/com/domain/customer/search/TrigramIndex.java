@@ -0,0 +1,505 @@
+package com.domain.customer.search;
+
+import com.domain.customer.dto.CustomerNameMatchDto;
+import com.domain.customer.entity.Customer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted trigram index over customer names. Every indexed customer gets a dense int ordinal;
+ * posting lists are growable int arrays of ordinals in ascending order, so a query is a merge of
+ * the posting lists of its trigrams. Matches are ranked by the Jaccard similarity of the trigram sets.
+ * Re-adding a customer marks its previous ordinal as removed instead of rewriting posting lists; once removed
+ * ordinals make up a quarter of the index they are compacted away and the posting lists renumbered.
+ */
+public class TrigramIndex {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final long MAP_ENTRY_OVERHEAD_BYTES = 80;
+    private static final int MIN_REMOVED_TO_COMPACT = 1024;
+    /**
+     * Names that share only a trigram or two with the query, such as a common {@code "er "} ending, are noise
+     * rather than typeahead suggestions.
+     */
+    static final double MIN_SIMILARITY = 0.1;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, IntList> postings = new HashMap<>();
+    private long[] customerIds = new long[INITIAL_CAPACITY];
+    private String[] firstNames = new String[INITIAL_CAPACITY];
+    private String[] lastNames = new String[INITIAL_CAPACITY];
+    private int[] trigramCounts = new int[INITIAL_CAPACITY];
+    private final LongIntMap ordinalsById = new LongIntMap();
+    private final BitSet removed = new BitSet();
+    private int size;
+    private int removedCount;
+    private long postingBytes;
+
+    public void add(long customerId, String firstName, String lastName) {
+        long[] trigrams = trigrams(String.join(" ",
+                firstName == null ? "" : firstName, lastName == null ? "" : lastName), true);
+        lock.writeLock().lock();
+        try {
+            int previous = ordinalsById.get(customerId);
+            if (previous >= 0) {
+                removed.set(previous);
+                removedCount++;
+            }
+            ensureCapacity(size + 1);
+            int ordinal = size++;
+            ordinalsById.put(customerId, ordinal);
+            customerIds[ordinal] = customerId;
+            firstNames[ordinal] = firstName;
+            lastNames[ordinal] = lastName;
+            trigramCounts[ordinal] = trigrams.length;
+            for (long trigram : trigrams) {
+                IntList postingList = postings.computeIfAbsent(trigram, key -> new IntList());
+                long before = postingList.capacityBytes();
+                postingList.add(ordinal);
+                postingBytes += postingList.capacityBytes() - before;
+            }
+            if (removedCount >= MIN_REMOVED_TO_COMPACT && removedCount * 4L >= size) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean contains(long customerId) {
+        lock.readLock().lock();
+        try {
+            return ordinalsById.get(customerId) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Drops removed ordinals and renumbers the rest in their current order, so every posting list stays
+     * ascending and can be rewritten in place. Posting lists left empty are dropped, oversized ones trimmed.
+     */
+    private void compact() {
+        int[] newOrdinals = new int[size];
+        int live = 0;
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            if (removed.get(ordinal)) {
+                newOrdinals[ordinal] = -1;
+                continue;
+            }
+            newOrdinals[ordinal] = live;
+            customerIds[live] = customerIds[ordinal];
+            firstNames[live] = firstNames[ordinal];
+            lastNames[live] = lastNames[ordinal];
+            trigramCounts[live] = trigramCounts[ordinal];
+            live++;
+        }
+        Arrays.fill(firstNames, live, size, null);
+        Arrays.fill(lastNames, live, size, null);
+        postingBytes = 0;
+        Iterator<IntList> postingLists = postings.values().iterator();
+        while (postingLists.hasNext()) {
+            IntList postingList = postingLists.next();
+            postingList.renumber(newOrdinals);
+            if (postingList.size == 0) {
+                postingLists.remove();
+            } else {
+                postingBytes += postingList.capacityBytes();
+            }
+        }
+        ordinalsById.renumber(newOrdinals);
+        removed.clear();
+        removedCount = 0;
+        size = live;
+    }
+
+    /**
+     * Merges the posting lists of the query trigrams through a heap of list cursors, so every posting is
+     * visited once at O(log lists), and keeps the best {@code limit} ordinals in a bounded heap of primitives.
+     * DTOs are only built for the final matches.
+     */
+    public List<CustomerNameMatchDto> search(String query, int limit) {
+        long[] queryTrigrams = trigrams(query, false);
+        if (queryTrigrams.length == 0 || limit <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            IntList[] lists = new IntList[queryTrigrams.length];
+            int listCount = 0;
+            for (long trigram : queryTrigrams) {
+                IntList postingList = postings.get(trigram);
+                if (postingList != null) {
+                    lists[listCount++] = postingList;
+                }
+            }
+            CursorHeap cursors = new CursorHeap(lists, listCount);
+            TopMatches topMatches = new TopMatches(Math.min(limit, size));
+            while (!cursors.isEmpty()) {
+                int ordinal = cursors.peekOrdinal();
+                int shared = 0;
+                while (!cursors.isEmpty() && cursors.peekOrdinal() == ordinal) {
+                    cursors.advance();
+                    shared++;
+                }
+                if (removed.get(ordinal)) {
+                    continue;
+                }
+                double score = (double) shared / (queryTrigrams.length + trigramCounts[ordinal] - shared);
+                if (score >= MIN_SIMILARITY) {
+                    topMatches.offer(ordinal, score, customerIds[ordinal]);
+                }
+            }
+            return topMatches.toMatches();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size - removedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long estimatedMemoryBytes() {
+        lock.readLock().lock();
+        try {
+            long perCustomer = (long) customerIds.length * (Long.BYTES + Integer.BYTES + 2L * Integer.BYTES);
+            long names = 0;
+            for (int ordinal = 0; ordinal < size; ordinal++) {
+                names += stringBytes(firstNames[ordinal]) + stringBytes(lastNames[ordinal]);
+            }
+            return perCustomer + names + ordinalsById.capacityBytes() + postingBytes
+                    + postings.size() * MAP_ENTRY_OVERHEAD_BYTES;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static long stringBytes(String value) {
+        return value == null ? 0 : 40L + value.length();
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= customerIds.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, customerIds.length * 2);
+        customerIds = Arrays.copyOf(customerIds, newCapacity);
+        firstNames = Arrays.copyOf(firstNames, newCapacity);
+        lastNames = Arrays.copyOf(lastNames, newCapacity);
+        trigramCounts = Arrays.copyOf(trigramCounts, newCapacity);
+    }
+
+    /**
+     * Words are padded with two leading blanks and one trailing blank. Queries leave the last word
+     * open at the end so that a partially typed name still matches as a prefix.
+     */
+    static long[] trigrams(String text, boolean padLastWord) {
+        String normalized = Customer.normalizeName(text);
+        if (normalized == null || normalized.isEmpty()) {
+            return new long[0];
+        }
+        String[] words = normalized.split("\\s+");
+        long[] trigrams = new long[normalized.length() * 3 + 3];
+        int count = 0;
+        for (int w = 0; w < words.length; w++) {
+            if (words[w].isEmpty()) {
+                continue;
+            }
+            boolean padEnd = padLastWord || w < words.length - 1;
+            String padded = "  " + words[w] + (padEnd ? " " : "");
+            for (int i = 0; i + 2 < padded.length(); i++) {
+                trigrams[count++] = ((long) padded.charAt(i) << 32)
+                        | ((long) padded.charAt(i + 1) << 16)
+                        | padded.charAt(i + 2);
+            }
+        }
+        long[] distinct = Arrays.copyOf(trigrams, count);
+        Arrays.sort(distinct);
+        int unique = 0;
+        for (int i = 0; i < distinct.length; i++) {
+            if (i == 0 || distinct[i] != distinct[i - 1]) {
+                distinct[unique++] = distinct[i];
+            }
+        }
+        return Arrays.copyOf(distinct, unique);
+    }
+
+    /**
+     * Binary min-heap of posting list indexes keyed by the ordinal under each list's cursor.
+     */
+    private static final class CursorHeap {
+        private final IntList[] lists;
+        private final int[] positions;
+        private final int[] heap;
+        private int heapSize;
+
+        CursorHeap(IntList[] lists, int listCount) {
+            this.lists = lists;
+            this.positions = new int[listCount];
+            this.heap = new int[listCount];
+            for (int i = 0; i < listCount; i++) {
+                if (lists[i].size > 0) {
+                    heap[heapSize++] = i;
+                }
+            }
+            for (int i = heapSize / 2 - 1; i >= 0; i--) {
+                siftDown(i);
+            }
+        }
+
+        boolean isEmpty() {
+            return heapSize == 0;
+        }
+
+        int peekOrdinal() {
+            return current(heap[0]);
+        }
+
+        void advance() {
+            int list = heap[0];
+            if (++positions[list] == lists[list].size) {
+                heap[0] = heap[--heapSize];
+            }
+            siftDown(0);
+        }
+
+        private int current(int list) {
+            return lists[list].values[positions[list]];
+        }
+
+        private void siftDown(int index) {
+            while (true) {
+                int smallest = index;
+                int left = 2 * index + 1;
+                int right = left + 1;
+                if (left < heapSize && current(heap[left]) < current(heap[smallest])) {
+                    smallest = left;
+                }
+                if (right < heapSize && current(heap[right]) < current(heap[smallest])) {
+                    smallest = right;
+                }
+                if (smallest == index) {
+                    return;
+                }
+                int swap = heap[index];
+                heap[index] = heap[smallest];
+                heap[smallest] = swap;
+                index = smallest;
+            }
+        }
+    }
+
+    /**
+     * The best matches seen so far in a binary heap with the worst one (lowest score, then highest id) on top.
+     */
+    private final class TopMatches {
+        private final int[] ordinals;
+        private final double[] scores;
+        private int count;
+
+        TopMatches(int capacity) {
+            ordinals = new int[capacity];
+            scores = new double[capacity];
+        }
+
+        void offer(int ordinal, double score, long customerId) {
+            if (count < ordinals.length) {
+                ordinals[count] = ordinal;
+                scores[count] = score;
+                siftUp(count++);
+            } else if (count > 0 && isWorse(0, score, customerId)) {
+                ordinals[0] = ordinal;
+                scores[0] = score;
+                siftDown(0);
+            }
+        }
+
+        List<CustomerNameMatchDto> toMatches() {
+            List<CustomerNameMatchDto> matches = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int ordinal = ordinals[i];
+                matches.add(CustomerNameMatchDto.builder()
+                        .id(customerIds[ordinal])
+                        .firstName(firstNames[ordinal])
+                        .lastName(lastNames[ordinal])
+                        .score(scores[i])
+                        .build());
+            }
+            matches.sort(Comparator.comparingDouble(CustomerNameMatchDto::getScore).reversed()
+                    .thenComparing(CustomerNameMatchDto::getId));
+            return matches;
+        }
+
+        private boolean isWorse(int index, double score, long customerId) {
+            return scores[index] < score
+                    || (scores[index] == score && customerIds[ordinals[index]] > customerId);
+        }
+
+        private void siftUp(int index) {
+            while (index > 0) {
+                int parent = (index - 1) / 2;
+                if (!isWorse(index, scores[parent], customerIds[ordinals[parent]])) {
+                    return;
+                }
+                swap(index, parent);
+                index = parent;
+            }
+        }
+
+        private void siftDown(int index) {
+            while (true) {
+                int worst = index;
+                int left = 2 * index + 1;
+                int right = left + 1;
+                if (left < count && isWorse(left, scores[worst], customerIds[ordinals[worst]])) {
+                    worst = left;
+                }
+                if (right < count && isWorse(right, scores[worst], customerIds[ordinals[worst]])) {
+                    worst = right;
+                }
+                if (worst == index) {
+                    return;
+                }
+                swap(index, worst);
+                index = worst;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int ordinal = ordinals[a];
+            ordinals[a] = ordinals[b];
+            ordinals[b] = ordinal;
+            double score = scores[a];
+            scores[a] = scores[b];
+            scores[b] = score;
+        }
+    }
+
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        /**
+         * Maps every value through {@code newValues}, dropping those mapped to -1.
+         */
+        void renumber(int[] newValues) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                int value = newValues[values[i]];
+                if (value >= 0) {
+                    values[kept++] = value;
+                }
+            }
+            size = kept;
+            if (values.length > 4 && values.length > 2 * size) {
+                values = Arrays.copyOf(values, Math.max(4, size));
+            }
+        }
+
+        long capacityBytes() {
+            return 16L + (long) values.length * Integer.BYTES;
+        }
+    }
+
+    /**
+     * Open-addressing map from customer id to its live ordinal, linear probing over parallel primitive arrays.
+     * Entries are only ever overwritten, never deleted, so an empty slot ends every probe.
+     */
+    private static final class LongIntMap {
+        private long[] keys = new long[INITIAL_CAPACITY * 2];
+        private int[] values = emptyValues(INITIAL_CAPACITY * 2);
+        private int count;
+
+        int get(long key) {
+            int mask = keys.length - 1;
+            for (int slot = slot(key, mask); values[slot] >= 0; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return values[slot];
+                }
+            }
+            return -1;
+        }
+
+        void put(long key, int value) {
+            int mask = keys.length - 1;
+            int slot = slot(key, mask);
+            while (values[slot] >= 0) {
+                if (keys[slot] == key) {
+                    values[slot] = value;
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            values[slot] = value;
+            if (++count * 2 > keys.length) {
+                resize(keys.length * 2);
+            }
+        }
+
+        /**
+         * Maps every value through {@code newValues}; the ordinals held here are all live, so none drop out.
+         */
+        void renumber(int[] newValues) {
+            for (int slot = 0; slot < values.length; slot++) {
+                if (values[slot] >= 0) {
+                    values[slot] = newValues[values[slot]];
+                }
+            }
+        }
+
+        long capacityBytes() {
+            return 32L + (long) keys.length * (Long.BYTES + Integer.BYTES);
+        }
+
+        private void resize(int capacity) {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[capacity];
+            values = emptyValues(capacity);
+            int mask = capacity - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] >= 0) {
+                    int slot = slot(oldKeys[i], mask);
+                    while (values[slot] >= 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+
+        private static int slot(long key, int mask) {
+            long hash = key * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+
+        private static int[] emptyValues(int capacity) {
+            int[] values = new int[capacity];
+            Arrays.fill(values, -1);
+            return values;
+        }
+    }
+}
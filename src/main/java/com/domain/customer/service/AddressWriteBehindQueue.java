@@ -0,0 +1,259 @@
+package com.domain.customer.service;
+
+import com.domain.customer.dto.AddressDto;
+import com.domain.customer.dto.CustomerChangeType;
+import com.domain.customer.exception.NoSuchCustomerExistsException;
+import com.domain.customer.store.CustomerChangeOutbox;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind mode for address updates, enabled with {@code customers.address.write-behind.enabled}.
+ * Updates are coalesced per customer id (last write wins per field) and written with one batched JDBC update when
+ * {@code batch-size} customers are pending or every {@code flush-interval-ms}. Callers are acknowledged
+ * only once the batch holding their update has committed, and pending updates are flushed on shutdown. A failed
+ * batch is retried one customer per transaction, so only the offending updates fail.
+ */
+@Slf4j
+@Component
+public class AddressWriteBehindQueue {
+    static final String UPDATE_ADDRESS_SQL = "update address set address_line1 = coalesce(?, address_line1), " +
+            "address_line2 = coalesce(?, address_line2), postal_code = coalesce(?, postal_code), " +
+            "city = coalesce(?, city), country = coalesce(?, country), update_time = ? " +
+            "where address_id = (select c.address_id from customer c where c.id = ?)";
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CustomerChangeOutbox customerChangeOutbox;
+    private final boolean enabled;
+    private final int batchSize;
+    private final Timer lagTimer;
+    private final Counter coalescedCounter;
+    private final Object lock = new Object();
+    private final ScheduledExecutorService flusher;
+    private Map<Long, PendingUpdate> pending = new LinkedHashMap<>();
+    private boolean flushScheduled;
+    private boolean closed;
+
+    public AddressWriteBehindQueue(JdbcTemplate jdbcTemplate,
+                                   TransactionTemplate transactionTemplate,
+                                   CustomerChangeOutbox customerChangeOutbox,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${customers.address.write-behind.enabled:false}") boolean enabled,
+                                   @Value("${customers.address.write-behind.batch-size:500}") int batchSize,
+                                   @Value("${customers.address.write-behind.flush-interval-ms:50}") long flushIntervalMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.customerChangeOutbox = customerChangeOutbox;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.lagTimer = Timer.builder("customer.address.write-behind.lag")
+                .description("Time from queueing an address update until its batch committed")
+                .register(meterRegistry);
+        this.coalescedCounter = Counter.builder("customer.address.write-behind.coalesced")
+                .description("Address updates superseded by a later update for the same customer")
+                .register(meterRegistry);
+        Gauge.builder("customer.address.write-behind.queue.depth", this, AddressWriteBehindQueue::depth)
+                .description("Customers with an address update waiting to be flushed")
+                .register(meterRegistry);
+        if (enabled) {
+            flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "address-write-behind");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        } else {
+            flusher = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void update(Long customerId, AddressDto addressDto) {
+        try {
+            submit(customerId, addressDto).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    CompletableFuture<Void> submit(Long customerId, AddressDto addressDto) {
+        CompletableFuture<Void> acknowledgement = new CompletableFuture<>();
+        synchronized (lock) {
+            if (closed) {
+                throw new IllegalStateException("Address write-behind queue is shut down");
+            }
+            PendingUpdate pendingUpdate = pending.get(customerId);
+            if (pendingUpdate == null) {
+                pendingUpdate = new PendingUpdate(System.nanoTime());
+                pending.put(customerId, pendingUpdate);
+            } else {
+                coalescedCounter.increment();
+            }
+            pendingUpdate.merge(addressDto);
+            pendingUpdate.acknowledgements.add(acknowledgement);
+            if (pending.size() >= batchSize && !flushScheduled && flusher != null) {
+                flushScheduled = true;
+                flusher.execute(this::flushQuietly);
+            }
+        }
+        return acknowledgement;
+    }
+
+    int depth() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    void flush() {
+        Map<Long, PendingUpdate> batch;
+        synchronized (lock) {
+            if (pending.isEmpty()) {
+                flushScheduled = false;
+                return;
+            }
+            batch = pending;
+            pending = new LinkedHashMap<>();
+            flushScheduled = false;
+        }
+        Timestamp updateTime = Timestamp.valueOf(LocalDateTime.now());
+        List<Long> customerIds = new ArrayList<>(batch.keySet());
+        List<Object[]> arguments = new ArrayList<>(batch.size());
+        for (Long customerId : customerIds) {
+            AddressDto addressDto = batch.get(customerId).addressDto;
+            arguments.add(new Object[]{addressDto.getAddressLine1(), addressDto.getAddressLine2(),
+                    addressDto.getPostalCode(), addressDto.getCity(), addressDto.getCountry(), updateTime, customerId});
+        }
+        int[] updateCounts;
+        RuntimeException[] failures = new RuntimeException[customerIds.size()];
+        try {
+            updateCounts = write(customerIds, arguments);
+        } catch (RuntimeException e) {
+            updateCounts = new int[customerIds.size()];
+            if (customerIds.size() == 1) {
+                log.error("Address write-behind update of customer {} failed", customerIds.get(0));
+                failures[0] = e;
+            } else {
+                log.error("Address write-behind flush of {} customers failed, retrying them one by one", batch.size());
+                for (int i = 0; i < customerIds.size(); i++) {
+                    try {
+                        updateCounts[i] = write(List.of(customerIds.get(i)), List.<Object[]>of(arguments.get(i)))[0];
+                    } catch (RuntimeException rowFailure) {
+                        log.error("Address write-behind update of customer {} failed", customerIds.get(i));
+                        failures[i] = rowFailure;
+                    }
+                }
+            }
+        }
+        long now = System.nanoTime();
+        for (int i = 0; i < customerIds.size(); i++) {
+            PendingUpdate pendingUpdate = batch.get(customerIds.get(i));
+            RuntimeException failure = failures[i];
+            if (failure == null) {
+                lagTimer.record(now - pendingUpdate.enqueuedNanos, TimeUnit.NANOSECONDS);
+                if (updateCounts[i] == 0) {
+                    failure = new NoSuchCustomerExistsException();
+                }
+            }
+            for (CompletableFuture<Void> acknowledgement : pendingUpdate.acknowledgements) {
+                if (failure == null) {
+                    acknowledgement.complete(null);
+                } else {
+                    acknowledgement.completeExceptionally(failure);
+                }
+            }
+        }
+    }
+
+    /**
+     * Updates the addresses and records the changes of the updated customers in one transaction.
+     */
+    private int[] write(List<Long> customerIds, List<Object[]> arguments) {
+        return transactionTemplate.execute(status -> {
+            int[] counts = jdbcTemplate.batchUpdate(UPDATE_ADDRESS_SQL, arguments);
+            List<Long> updatedCustomerIds = new ArrayList<>(counts.length);
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] != 0) {
+                    updatedCustomerIds.add(customerIds.get(i));
+                }
+            }
+            customerChangeOutbox.append(CustomerChangeType.ADDRESS_UPDATED, updatedCustomerIds);
+            return counts;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (flusher == null) {
+            return;
+        }
+        synchronized (lock) {
+            closed = true;
+        }
+        flusher.shutdown();
+        flusher.awaitTermination(10, TimeUnit.SECONDS);
+        flush();
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Address write-behind flush failed", e);
+        }
+    }
+
+    private static final class PendingUpdate {
+        private final long enqueuedNanos;
+        private final List<CompletableFuture<Void>> acknowledgements = new ArrayList<>(1);
+        private final AddressDto addressDto = AddressDto.builder().build();
+
+        private PendingUpdate(long enqueuedNanos) {
+            this.enqueuedNanos = enqueuedNanos;
+        }
+
+        private void merge(AddressDto changes) {
+            if (changes.getAddressLine1() != null) {
+                addressDto.setAddressLine1(changes.getAddressLine1());
+            }
+            if (changes.getAddressLine2() != null) {
+                addressDto.setAddressLine2(changes.getAddressLine2());
+            }
+            if (changes.getPostalCode() != null) {
+                addressDto.setPostalCode(changes.getPostalCode());
+            }
+            if (changes.getCity() != null) {
+                addressDto.setCity(changes.getCity());
+            }
+            if (changes.getCountry() != null) {
+                addressDto.setCountry(changes.getCountry());
+            }
+        }
+    }
+}
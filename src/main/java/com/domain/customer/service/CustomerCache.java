@@ -0,0 +1,90 @@
+package com.domain.customer.service;
+
+import com.domain.customer.dto.CustomerDto;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The {@code customers} cache with a generation per id that every eviction increments. A reader takes the
+ * generation before loading and only caches what it loaded if no eviction happened meanwhile, otherwise a load
+ * that read the row before a write could put the old customer back after the write's eviction. Generations are
+ * kept in a fixed number of stripes, ids sharing a stripe only cost each other a cache fill. A write generation
+ * counts every write, for reads such as name searches that cannot tell which ids a write affects.
+ */
+@Component
+public class CustomerCache {
+    private static final int STRIPES = 4096;
+    private final Cache cache;
+    private final AtomicLongArray generations = new AtomicLongArray(STRIPES);
+    private final AtomicLong writeGeneration = new AtomicLong();
+
+    public CustomerCache(CacheManager cacheManager) {
+        this.cache = cacheManager.getCache(CustomerService.CUSTOMER_CACHE);
+    }
+
+    CustomerDto get(Long id) {
+        return cache == null ? null : cache.get(id, CustomerDto.class);
+    }
+
+    long generation(Long id) {
+        return generations.get(stripe(id));
+    }
+
+    long writeGeneration() {
+        return writeGeneration.get();
+    }
+
+    /**
+     * Called after customers were inserted under new ids, which have nothing cached to evict.
+     */
+    void inserted() {
+        writeGeneration.incrementAndGet();
+    }
+
+    /**
+     * Caches {@code customerDto} if {@code id} was not evicted since {@code generation} was read. The check is
+     * repeated after the put, an eviction racing with it removes the entry again.
+     */
+    void putIfCurrent(Long id, CustomerDto customerDto, long generation) {
+        if (cache == null || generation(id) != generation) {
+            return;
+        }
+        cache.put(id, customerDto);
+        if (generation(id) != generation) {
+            cache.evict(id);
+        }
+    }
+
+    /**
+     * Called after a write of the customer committed.
+     */
+    void evict(Long id) {
+        writeGeneration.incrementAndGet();
+        generations.incrementAndGet(stripe(id));
+        if (cache != null) {
+            cache.evict(id);
+        }
+    }
+
+    /**
+     * Drops every customer, for when evictions may have been missed.
+     */
+    void evictAll() {
+        writeGeneration.incrementAndGet();
+        for (int i = 0; i < STRIPES; i++) {
+            generations.incrementAndGet(i);
+        }
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    private static int stripe(Long id) {
+        long hash = id * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 52) & (STRIPES - 1);
+    }
+}
@@ -0,0 +1,125 @@
+package com.domain.customer.service;
+
+import com.domain.customer.dto.CustomerChangeDto;
+import com.domain.customer.dto.CustomerChangeType;
+import com.domain.customer.exception.ChangeFeedExpiredException;
+import com.domain.customer.search.CustomerNameIndex;
+import com.domain.customer.store.CustomerChangeOutbox;
+import com.domain.customer.store.CustomerStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the per-instance customer cache and name index in step with writes made by other instances sharing
+ * the database, enabled with {@code customers.cache.invalidation.enabled} (on in the h2-server and postgres
+ * profiles). Every {@code customers.cache.invalidation.poll-ms} the {@link CustomerChangeOutbox} is read from
+ * where the last poll stopped: changed customers are evicted and created or saved ones are re-read from the
+ * primary into the name index. The outbox read stops before unsettled gaps, so a change committing late is
+ * still seen, up to {@code customers.changes.settle-ms} later. Only the jpa store writes the outbox.
+ */
+@Slf4j
+@Component
+public class CustomerCacheInvalidator {
+    static final int BATCH_SIZE = 1000;
+    private final CustomerChangeOutbox customerChangeOutbox;
+    private final CustomerStore customerStore;
+    private final CustomerCache customerCache;
+    private final CustomerNameIndex customerNameIndex;
+    private final Counter evictions;
+    private final boolean enabled;
+    private final long pollMs;
+    private final ScheduledExecutorService executor;
+    private long cursor = -1;
+
+    public CustomerCacheInvalidator(CustomerChangeOutbox customerChangeOutbox,
+                                    CustomerStore customerStore,
+                                    CustomerCache customerCache,
+                                    CustomerNameIndex customerNameIndex,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${customers.cache.invalidation.enabled:false}") boolean enabled,
+                                    @Value("${customers.cache.invalidation.poll-ms:1000}") long pollMs,
+                                    @Value("${customers.store:jpa}") String store) {
+        this.customerChangeOutbox = customerChangeOutbox;
+        this.customerStore = customerStore;
+        this.customerCache = customerCache;
+        this.customerNameIndex = customerNameIndex;
+        this.evictions = Counter.builder("customer.cache.invalidations")
+                .description("Customers evicted for changes read from the outbox")
+                .register(meterRegistry);
+        this.enabled = enabled && "jpa".equals(store);
+        this.pollMs = pollMs;
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "customer-cache-invalidator");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (enabled) {
+            executor.scheduleWithFixedDelay(this::pollQuietly, pollMs, pollMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Applies the changes after the cursor, the first call only positions it.
+     */
+    void poll() {
+        if (cursor < 0) {
+            // nothing is cached yet, earlier changes need no eviction
+            cursor = customerChangeOutbox.lastSettledSequence();
+        }
+        List<CustomerChangeDto> changes;
+        do {
+            try {
+                changes = customerChangeOutbox.findAfter(cursor, BATCH_SIZE);
+            } catch (ChangeFeedExpiredException e) {
+                log.warn("Customer changes after {} were pruned, clearing the customer cache", cursor);
+                cursor = customerChangeOutbox.lastSettledSequence();
+                customerCache.evictAll();
+                return;
+            }
+            Set<Long> renamed = new LinkedHashSet<>();
+            for (CustomerChangeDto change : changes) {
+                customerCache.evict(change.getCustomerId());
+                if (change.getType() != CustomerChangeType.ADDRESS_UPDATED) {
+                    renamed.add(change.getCustomerId());
+                }
+            }
+            if (!renamed.isEmpty()) {
+                customerStore.findAllById(renamed).forEach(customerNameIndex::add);
+            }
+            if (!changes.isEmpty()) {
+                evictions.increment(changes.size());
+                cursor = changes.get(changes.size() - 1).getSequence();
+            }
+        } while (changes.size() == BATCH_SIZE);
+    }
+
+    private void pollQuietly() {
+        try {
+            poll();
+        } catch (RuntimeException e) {
+            log.error("Reading customer changes for cache invalidation failed", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,179 @@
+package com.domain.customer.service;
+
+import com.domain.customer.dto.CustomerChangeDto;
+import com.domain.customer.dto.CustomerChangePageDto;
+import com.domain.customer.exception.ChangeFeedUnavailableException;
+import com.domain.customer.store.CustomerChangeOutbox;
+import com.domain.customer.store.CustomerChangesAppended;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Incremental feed over the {@link CustomerChangeOutbox}. A read with {@code waitMs} that finds no changes is
+ * parked until a change commits on this instance or the wait (at most {@code customers.changes.max-wait-ms})
+ * ends with an empty page, so a consumer polling in a loop costs one query per batch of changes instead of a
+ * read of the whole table. A woken read that finds only changes held back behind an unsettled gap stays parked
+ * and is retried. Changes older than {@code customers.changes.retention-hours} are pruned hourly. Only the jpa
+ * store writes the outbox, with {@code customers.store=mapped} the feed answers 501 Not Implemented instead of
+ * empty pages.
+ */
+@Slf4j
+@Component
+public class CustomerChangeFeed {
+    static final int DEFAULT_LIMIT = 100;
+    static final int MAX_LIMIT = 1000;
+    static final long RETRY_WAKE_MS = 500;
+    private final CustomerChangeOutbox customerChangeOutbox;
+    private final boolean enabled;
+    private final long maxWaitMs;
+    private final long retentionHours;
+    private final Set<Waiter> waiters = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService executor;
+
+    public CustomerChangeFeed(CustomerChangeOutbox customerChangeOutbox,
+                              MeterRegistry meterRegistry,
+                              @Value("${customers.changes.max-wait-ms:30000}") long maxWaitMs,
+                              @Value("${customers.changes.retention-hours:168}") long retentionHours,
+                              @Value("${customers.store:jpa}") String store) {
+        this.customerChangeOutbox = customerChangeOutbox;
+        this.enabled = "jpa".equals(store);
+        this.maxWaitMs = maxWaitMs;
+        this.retentionHours = retentionHours;
+        Gauge.builder("customer.changes.waiting", this, CustomerChangeFeed::waiting)
+                .description("Change feed reads parked until a change commits")
+                .register(meterRegistry);
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "customer-change-feed");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (enabled && retentionHours > 0) {
+            executor.scheduleWithFixedDelay(this::pruneQuietly, 1, 60, TimeUnit.MINUTES);
+        }
+    }
+
+    public DeferredResult<CustomerChangePageDto> changesAfter(long after, Integer limit, Long waitMs) {
+        if (!enabled) {
+            throw new ChangeFeedUnavailableException("The change feed requires customers.store=jpa");
+        }
+        int pageSize = pageSize(limit);
+        long wait = waitMs == null ? 0 : Math.max(0, Math.min(waitMs, maxWaitMs));
+        if (wait == 0) {
+            DeferredResult<CustomerChangePageDto> result = new DeferredResult<>();
+            result.setResult(toPage(after, customerChangeOutbox.findAfter(after, pageSize)));
+            return result;
+        }
+        DeferredResult<CustomerChangePageDto> result = new DeferredResult<>(wait, () -> toPage(after, List.of()));
+        Waiter waiter = new Waiter(after, pageSize, result);
+        result.onCompletion(() -> waiters.remove(waiter));
+        // registered before reading, a change committed after the read still wakes it
+        waiters.add(waiter);
+        List<CustomerChangeDto> changes;
+        try {
+            changes = customerChangeOutbox.findAfter(after, pageSize);
+        } catch (RuntimeException e) {
+            waiters.remove(waiter);
+            throw e;
+        }
+        if (!changes.isEmpty()) {
+            waiters.remove(waiter);
+            result.setResult(toPage(after, changes));
+        }
+        return result;
+    }
+
+    @TransactionalEventListener
+    public void onChangesAppended(CustomerChangesAppended event) {
+        if (!waiters.isEmpty()) {
+            executor.execute(() -> wake(event.getLastSequence()));
+        }
+    }
+
+    /**
+     * Waiters resuming from the same sequence share one read of {@link #MAX_LIMIT} changes.
+     */
+    void wake(long lastSequence) {
+        Map<Long, List<CustomerChangeDto>> changesAfter = new HashMap<>();
+        boolean heldBack = false;
+        for (Waiter waiter : waiters) {
+            if (waiter.after >= lastSequence || waiter.result.isSetOrExpired()) {
+                continue;
+            }
+            try {
+                List<CustomerChangeDto> changes = changesAfter.computeIfAbsent(waiter.after,
+                        after -> customerChangeOutbox.findAfter(after, MAX_LIMIT));
+                if (changes.isEmpty()) {
+                    heldBack = true;
+                    continue;
+                }
+                waiters.remove(waiter);
+                waiter.result.setResult(toPage(waiter.after, changes.subList(0, Math.min(waiter.limit, changes.size()))));
+            } catch (RuntimeException e) {
+                waiters.remove(waiter);
+                waiter.result.setErrorResult(e);
+            }
+        }
+        if (heldBack) {
+            executor.schedule(() -> wake(lastSequence), RETRY_WAKE_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    int waiting() {
+        return waiters.size();
+    }
+
+    private void pruneQuietly() {
+        try {
+            int pruned = customerChangeOutbox.pruneBefore(LocalDateTime.now().minusHours(retentionHours));
+            if (pruned > 0) {
+                log.info("Pruned {} customer changes older than {} hours", pruned, retentionHours);
+            }
+        } catch (RuntimeException e) {
+            log.error("Pruning customer changes failed", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static CustomerChangePageDto toPage(long after, List<CustomerChangeDto> changes) {
+        return CustomerChangePageDto.builder()
+                .changes(changes)
+                .nextCursor(changes.isEmpty() ? after : changes.get(changes.size() - 1).getSequence())
+                .build();
+    }
+
+    private static int pageSize(Integer limit) {
+        return limit == null || limit <= 0 ? DEFAULT_LIMIT : Math.min(limit, MAX_LIMIT);
+    }
+
+    private static final class Waiter {
+        private final long after;
+        private final int limit;
+        private final DeferredResult<CustomerChangePageDto> result;
+
+        private Waiter(long after, int limit, DeferredResult<CustomerChangePageDto> result) {
+            this.after = after;
+            this.limit = limit;
+            this.result = result;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.domain.customer.service;
+
+import com.domain.customer.dto.BulkIngestFailureDto;
+import com.domain.customer.dto.BulkIngestReportDto;
+import com.domain.customer.dto.CustomerDto;
+import com.domain.customer.entity.Customer;
+import com.domain.customer.mapper.CustomerMapper;
+import com.domain.customer.search.CustomerNameIndex;
+import com.domain.customer.store.CustomerStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Writes customers in chunks of {@code customers.ingest.batch-size}, one {@link CustomerStore#insertAll} call
+ * (a single transaction for the JPA store) per chunk. When a chunk fails it is replayed record by record
+ * so that only the offending records are reported.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CustomerIngestService {
+    private final CustomerStore customerStore;
+    private final Validator validator;
+    private final CustomerNameIndex customerNameIndex;
+    private final CustomerCache customerCache;
+    @Value("${customers.ingest.batch-size:500}")
+    private int batchSize = 500;
+
+    public BulkIngestReportDto ingest(Iterator<CustomerDto> customers) {
+        List<BulkIngestFailureDto> failures = new ArrayList<>();
+        List<IndexedCustomer> chunk = new ArrayList<>(batchSize);
+        long received = 0;
+        long inserted = 0;
+        while (true) {
+            CustomerDto customerDto;
+            try {
+                if (!customers.hasNext()) {
+                    break;
+                }
+                customerDto = customers.next();
+            } catch (RuntimeException e) {
+                log.error("Bulk ingest stopped, unreadable record at index {}", received);
+                failures.add(failure(received, "Unreadable record: " + e.getMessage()));
+                break;
+            }
+            long index = received++;
+            String violations = validate(customerDto);
+            if (violations != null) {
+                failures.add(failure(index, violations));
+                continue;
+            }
+            chunk.add(new IndexedCustomer(index, customerDto));
+            if (chunk.size() == batchSize) {
+                inserted += writeChunk(chunk, failures);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            inserted += writeChunk(chunk, failures);
+        }
+        return BulkIngestReportDto.builder()
+                .received(received)
+                .inserted(inserted)
+                .failures(failures)
+                .build();
+    }
+
+    private int writeChunk(List<IndexedCustomer> chunk, List<BulkIngestFailureDto> failures) {
+        try {
+            List<Customer> customers = new ArrayList<>(chunk.size());
+            chunk.forEach(indexedCustomer -> customers.add(toNewEntity(indexedCustomer.customerDto)));
+            customerStore.insertAll(customers).forEach(customerNameIndex::add);
+            customerCache.inserted();
+            return chunk.size();
+        } catch (RuntimeException e) {
+            log.error("Bulk ingest chunk failed, retrying {} records one by one", chunk.size());
+        }
+        int inserted = 0;
+        for (IndexedCustomer indexedCustomer : chunk) {
+            try {
+                customerStore.insertAll(List.of(toNewEntity(indexedCustomer.customerDto))).forEach(customerNameIndex::add);
+                customerCache.inserted();
+                inserted++;
+            } catch (RuntimeException e) {
+                failures.add(failure(indexedCustomer.index, e.getMessage()));
+            }
+        }
+        return inserted;
+    }
+
+    private static Customer toNewEntity(CustomerDto customerDto) {
+        Customer customer = CustomerMapper.MAPPER.customerDtoToCustomer(customerDto);
+        customer.setId(null);
+        if (customer.getAddress() != null) {
+            customer.getAddress().setAddressId(null);
+        }
+        return customer;
+    }
+
+    private String validate(CustomerDto customerDto) {
+        if (customerDto == null) {
+            return "Record must not be null";
+        }
+        Set<ConstraintViolation<CustomerDto>> violations = validator.validate(customerDto);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+
+    private static BulkIngestFailureDto failure(long index, String reason) {
+        return BulkIngestFailureDto.builder()
+                .index(index)
+                .reason(reason)
+                .build();
+    }
+
+    @RequiredArgsConstructor
+    private static class IndexedCustomer {
+        private final long index;
+        private final CustomerDto customerDto;
+    }
+}
@@ -0,0 +1,72 @@
+package com.domain.customer.service;
+
+import com.domain.customer.dto.CustomerDto;
+import com.domain.customer.dto.CustomerLookupDto;
+import com.domain.customer.entity.Customer;
+import com.domain.customer.exception.InvalidRequestException;
+import com.domain.customer.mapper.CustomerMapper;
+import com.domain.customer.store.CustomerStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Resolves many customer ids in one call. Ids are looked up in the customer cache first, the misses are
+ * read from the store in one go and put in the cache unless evicted meanwhile, and the result has one entry per requested id in
+ * request order, with {@code found=false} for ids that do not exist.
+ */
+@Slf4j
+@Component
+public class CustomerLookupService {
+    static final int MAX_IDS = 5000;
+    private final CustomerStore customerStore;
+    private final CustomerCache customerCache;
+
+    public CustomerLookupService(CustomerStore customerStore, CustomerCache customerCache) {
+        this.customerStore = customerStore;
+        this.customerCache = customerCache;
+    }
+
+    public List<CustomerLookupDto> lookupCustomers(List<Long> ids) {
+        if (ids == null || ids.isEmpty() || ids.size() > MAX_IDS || ids.stream().anyMatch(Objects::isNull)) {
+            log.warn("Invalid customer id lookup of {} ids", ids == null ? 0 : ids.size());
+            throw new InvalidRequestException("Invalid input, please provide 1 to " + MAX_IDS + " customer ids!!!");
+        }
+        Map<Long, CustomerDto> customers = new HashMap<>();
+        Map<Long, Long> misses = new LinkedHashMap<>();
+        for (Long id : ids) {
+            if (customers.containsKey(id) || misses.containsKey(id)) {
+                continue;
+            }
+            CustomerDto cached = customerCache.get(id);
+            if (cached != null) {
+                customers.put(id, cached);
+            } else {
+                misses.put(id, customerCache.generation(id));
+            }
+        }
+        if (!misses.isEmpty()) {
+            for (Customer customer : customerStore.findAllById(misses.keySet())) {
+                CustomerDto customerDto = CustomerMapper.MAPPER.customerToCustomerDto(customer);
+                customers.put(customer.getId(), customerDto);
+                customerCache.putIfCurrent(customer.getId(), customerDto, misses.get(customer.getId()));
+            }
+        }
+        List<CustomerLookupDto> results = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            CustomerDto customerDto = customers.get(id);
+            results.add(CustomerLookupDto.builder()
+                    .id(id)
+                    .found(customerDto != null)
+                    .customer(customerDto)
+                    .build());
+        }
+        return results;
+    }
+}
@@ -1,95 +1,229 @@
 package com.domain.customer.service;
 
+import com.domain.customer.dto.AddressDto;
 import com.domain.customer.dto.CustomerDto;
 import com.domain.customer.dto.CustomerNameDto;
+import com.domain.customer.dto.CustomerPageDto;
 import com.domain.customer.dto.CustomerPatchDto;
-import com.domain.customer.entity.Address;
+import com.domain.customer.dto.NameMatchMode;
 import com.domain.customer.entity.Customer;
 import com.domain.customer.exception.CustomerAlreadyExistsException;
 import com.domain.customer.exception.InvalidRequestException;
 import com.domain.customer.exception.NoSuchCustomerExistsException;
-import com.domain.customer.mapper.AddressMapper;
 import com.domain.customer.mapper.CustomerMapper;
-import com.domain.customer.repository.AddressRepository;
-import com.domain.customer.repository.CustomerRespository;
-import lombok.RequiredArgsConstructor;
+import com.domain.customer.search.CustomerNameIndex;
+import com.domain.customer.store.CustomerStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Consumer;
 
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class CustomerService {
-    private final CustomerRespository customerRespository;
-    private final AddressRepository addressRepository;
+    public static final String CUSTOMER_CACHE = "customers";
+    static final String MAPPING_TIMER = "customer.mapping";
+    static final int DEFAULT_PAGE_SIZE = 100;
+    static final int MAX_PAGE_SIZE = 1000;
+    private final CustomerStore customerStore;
+    private final CustomerNameIndex customerNameIndex;
+    private final CustomerCache customerCache;
+    private final Timer toDtoTimer;
+    private final Timer toDtoListTimer;
+    private final Timer toEntityTimer;
+    private final SingleFlight<Long, CustomerDto> byIdReads;
+    private final SingleFlight<List<String>, List<CustomerDto>> byNameReads;
+
+    /**
+     * With {@code customers.reads.coalesce} (default) concurrent identical id and name reads share one store
+     * call and one mapped result; the cache alone does not help the requests that miss it at the same time.
+     * Id reads go through the {@link CustomerCache} generations, so a read after a write neither joins nor caches
+     * a load that started before it. Name reads coalesce on the cache's write generation for the same reason.
+     */
+    public CustomerService(CustomerStore customerStore, CustomerNameIndex customerNameIndex, CustomerCache customerCache,
+                           MeterRegistry meterRegistry, @Value("${customers.reads.coalesce:true}") boolean coalesceReads) {
+        this.customerStore = customerStore;
+        this.customerNameIndex = customerNameIndex;
+        this.customerCache = customerCache;
+        this.toDtoTimer = mappingTimer(meterRegistry, "customerToCustomerDto");
+        this.toDtoListTimer = mappingTimer(meterRegistry, "customerToCustomerDtoList");
+        this.toEntityTimer = mappingTimer(meterRegistry, "customerDtoToCustomer");
+        this.byIdReads = new SingleFlight<>(meterRegistry, "searchCustomerById", coalesceReads);
+        this.byNameReads = new SingleFlight<>(meterRegistry, "searchCustomerByName", coalesceReads);
+    }
+
+    private static Timer mappingTimer(MeterRegistry meterRegistry, String operation) {
+        return Timer.builder(MAPPING_TIMER)
+                .description("Time spent mapping between customer entities and DTOs")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
 
     public CustomerDto addCustomer(CustomerDto customerDto) {
-        Optional<Customer> existingCustomer = customerRespository.findById(customerDto.getId());
-        if (existingCustomer == null || !existingCustomer.isPresent()) {
-            Customer customerEntity = CustomerMapper.MAPPER.customerDtoToCustomer(customerDto);
-            CustomerDto addedCustomer = CustomerMapper.MAPPER.customerToCustomerDto(customerRespository.save(customerEntity));
-            addedCustomer.setMessage("Customer added successfully!!!");
-            return addedCustomer;
-        } else {
-            log.info("If customer already exists, exception is thrown");
-            throw new CustomerAlreadyExistsException("Customer with this id already exists!!!");
+        if (customerDto.getId() != null && customerStore.existsById(customerDto.getId())) {
+            log.warn("Customer with id {} already exists", customerDto.getId());
+            throw new CustomerAlreadyExistsException();
+        }
+        Customer customerEntity = toEntityTimer.record(() -> CustomerMapper.MAPPER.customerDtoToCustomer(customerDto));
+        customerEntity.setId(null);
+        if (customerEntity.getAddress() != null) {
+            customerEntity.getAddress().setAddressId(null);
         }
+        Customer savedCustomer = customerStore.insert(customerEntity);
+        // the store assigns the id, a miss cached for it before the insert must not hide the new customer
+        customerCache.evict(savedCustomer.getId());
+        customerNameIndex.add(savedCustomer);
+        CustomerDto addedCustomer = toDtoTimer.record(() -> CustomerMapper.MAPPER.customerToCustomerDto(savedCustomer));
+        addedCustomer.setMessage("Customer added successfully!!!");
+        return addedCustomer;
+    }
+
+    public CustomerDto upsertCustomer(Long id, CustomerDto customerDto) {
+        if (customerDto.getAddressDto() == null) {
+            log.warn("Upsert without address {}", customerDto);
+            throw new InvalidRequestException("Invalid input, please try with valid data!!!");
+        }
+        CustomerDto savedCustomer = withId(id, customerDto);
+        customerStore.upsert(savedCustomer);
+        customerCache.evict(id);
+        customerNameIndex.add(toEntityTimer.record(() -> CustomerMapper.MAPPER.customerDtoToCustomer(savedCustomer)));
+        savedCustomer.setMessage("Customer saved successfully!!!");
+        return savedCustomer;
+    }
+
+    private static CustomerDto withId(Long id, CustomerDto customerDto) {
+        AddressDto addressDto = customerDto.getAddressDto();
+        return CustomerDto.builder()
+                .id(id)
+                .firstName(customerDto.getFirstName())
+                .lastName(customerDto.getLastName())
+                .age(customerDto.getAge())
+                .addressDto(AddressDto.builder()
+                        .addressLine1(addressDto.getAddressLine1())
+                        .addressLine2(addressDto.getAddressLine2())
+                        .postalCode(addressDto.getPostalCode())
+                        .city(addressDto.getCity())
+                        .country(addressDto.getCountry())
+                        .build())
+                .build();
     }
 
     public CustomerDto searchCustomerById(Long id) {
-        Optional<Customer> customer = customerRespository.findById(id);
+        CustomerDto cached = customerCache.get(id);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = customerCache.generation(id);
+        CustomerDto customerDto = byIdReads.execute(id, generation, () -> loadCustomerById(id));
+        customerCache.putIfCurrent(id, customerDto, generation);
+        return customerDto;
+    }
+
+    private CustomerDto loadCustomerById(Long id) {
+        Optional<Customer> customer = customerStore.findById(id);
         if (null == customer || !customer.isPresent()) {
-            throw new NoSuchCustomerExistsException("No Customer present with Id " + id);
+            throw new NoSuchCustomerExistsException();
         } else {
-            return CustomerMapper.MAPPER.customerToCustomerDto(customer.get());
+            return toDtoTimer.record(() -> CustomerMapper.MAPPER.customerToCustomerDto(customer.get()));
         }
     }
 
     public List<CustomerDto> searchCustomerByName(CustomerNameDto customerNameDto) {
-        List<Customer> customerList;
         validateNotNullAndThrowException(customerNameDto);
-        customerList = getCustomerListByName(customerNameDto);
+        return byNameReads.execute(Arrays.asList(customerNameDto.getFirstName(), customerNameDto.getLastName()),
+                customerCache.writeGeneration(), () -> loadCustomersByName(customerNameDto));
+    }
+
+    private List<CustomerDto> loadCustomersByName(CustomerNameDto customerNameDto) {
+        List<Customer> customerList = getCustomerListByName(customerNameDto);
         if (!customerList.isEmpty()) {
-            return CustomerMapper.MAPPER.customerToCustomerDtoList(customerList);
+            return toDtoListTimer.record(() -> CustomerMapper.MAPPER.customerToCustomerDtoList(customerList));
         } else {
-            throw new NoSuchCustomerExistsException("No Customer present with first name " +
-                    customerNameDto.getFirstName() + " and last name " + customerNameDto.getLastName());
+            throw new NoSuchCustomerExistsException();
+        }
+    }
+
+    public CustomerPageDto searchCustomerByNamePage(CustomerNameDto customerNameDto) {
+        validateNotNullAndThrowException(customerNameDto);
+        NameMatchMode matchMode = customerNameDto.getMatchMode() == null ? NameMatchMode.PREFIX : customerNameDto.getMatchMode();
+        if (matchMode == NameMatchMode.EXACT) {
+            throw new InvalidRequestException("Invalid input, exact match is served by /searchByName!!!");
+        }
+        if (customerNameDto.getAfter() != null && customerNameDto.getAfterName() == null) {
+            throw new InvalidRequestException("Invalid input, pass nextName as afterName together with after!!!");
+        }
+        int pageSize = pageSize(customerNameDto.getLimit());
+        String firstName = normalizedName(customerNameDto.getFirstName());
+        String afterName = customerNameDto.getAfterName() == null ? "" : customerNameDto.getAfterName();
+        long cursor = customerNameDto.getAfter() == null ? 0L : customerNameDto.getAfter();
+        List<Customer> customerList = customerStore.searchByNormalizedNames(firstName,
+                normalizedName(customerNameDto.getLastName()), matchMode, afterName, cursor, pageSize);
+        CustomerPageDto page = toPage(customerList, pageSize);
+        if (page.getNextCursor() != null) {
+            // name pages are ordered by the name searched on first, then id
+            Customer last = customerList.get(customerList.size() - 1);
+            page.setNextName(Customer.normalizeName(firstName != null ? last.getFirstName() : last.getLastName()));
         }
+        return page;
+    }
+
+    private static String normalizedName(String name) {
+        return StringUtils.isBlank(name) ? null : Customer.normalizeName(name);
     }
 
     private List<Customer> getCustomerListByName(CustomerNameDto customerNameDto) {
         if (StringUtils.isNotBlank(customerNameDto.getFirstName()) &&
                 StringUtils.isNotBlank(customerNameDto.getLastName())) {
-            return customerRespository
-                    .findCustomerByFirstNameAndLastName(customerNameDto.getFirstName(), customerNameDto.getLastName())
-                    .orElseThrow(() ->
-                            new NoSuchCustomerExistsException("No Customer present with first name " +
-                                    customerNameDto.getFirstName() + " and last name " + customerNameDto.getLastName()));
+            return customerStore.findByFirstNameAndLastName(customerNameDto.getFirstName(), customerNameDto.getLastName());
         } else {
-            return customerRespository.findCustomerByFirstNameOrLastName(customerNameDto.getFirstName(), customerNameDto.getLastName()).
-                    orElseThrow(() ->
-                            new NoSuchCustomerExistsException("No Customer present with first name "
-                                    + customerNameDto.getFirstName() + "or last name "+customerNameDto.getLastName()));
+            return customerStore.findByFirstNameOrLastName(customerNameDto.getFirstName(), customerNameDto.getLastName());
         }
     }
 
     private static void validateNotNullAndThrowException(CustomerNameDto customerNameDto) {
         if (StringUtils.isBlank(customerNameDto.getFirstName()) &&
                 StringUtils.isBlank(customerNameDto.getLastName())) {
-            log.error("Invalid input {}", customerNameDto);
+            log.warn("Invalid input {}", customerNameDto);
             throw new InvalidRequestException("Invalid input, please try with valid data!!!");
         }
     }
 
     public List<CustomerDto> getCustomers() {
-        List<Customer> customerList = customerRespository.findAll();
+        List<Customer> customerList = customerStore.findAll();
         if (customerList.isEmpty()) {
             return prepareEmptyCustomerDtoList();
         }
-        return CustomerMapper.MAPPER.customerToCustomerDtoList(customerList);
+        return toDtoListTimer.record(() -> CustomerMapper.MAPPER.customerToCustomerDtoList(customerList));
+    }
+
+    public CustomerPageDto getCustomersPage(Long afterId, Integer limit) {
+        int pageSize = pageSize(limit);
+        long cursor = afterId == null ? 0L : afterId;
+        List<Customer> customerList = customerStore.findPage(cursor, pageSize);
+        return toPage(customerList, pageSize);
+    }
+
+    private static int pageSize(Integer limit) {
+        return limit == null || limit <= 0 ? DEFAULT_PAGE_SIZE : Math.min(limit, MAX_PAGE_SIZE);
+    }
+
+    private CustomerPageDto toPage(List<Customer> customerList, int pageSize) {
+        Long nextCursor = customerList.size() < pageSize ? null : customerList.get(customerList.size() - 1).getId();
+        return CustomerPageDto.builder()
+                .customers(toDtoListTimer.record(() -> CustomerMapper.MAPPER.customerToCustomerDtoList(customerList)))
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    public void streamCustomers(Consumer<CustomerDto> consumer) {
+        customerStore.forEachOrderById(customer ->
+                consumer.accept(toDtoTimer.record(() -> CustomerMapper.MAPPER.customerToCustomerDto(customer))));
     }
 
     private static List<CustomerDto> prepareEmptyCustomerDtoList() {
@@ -101,16 +235,49 @@ public class CustomerService {
         return customerDtoList;
     }
 
+    public Optional<LocalDateTime> findLastModified(Long id) {
+        return customerStore.findLastModifiedById(id);
+    }
+
+    public void forEachLastModified(CustomerStore.LastModifiedVisitor visitor) {
+        customerStore.forEachLastModifiedOrderById(visitor);
+    }
+
     public String updateCustomer(CustomerPatchDto patchDto) {
-        Customer existingCustomer = customerRespository.findById(patchDto.getCustomerId())
-                .orElseThrow(() -> new NoSuchCustomerExistsException("No Customer present with Id " + patchDto.getCustomerId()));
-        Address updateCurrentAddress = AddressMapper.MAPPER.mapAddressDtoToAddress(patchDto.getAddressDto());
-        updateCurrentAddress.setAddressId(existingCustomer.getAddress().getAddressId());
-        updateCurrentAddress.setCreationTime(existingCustomer.getAddress().getCreationTime());
-        Address address = addressRepository.save(updateCurrentAddress);
-        if (null != address) {
-            return "Customer details updated successfully with id "+patchDto.getCustomerId();
+        return updateCustomer(patchDto, null);
+    }
+
+    /**
+     * Updates only if the customer's last modification is one of {@code expectedLastModified}, null updates
+     * unconditionally.
+     */
+    public String updateCustomer(CustomerPatchDto patchDto, Collection<LocalDateTime> expectedLastModified) {
+        validateAddressChanges(patchDto.getAddressDto());
+        int updated = expectedLastModified == null
+                ? customerStore.updateAddress(patchDto.getCustomerId(), patchDto.getAddressDto())
+                : customerStore.updateAddressIfUnmodified(patchDto.getCustomerId(), patchDto.getAddressDto(),
+                expectedLastModified);
+        if (updated == 0) {
+            throw new NoSuchCustomerExistsException();
         }
-        return "Customer details update failed for the id "+patchDto.getCustomerId();
+        customerCache.evict(patchDto.getCustomerId());
+        return "Customer details updated successfully with id "+patchDto.getCustomerId();
+    }
+
+    private static void validateAddressChanges(AddressDto addressDto) {
+        boolean noChanges = addressDto == null || (addressDto.getAddressLine1() == null
+                && addressDto.getAddressLine2() == null && addressDto.getPostalCode() == null
+                && addressDto.getCity() == null && addressDto.getCountry() == null);
+        boolean blankRequiredField = addressDto != null && (isPresentButBlank(addressDto.getAddressLine1())
+                || isPresentButBlank(addressDto.getPostalCode()) || isPresentButBlank(addressDto.getCity())
+                || isPresentButBlank(addressDto.getCountry()));
+        if (noChanges || blankRequiredField) {
+            log.warn("Invalid address changes {}", addressDto);
+            throw new InvalidRequestException("Invalid input, please try with valid data!!!");
+        }
+    }
+
+    private static boolean isPresentButBlank(String value) {
+        return value != null && StringUtils.isBlank(value);
     }
 }
@@ -0,0 +1,85 @@
+package com.domain.customer.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent calls with an equal key: the first caller runs the loader, callers arriving while it
+ * runs wait for and share its result or exception. Nothing is kept once the call completes, a later call loads
+ * again. Shared results are the same instance for every caller, so they must not be modified.
+ * <p>
+ * Callers pass the generation of the key they read before calling (see {@link CustomerCache#generation}). A
+ * call only joins a load started at the same or a later generation, so a reader arriving after a write never
+ * gets the result of a load that may have started before it.
+ */
+final class SingleFlight<K, V> {
+    private final ConcurrentHashMap<K, Call<V>> inFlight = new ConcurrentHashMap<>();
+    private final boolean enabled;
+    private final Counter coalescedCounter;
+
+    SingleFlight(MeterRegistry meterRegistry, String operation, boolean enabled) {
+        this.enabled = enabled;
+        this.coalescedCounter = Counter.builder("customer.reads.coalesced")
+                .description("Reads served by an identical read that was already in flight")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    V execute(K key, Supplier<V> loader) {
+        return execute(key, 0, loader);
+    }
+
+    V execute(K key, long generation, Supplier<V> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        Call<V> call = new Call<>(generation);
+        Call<V> existing = inFlight.putIfAbsent(key, call);
+        while (existing != null) {
+            if (existing.generation >= generation) {
+                coalescedCounter.increment();
+                return join(existing.result);
+            }
+            // started before a write this caller already saw, later callers share this call instead
+            existing = inFlight.replace(key, existing, call) ? null : inFlight.putIfAbsent(key, call);
+        }
+        try {
+            V value = loader.get();
+            call.result.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            call.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    private static <V> V join(CompletableFuture<V> call) {
+        try {
+            return call.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static final class Call<V> {
+        private final long generation;
+        private final CompletableFuture<V> result = new CompletableFuture<>();
+
+        private Call(long generation) {
+            this.generation = generation;
+        }
+    }
+}
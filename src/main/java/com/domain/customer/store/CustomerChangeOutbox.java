@@ -0,0 +1,178 @@
+package com.domain.customer.store;
+
+import com.domain.customer.dto.CustomerChangeDto;
+import com.domain.customer.dto.CustomerChangeType;
+import com.domain.customer.exception.ChangeFeedExpiredException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outbox of customer mutations, appended to by the jpa store in the transaction of the mutation. Sequence
+ * numbers come from {@code customer_change_seq}, so writers do not wait for each other, but a change can commit
+ * after one with a higher sequence. A reader therefore stops before a gap in the sequences until it has seen the
+ * gap for {@code customers.changes.settle-ms}, or the change after the gap was appended longer ago than that: the
+ * missing change is either still committing or was rolled back. Change times are the time of the append, not of
+ * the transaction start, which may lie long before it (PostgreSQL's clock_timestamp(); on h2, whose clock
+ * functions all return the transaction start, the clock of the appending node). The mapped store does not write
+ * to the outbox.
+ */
+@Component
+public class CustomerChangeOutbox {
+    static final String NEXT_SEQUENCES_H2_SQL = "select next value for customer_change_seq from system_range(1, ?)";
+    static final String NEXT_SEQUENCES_POSTGRES_SQL = "select nextval('customer_change_seq') from generate_series(1, ?)";
+    static final String PRUNED_THROUGH_SQL = "select pruned_through from customer_change_head where id = 1";
+    static final String INSERT_CHANGE_H2_SQL = "insert into customer_change (sequence_number, customer_id, " +
+            "change_type, change_time) values (?, ?, ?, ?)";
+    static final String INSERT_CHANGE_POSTGRES_SQL = "insert into customer_change (sequence_number, customer_id, " +
+            "change_type, change_time) values (?, ?, ?, cast(clock_timestamp() as timestamp))";
+    static final String READ_CHANGES_SQL = "select sequence_number, customer_id, change_type, change_time " +
+            "from customer_change where sequence_number > ? order by sequence_number limit ?";
+    static final String NOW_SQL = "select localtimestamp";
+    static final String LAST_SEQUENCE_BEFORE_SQL = "select max(sequence_number) from customer_change " +
+            "where change_time < ?";
+    static final String DELETE_CHANGES_SQL = "delete from customer_change where sequence_number <= ?";
+    static final String MARK_PRUNED_SQL = "update customer_change_head set pruned_through = ? " +
+            "where id = 1 and pruned_through < ?";
+    private static final RowMapper<CustomerChangeDto> CHANGE_ROW_MAPPER = (resultSet, rowNum) ->
+            CustomerChangeDto.builder()
+                    .sequence(resultSet.getLong(1))
+                    .customerId(resultSet.getLong(2))
+                    .type(CustomerChangeType.valueOf(resultSet.getString(3)))
+                    .changeTime(resultSet.getTimestamp(4).toLocalDateTime())
+                    .build();
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final long settleMs;
+    /**
+     * First missing sequence of each gap this instance has read up to, with the {@link System#nanoTime()} it was
+     * first seen at.
+     */
+    private final ConcurrentSkipListMap<Long, Long> gapsFirstSeen = new ConcurrentSkipListMap<>();
+    private volatile Boolean postgres;
+
+    public CustomerChangeOutbox(JdbcTemplate jdbcTemplate,
+                                ApplicationEventPublisher eventPublisher,
+                                @Value("${customers.changes.settle-ms:5000}") long settleMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.settleMs = settleMs;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(CustomerChangeType type, Collection<Long> customerIds) {
+        if (customerIds.isEmpty()) {
+            return;
+        }
+        boolean postgres = isPostgres();
+        List<Long> sequences = jdbcTemplate.queryForList(postgres ? NEXT_SEQUENCES_POSTGRES_SQL : NEXT_SEQUENCES_H2_SQL,
+                Long.class, customerIds.size());
+        Collections.sort(sequences);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(customerIds.size());
+        int index = 0;
+        for (Long customerId : customerIds) {
+            rows.add(postgres ? new Object[]{sequences.get(index++), customerId, type.name()}
+                    : new Object[]{sequences.get(index++), customerId, type.name(), now});
+        }
+        jdbcTemplate.batchUpdate(postgres ? INSERT_CHANGE_POSTGRES_SQL : INSERT_CHANGE_H2_SQL, rows);
+        eventPublisher.publishEvent(new CustomerChangesAppended(sequences.get(sequences.size() - 1)));
+    }
+
+    /**
+     * Changes with a sequence after {@code afterSequence} in sequence order, up to the first gap that may still
+     * be filled by a committing change.
+     *
+     * @throws ChangeFeedExpiredException if changes after {@code afterSequence} were already pruned
+     */
+    public List<CustomerChangeDto> findAfter(long afterSequence, int limit) {
+        List<CustomerChangeDto> changes = settled(afterSequence,
+                jdbcTemplate.query(READ_CHANGES_SQL, CHANGE_ROW_MAPPER, afterSequence, limit));
+        // checked after reading, a prune that committed in between is still noticed
+        long prunedThrough = jdbcTemplate.queryForObject(PRUNED_THROUGH_SQL, Long.class);
+        if (afterSequence < prunedThrough) {
+            throw new ChangeFeedExpiredException("Changes after sequence " + afterSequence
+                    + " were pruned, resume after " + prunedThrough + " once resynchronized");
+        }
+        return changes;
+    }
+
+    /**
+     * A sequence to start following the outbox from: the last change older than the settle delay, so a change
+     * still committing with an earlier sequence is read after it rather than skipped.
+     */
+    public long lastSettledSequence() {
+        LocalDateTime settledBefore = jdbcTemplate.queryForObject(NOW_SQL, Timestamp.class)
+                .toLocalDateTime().minus(settleMs, ChronoUnit.MILLIS);
+        Long lastSequence = jdbcTemplate.queryForObject(LAST_SEQUENCE_BEFORE_SQL, Long.class,
+                Timestamp.valueOf(settledBefore));
+        return lastSequence != null ? lastSequence : jdbcTemplate.queryForObject(PRUNED_THROUGH_SQL, Long.class);
+    }
+
+    /**
+     * Deletes the changes recorded before {@code cutoff}, returns the number of deleted changes.
+     */
+    @Transactional
+    public int pruneBefore(LocalDateTime cutoff) {
+        Long prunedThrough = jdbcTemplate.queryForObject(LAST_SEQUENCE_BEFORE_SQL, Long.class,
+                Timestamp.valueOf(cutoff));
+        if (prunedThrough == null) {
+            return 0;
+        }
+        int deleted = jdbcTemplate.update(DELETE_CHANGES_SQL, prunedThrough);
+        jdbcTemplate.update(MARK_PRUNED_SQL, prunedThrough, prunedThrough);
+        gapsFirstSeen.headMap(prunedThrough, true).clear();
+        return deleted;
+    }
+
+    private List<CustomerChangeDto> settled(long afterSequence, List<CustomerChangeDto> changes) {
+        long expected = afterSequence + 1;
+        for (int i = 0; i < changes.size(); i++) {
+            CustomerChangeDto change = changes.get(i);
+            if (change.getSequence() != expected && !gapSettled(expected, change)) {
+                return changes.subList(0, i);
+            }
+            expected = change.getSequence() + 1;
+        }
+        return changes;
+    }
+
+    /**
+     * The change after the gap drew its sequence after the missing one, so once it is older than the settle delay
+     * the missing change had that long to commit. Otherwise the gap is timed from when it was first read, which
+     * does not depend on any clock but this instance's.
+     */
+    private boolean gapSettled(long missingSequence, CustomerChangeDto changeAfterGap) {
+        long firstSeen = gapsFirstSeen.computeIfAbsent(missingSequence, sequence -> System.nanoTime());
+        if (System.nanoTime() - firstSeen >= TimeUnit.MILLISECONDS.toNanos(settleMs)) {
+            return true;
+        }
+        LocalDateTime settledBefore = jdbcTemplate.queryForObject(NOW_SQL, Timestamp.class)
+                .toLocalDateTime().minus(settleMs, ChronoUnit.MILLIS);
+        return changeAfterGap.getChangeTime().isBefore(settledBefore);
+    }
+
+    private boolean isPostgres() {
+        if (postgres == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            postgres = "PostgreSQL".equals(product);
+        }
+        return postgres;
+    }
+}
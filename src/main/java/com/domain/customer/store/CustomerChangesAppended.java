@@ -0,0 +1,14 @@
+package com.domain.customer.store;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Published by {@link CustomerChangeOutbox#append} inside the writing transaction, listeners that only act on
+ * committed changes use {@code @TransactionalEventListener}.
+ */
+@Getter
+@RequiredArgsConstructor
+public class CustomerChangesAppended {
+    private final long lastSequence;
+}
@@ -0,0 +1,84 @@
+package com.domain.customer.store;
+
+import com.domain.customer.dto.AddressDto;
+import com.domain.customer.dto.CustomerDto;
+import com.domain.customer.dto.NameMatchMode;
+import com.domain.customer.entity.Customer;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Storage operations used by the services, selected with {@code customers.store}: {@code jpa} (default)
+ * goes through the JPA repositories, {@code mapped} keeps customers in a memory-mapped append-only file.
+ * Name arguments of {@link #searchByNormalizedNames} are already normalized, a null name is not filtered on.
+ */
+public interface CustomerStore {
+    boolean existsById(Long id);
+
+    Customer insert(Customer customer);
+
+    List<Customer> insertAll(List<Customer> customers);
+
+    void upsert(CustomerDto customerDto);
+
+    Optional<Customer> findById(Long id);
+
+    /**
+     * Customers for the given ids in no particular order, ids that do not exist are left out.
+     */
+    List<Customer> findAllById(Collection<Long> ids);
+
+    /**
+     * {@link Customer#lastModified()} of a customer, without loading it.
+     */
+    Optional<LocalDateTime> findLastModifiedById(Long id);
+
+    List<Customer> findByFirstNameAndLastName(String firstName, String lastName);
+
+    List<Customer> findByFirstNameOrLastName(String firstName, String lastName);
+
+    List<Customer> findAll();
+
+    List<Customer> findPage(long afterId, int limit);
+
+    /**
+     * Matches ordered by normalized first name, or by normalized last name when no first name is given, then
+     * by id; returns the ones after the {@code (afterName, afterId)} position in that order. The first page
+     * starts after {@code ("", 0)}.
+     */
+    List<Customer> searchByNormalizedNames(String firstName, String lastName, NameMatchMode matchMode,
+                                           String afterName, long afterId, int limit);
+
+    void forEachOrderById(Consumer<Customer> consumer);
+
+    void forEachNameOrderById(NameVisitor visitor);
+
+    /**
+     * {@link Customer#lastModified()} of every customer in id order, without loading the customers.
+     */
+    void forEachLastModifiedOrderById(LastModifiedVisitor visitor);
+
+    int updateAddress(Long customerId, AddressDto changes);
+
+    /**
+     * Like {@link #updateAddress} but only if the customer's {@link Customer#lastModified()} is one of
+     * {@code expectedLastModified}; the check and the update are atomic.
+     *
+     * @throws com.domain.customer.exception.CustomerModifiedException if the customer exists but changed
+     */
+    int updateAddressIfUnmodified(Long customerId, AddressDto changes, Collection<LocalDateTime> expectedLastModified);
+
+    @FunctionalInterface
+    interface NameVisitor {
+        void visit(long id, String firstName, String lastName);
+    }
+
+    @FunctionalInterface
+    interface LastModifiedVisitor {
+        void visit(long id, LocalDateTime lastModified);
+    }
+}
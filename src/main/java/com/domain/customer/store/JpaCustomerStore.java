@@ -0,0 +1,244 @@
+package com.domain.customer.store;
+
+import com.domain.customer.dto.AddressDto;
+import com.domain.customer.dto.CustomerChangeType;
+import com.domain.customer.dto.CustomerDto;
+import com.domain.customer.dto.NameMatchMode;
+import com.domain.customer.entity.Customer;
+import com.domain.customer.exception.CustomerModifiedException;
+import com.domain.customer.repository.AddressRepository;
+import com.domain.customer.repository.CustomerNameProjection;
+import com.domain.customer.repository.CustomerRespository;
+import com.domain.customer.repository.CustomerUpdateTimesProjection;
+import com.domain.customer.service.AddressWriteBehindQueue;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "customers.store", havingValue = "jpa", matchIfMissing = true)
+public class JpaCustomerStore implements CustomerStore {
+    static final int ID_CHUNK_SIZE = 500;
+    private final CustomerRespository customerRespository;
+    private final AddressRepository addressRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final AddressWriteBehindQueue addressWriteBehindQueue;
+    private final CustomerChangeOutbox customerChangeOutbox;
+
+    /**
+     * Runs in a read-write transaction so that, with a read replica, the duplicate check before an insert sees
+     * the primary rather than a replica that may lag behind it.
+     */
+    @Override
+    @Transactional
+    public boolean existsById(Long id) {
+        return customerRespository.existsById(id);
+    }
+
+    @Override
+    public Customer insert(Customer customer) {
+        return transactionTemplate.execute(status -> {
+            Customer savedCustomer = customerRespository.save(customer);
+            customerChangeOutbox.append(CustomerChangeType.CREATED, List.of(savedCustomer.getId()));
+            return savedCustomer;
+        });
+    }
+
+    /**
+     * Persists all customers in one transaction; Hibernate groups the inserts into JDBC batches.
+     */
+    @Override
+    public List<Customer> insertAll(List<Customer> customers) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                customers.forEach(entityManager::persist);
+                entityManager.flush();
+                entityManager.clear();
+                customerChangeOutbox.append(CustomerChangeType.CREATED,
+                        customers.stream().map(Customer::getId).collect(Collectors.toList()));
+            });
+            return customers;
+        } catch (RuntimeException e) {
+            entityManager.clear();
+            throw e;
+        }
+    }
+
+    @Override
+    public void upsert(CustomerDto customerDto) {
+        transactionTemplate.executeWithoutResult(status -> {
+            customerRespository.upsert(customerDto);
+            customerChangeOutbox.append(CustomerChangeType.SAVED, List.of(customerDto.getId()));
+        });
+    }
+
+    /**
+     * Read from the primary, the result fills the customer cache and a lagging replica would cache a customer
+     * as it was before a write that already evicted it.
+     */
+    @Override
+    @Transactional
+    public Optional<Customer> findById(Long id) {
+        return customerRespository.findById(id);
+    }
+
+    /**
+     * One {@code IN} query per {@value #ID_CHUNK_SIZE} ids, which keeps the bind parameters per statement
+     * within what the drivers accept.
+     */
+    @Override
+    public List<Customer> findAllById(Collection<Long> ids) {
+        List<Long> idList = new ArrayList<>(ids);
+        List<Customer> customers = new ArrayList<>(idList.size());
+        for (int from = 0; from < idList.size(); from += ID_CHUNK_SIZE) {
+            customers.addAll(customerRespository.findByIdIn(
+                    idList.subList(from, Math.min(from + ID_CHUNK_SIZE, idList.size()))));
+        }
+        return customers;
+    }
+
+    /**
+     * Read from the primary as well, the validators it produces guard conditional updates.
+     */
+    @Override
+    @Transactional
+    public Optional<LocalDateTime> findLastModifiedById(Long id) {
+        return customerRespository.findUpdateTimesById(id)
+                .map(updateTimes -> Customer.lastModified(updateTimes.getCustomerUpdateTime(),
+                        updateTimes.getAddressUpdateTime()));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Customer> findByFirstNameAndLastName(String firstName, String lastName) {
+        return customerRespository.findCustomerByFirstNameAndLastName(firstName, lastName).orElse(List.of());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Customer> findByFirstNameOrLastName(String firstName, String lastName) {
+        return customerRespository.findCustomerByFirstNameOrLastName(firstName, lastName).orElse(List.of());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Customer> findAll() {
+        return customerRespository.findAll();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Customer> findPage(long afterId, int limit) {
+        return customerRespository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, limit));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Customer> searchByNormalizedNames(String firstName, String lastName, NameMatchMode matchMode,
+                                                  String afterName, long afterId, int limit) {
+        String firstNamePattern = namePattern(firstName, matchMode);
+        String lastNamePattern = namePattern(lastName, matchMode);
+        PageRequest pageRequest = PageRequest.of(0, limit);
+        if (firstNamePattern != null && lastNamePattern != null) {
+            return customerRespository.searchByNormalizedNames(firstNamePattern, lastNamePattern, afterName, afterId,
+                    pageRequest);
+        } else if (firstNamePattern != null) {
+            return customerRespository.searchByNormalizedFirstName(firstNamePattern, afterName, afterId, pageRequest);
+        }
+        return customerRespository.searchByNormalizedLastName(lastNamePattern, afterName, afterId, pageRequest);
+    }
+
+    private static String namePattern(String normalizedName, NameMatchMode matchMode) {
+        if (normalizedName == null) {
+            return null;
+        }
+        String escaped = normalizedName
+                .replace("!", "!!")
+                .replace("%", "!%")
+                .replace("_", "!_");
+        return matchMode == NameMatchMode.PREFIX ? escaped + "%" : escaped;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachOrderById(Consumer<Customer> consumer) {
+        try (Stream<Customer> customers = customerRespository.streamAllOrderById()) {
+            customers.forEach(customer -> {
+                consumer.accept(customer);
+                entityManager.detach(customer);
+            });
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachNameOrderById(NameVisitor visitor) {
+        try (Stream<CustomerNameProjection> names = customerRespository.streamNamesOrderById()) {
+            names.forEach(name -> visitor.visit(name.getId(), name.getFirstName(), name.getLastName()));
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachLastModifiedOrderById(LastModifiedVisitor visitor) {
+        try (Stream<CustomerUpdateTimesProjection> updateTimes = customerRespository.streamUpdateTimesOrderById()) {
+            updateTimes.forEach(times -> visitor.visit(times.getId(), Customer.lastModified(
+                    times.getCustomerUpdateTime(), times.getAddressUpdateTime())));
+        }
+    }
+
+    @Override
+    public int updateAddress(Long customerId, AddressDto changes) {
+        if (addressWriteBehindQueue.isEnabled()) {
+            addressWriteBehindQueue.update(customerId, changes);
+            return 1;
+        }
+        Integer updated = transactionTemplate.execute(status ->
+                appendAddressUpdated(customerId, addressRepository.updateAddressOfCustomer(customerId, changes)));
+        return updated == null ? 0 : updated;
+    }
+
+    /**
+     * Locks the customer and address rows, compares the last modification and updates in the same transaction.
+     * Conditional updates bypass the write-behind queue, whose batches wait on the address row lock.
+     */
+    @Override
+    public int updateAddressIfUnmodified(Long customerId, AddressDto changes,
+                                         Collection<LocalDateTime> expectedLastModified) {
+        Integer updated = transactionTemplate.execute(status -> {
+            Customer customer = entityManager.find(Customer.class, customerId, LockModeType.PESSIMISTIC_WRITE);
+            if (customer == null || customer.getAddress() == null) {
+                return 0;
+            }
+            entityManager.lock(customer.getAddress(), LockModeType.PESSIMISTIC_WRITE);
+            if (!expectedLastModified.contains(customer.lastModified())) {
+                throw new CustomerModifiedException("Customer with id " + customerId + " was modified");
+            }
+            return appendAddressUpdated(customerId, addressRepository.updateAddressOfCustomer(customerId, changes));
+        });
+        return updated == null ? 0 : updated;
+    }
+
+    private int appendAddressUpdated(Long customerId, int updated) {
+        if (updated > 0) {
+            customerChangeOutbox.append(CustomerChangeType.ADDRESS_UPDATED, List.of(customerId));
+        }
+        return updated;
+    }
+}
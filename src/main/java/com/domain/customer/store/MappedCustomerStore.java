@@ -0,0 +1,609 @@
+package com.domain.customer.store;
+
+import com.domain.customer.dto.AddressDto;
+import com.domain.customer.dto.CustomerDto;
+import com.domain.customer.dto.NameMatchMode;
+import com.domain.customer.entity.Address;
+import com.domain.customer.entity.Customer;
+import com.domain.customer.exception.CustomerModifiedException;
+import com.domain.customer.mapper.CustomerMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Customer store for read-mostly nodes that bypasses JPA, enabled with {@code customers.store=mapped}.
+ * Every write appends the complete customer record to a file that is memory-mapped in segments of
+ * {@code customers.mapped-store.segment-size} bytes, so records live off-heap in the page cache. A sorted
+ * id to offset index (two primitive arrays) points at the latest record of every customer; on restart the
+ * file is mapped and scanned once to rebuild it. Name queries scan the records in id order, name pages
+ * keep the first matches in (name, id) order.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "customers.store", havingValue = "mapped")
+public class MappedCustomerStore implements CustomerStore {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int SCAN_CHUNK = 1000;
+    private static final int SKIP_TO_NEXT_SEGMENT = -1;
+    private static final int NULL_STRING = -1;
+    private static final int NULL_AGE = Integer.MIN_VALUE;
+    private static final long NULL_LONG = Long.MIN_VALUE;
+    private static final int HEADER_BYTES = 6 * Long.BYTES + Integer.BYTES;
+    private static final Comparator<NameMatch> NAME_ORDER =
+            Comparator.<NameMatch, String>comparing(match -> match.name).thenComparingLong(match -> match.id);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final FileChannel channel;
+    private final int segmentSize;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private long[] offsets = new long[INITIAL_CAPACITY];
+    private int size;
+    private long writePosition;
+    private long nextAddressId = 1;
+
+    public MappedCustomerStore(@Value("${customers.mapped-store.path:./customers.store}") String path,
+                               @Value("${customers.mapped-store.segment-size:268435456}") int segmentSize,
+                               @Value("${customers.address.write-behind.enabled:false}") boolean writeBehindEnabled)
+            throws IOException {
+        if (writeBehindEnabled) {
+            throw new IllegalStateException("Address write-behind is only supported with customers.store=jpa");
+        }
+        this.segmentSize = segmentSize;
+        this.channel = FileChannel.open(Path.of(path), CREATE, READ, WRITE);
+        recover();
+        log.info("Mapped customer store {} opened with {} customers in {} segments", path, size, segments.size());
+    }
+
+    private void recover() throws IOException {
+        long segmentCount = Math.max(1, (channel.size() + segmentSize - 1) / segmentSize);
+        while (segments.size() < segmentCount) {
+            mapNextSegment();
+        }
+        long position = 0;
+        while (segmentIndex(position) < segments.size()) {
+            int within = (int) (position % segmentSize);
+            MappedByteBuffer segment = segments.get(segmentIndex(position));
+            int length = segmentSize - within < Integer.BYTES ? SKIP_TO_NEXT_SEGMENT : segment.getInt(within);
+            if (length == 0) {
+                break;
+            }
+            if (length == SKIP_TO_NEXT_SEGMENT) {
+                position += segmentSize - within;
+                continue;
+            }
+            long addressId = segment.getLong(within + Integer.BYTES + Long.BYTES);
+            if (addressId != NULL_LONG) {
+                nextAddressId = Math.max(nextAddressId, addressId + 1);
+            }
+            index(segment.getLong(within + Integer.BYTES), position);
+            position += Integer.BYTES + length;
+        }
+        writePosition = position;
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        lock.readLock().lock();
+        try {
+            return id != null && indexOf(id) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Customer insert(Customer customer) {
+        lock.writeLock().lock();
+        try {
+            return insertLocked(customer);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Checks that every record fits in a segment before appending any, so a rejected batch leaves no partial writes.
+     */
+    @Override
+    public List<Customer> insertAll(List<Customer> customers) {
+        customers.forEach(customer -> recordBytes(encodeStrings(customer)));
+        lock.writeLock().lock();
+        try {
+            customers.forEach(this::insertLocked);
+            return customers;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Customer insertLocked(Customer customer) {
+        LocalDateTime now = LocalDateTime.now();
+        customer.setId(size == 0 ? 1 : ids[size - 1] + 1);
+        customer.setCreationTime(now);
+        customer.setUpdateTime(now);
+        if (customer.getAddress() != null) {
+            customer.getAddress().setAddressId(nextAddressId++);
+            customer.getAddress().setCreationTime(now);
+            customer.getAddress().setUpdateTime(now);
+        }
+        write(customer);
+        return customer;
+    }
+
+    /**
+     * Keeps the creation times and address id of an existing customer, like the JPA MERGE statements.
+     */
+    @Override
+    public void upsert(CustomerDto customerDto) {
+        LocalDateTime now = LocalDateTime.now();
+        Customer customer = CustomerMapper.MAPPER.customerDtoToCustomer(customerDto);
+        lock.writeLock().lock();
+        try {
+            int position = indexOf(customer.getId());
+            Customer existing = position >= 0 ? read(offsets[position]) : null;
+            customer.setCreationTime(existing == null ? now : existing.getCreationTime());
+            customer.setUpdateTime(now);
+            if (customer.getAddress() != null) {
+                Address existingAddress = existing == null ? null : existing.getAddress();
+                customer.getAddress().setAddressId(existingAddress == null ? nextAddressId++ : existingAddress.getAddressId());
+                customer.getAddress().setCreationTime(existingAddress == null ? now : existingAddress.getCreationTime());
+                customer.getAddress().setUpdateTime(now);
+            }
+            write(customer);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<Customer> findById(Long id) {
+        lock.readLock().lock();
+        try {
+            int position = id == null ? -1 : indexOf(id);
+            return position >= 0 ? Optional.of(read(offsets[position])) : Optional.empty();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Customer> findAllById(Collection<Long> ids) {
+        List<Customer> customers = new ArrayList<>(ids.size());
+        lock.readLock().lock();
+        try {
+            for (Long id : ids) {
+                int position = id == null ? -1 : indexOf(id);
+                if (position >= 0) {
+                    customers.add(read(offsets[position]));
+                }
+            }
+            return customers;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<LocalDateTime> findLastModifiedById(Long id) {
+        return findById(id).map(Customer::lastModified);
+    }
+
+    @Override
+    public List<Customer> findByFirstNameAndLastName(String firstName, String lastName) {
+        return scan(0, Integer.MAX_VALUE, (first, last) -> Objects.equals(first, firstName) && Objects.equals(last, lastName));
+    }
+
+    @Override
+    public List<Customer> findByFirstNameOrLastName(String firstName, String lastName) {
+        return scan(0, Integer.MAX_VALUE, (first, last) -> Objects.equals(first, firstName) || Objects.equals(last, lastName));
+    }
+
+    @Override
+    public List<Customer> findAll() {
+        return scan(0, Integer.MAX_VALUE, null);
+    }
+
+    @Override
+    public List<Customer> findPage(long afterId, int limit) {
+        return scan(afterId, limit, null);
+    }
+
+    @Override
+    public List<Customer> searchByNormalizedNames(String firstName, String lastName, NameMatchMode matchMode,
+                                                  String afterName, long afterId, int limit) {
+        // largest (name, id) on top, so the heap keeps the first limit matches after the cursor
+        PriorityQueue<NameMatch> page = new PriorityQueue<>(Math.min(limit, SCAN_CHUNK), NAME_ORDER.reversed());
+        forEachNameOrderById((id, first, last) -> {
+            String normalizedFirst = Customer.normalizeName(first);
+            String normalizedLast = Customer.normalizeName(last);
+            if (!matches(normalizedFirst, firstName, matchMode) || !matches(normalizedLast, lastName, matchMode)) {
+                return;
+            }
+            NameMatch match = new NameMatch(firstName != null ? normalizedFirst : normalizedLast, id);
+            if (NAME_ORDER.compare(match, new NameMatch(afterName, afterId)) <= 0) {
+                return;
+            }
+            if (page.size() < limit) {
+                page.add(match);
+            } else if (NAME_ORDER.compare(match, page.peek()) < 0) {
+                page.poll();
+                page.add(match);
+            }
+        });
+        List<NameMatch> matches = new ArrayList<>(page);
+        matches.sort(NAME_ORDER);
+        List<Long> matchIds = new ArrayList<>(matches.size());
+        matches.forEach(match -> matchIds.add(match.id));
+        return findAllById(matchIds);
+    }
+
+    private static boolean matches(String value, String query, NameMatchMode matchMode) {
+        if (query == null) {
+            return true;
+        }
+        return value != null && (matchMode == NameMatchMode.PREFIX ? value.startsWith(query) : value.equals(query));
+    }
+
+    @Override
+    public void forEachOrderById(Consumer<Customer> consumer) {
+        long cursor = 0;
+        List<Customer> chunk;
+        do {
+            chunk = findPage(cursor, SCAN_CHUNK);
+            chunk.forEach(consumer);
+            cursor = chunk.isEmpty() ? cursor : chunk.get(chunk.size() - 1).getId();
+        } while (chunk.size() == SCAN_CHUNK);
+    }
+
+    @Override
+    public void forEachNameOrderById(NameVisitor visitor) {
+        forEachPositionOrderById(i -> {
+            String[] names = readNames(offsets[i]);
+            visitor.visit(ids[i], names[0], names[1]);
+        });
+    }
+
+    @Override
+    public void forEachLastModifiedOrderById(LastModifiedVisitor visitor) {
+        forEachPositionOrderById(i -> visitor.visit(ids[i], readLastModified(offsets[i])));
+    }
+
+    /**
+     * Visits the index positions in chunks of {@value #SCAN_CHUNK}, holding the read lock for one chunk at a time.
+     */
+    private void forEachPositionOrderById(IntConsumer visitor) {
+        long cursor = 0;
+        while (true) {
+            lock.readLock().lock();
+            try {
+                int position = firstAfter(cursor);
+                int end = Math.min(size, position + SCAN_CHUNK);
+                for (int i = position; i < end; i++) {
+                    visitor.accept(i);
+                }
+                if (end == size) {
+                    return;
+                }
+                cursor = ids[end - 1];
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+
+    @Override
+    public int updateAddress(Long customerId, AddressDto changes) {
+        return updateAddressIfUnmodified(customerId, changes, null);
+    }
+
+    @Override
+    public int updateAddressIfUnmodified(Long customerId, AddressDto changes,
+                                         Collection<LocalDateTime> expectedLastModified) {
+        lock.writeLock().lock();
+        try {
+            int position = indexOf(customerId);
+            Customer customer = position >= 0 ? read(offsets[position]) : null;
+            if (customer == null || customer.getAddress() == null) {
+                return 0;
+            }
+            if (expectedLastModified != null && !expectedLastModified.contains(customer.lastModified())) {
+                throw new CustomerModifiedException("Customer with id " + customerId + " was modified");
+            }
+            Address address = customer.getAddress();
+            if (changes.getAddressLine1() != null) {
+                address.setAddressLine1(changes.getAddressLine1());
+            }
+            if (changes.getAddressLine2() != null) {
+                address.setAddressLine2(changes.getAddressLine2());
+            }
+            if (changes.getPostalCode() != null) {
+                address.setPostalCode(changes.getPostalCode());
+            }
+            if (changes.getCity() != null) {
+                address.setCity(changes.getCity());
+            }
+            if (changes.getCountry() != null) {
+                address.setCountry(changes.getCountry());
+            }
+            address.setUpdateTime(LocalDateTime.now());
+            write(customer);
+            return 1;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            segments.forEach(MappedByteBuffer::force);
+            channel.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Walks the index in chunks of {@link #SCAN_CHUNK} ids, releasing the read lock between chunks so that
+     * a long scan does not hold up writers. A null filter matches every customer.
+     */
+    private List<Customer> scan(long afterId, int limit, BiPredicate<String, String> nameFilter) {
+        List<Customer> customers = new ArrayList<>(Math.min(limit, SCAN_CHUNK));
+        long cursor = afterId;
+        while (customers.size() < limit) {
+            lock.readLock().lock();
+            try {
+                int position = firstAfter(cursor);
+                int end = Math.min(size, position + SCAN_CHUNK);
+                for (int i = position; i < end && customers.size() < limit; i++) {
+                    if (nameFilter == null) {
+                        customers.add(read(offsets[i]));
+                        continue;
+                    }
+                    String[] names = readNames(offsets[i]);
+                    if (nameFilter.test(names[0], names[1])) {
+                        customers.add(read(offsets[i]));
+                    }
+                }
+                if (end == size) {
+                    break;
+                }
+                cursor = ids[end - 1];
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+        return customers;
+    }
+
+    /**
+     * Record layout: length, id, address id, age, customer and address creation/update times as epoch nanos,
+     * then first name, last name and the address fields as length-prefixed UTF-8. The length is written last,
+     * so a record torn by a crash reads as the end of the file.
+     */
+    private void write(Customer customer) {
+        Address address = customer.getAddress();
+        byte[][] strings = encodeStrings(customer);
+        int recordBytes = recordBytes(strings);
+        int length = recordBytes - Integer.BYTES;
+        int within = (int) (writePosition % segmentSize);
+        if (segmentSize - within < recordBytes) {
+            if (segmentSize - within >= Integer.BYTES) {
+                segments.get(segmentIndex(writePosition)).putInt(within, SKIP_TO_NEXT_SEGMENT);
+            }
+            writePosition += segmentSize - within;
+            within = 0;
+        }
+        while (segmentIndex(writePosition) >= segments.size()) {
+            mapNextSegment();
+        }
+        MappedByteBuffer segment = segments.get(segmentIndex(writePosition));
+        ByteBuffer buffer = segment.duplicate();
+        buffer.position(within + Integer.BYTES);
+        buffer.putLong(customer.getId());
+        buffer.putLong(address == null ? NULL_LONG : address.getAddressId());
+        buffer.putInt(customer.getAge() == null ? NULL_AGE : customer.getAge());
+        buffer.putLong(epochNanos(customer.getCreationTime()));
+        buffer.putLong(epochNanos(customer.getUpdateTime()));
+        buffer.putLong(address == null ? NULL_LONG : epochNanos(address.getCreationTime()));
+        buffer.putLong(address == null ? NULL_LONG : epochNanos(address.getUpdateTime()));
+        for (byte[] string : strings) {
+            buffer.putInt(string == null ? NULL_STRING : string.length);
+            if (string != null) {
+                buffer.put(string);
+            }
+        }
+        segment.putInt(within, length);
+        index(customer.getId(), writePosition);
+        writePosition += recordBytes;
+        customer.setFirstNameNormalized(Customer.normalizeName(customer.getFirstName()));
+        customer.setLastNameNormalized(Customer.normalizeName(customer.getLastName()));
+    }
+
+    private static byte[][] encodeStrings(Customer customer) {
+        Address address = customer.getAddress();
+        return new byte[][]{
+                utf8(customer.getFirstName()), utf8(customer.getLastName()),
+                address == null ? null : utf8(address.getAddressLine1()),
+                address == null ? null : utf8(address.getAddressLine2()),
+                address == null ? null : utf8(address.getPostalCode()),
+                address == null ? null : utf8(address.getCity()),
+                address == null ? null : utf8(address.getCountry())
+        };
+    }
+
+    private int recordBytes(byte[][] strings) {
+        int recordBytes = Integer.BYTES + HEADER_BYTES;
+        for (byte[] string : strings) {
+            recordBytes += Integer.BYTES + (string == null ? 0 : string.length);
+        }
+        if (recordBytes > segmentSize) {
+            throw new IllegalArgumentException("Customer record of " + recordBytes
+                    + " bytes does not fit in a segment of " + segmentSize + " bytes");
+        }
+        return recordBytes;
+    }
+
+    private Customer read(long offset) {
+        ByteBuffer buffer = recordBuffer(offset);
+        Customer customer = new Customer();
+        customer.setId(buffer.getLong());
+        long addressId = buffer.getLong();
+        int age = buffer.getInt();
+        customer.setAge(age == NULL_AGE ? null : age);
+        customer.setCreationTime(dateTime(buffer.getLong()));
+        customer.setUpdateTime(dateTime(buffer.getLong()));
+        LocalDateTime addressCreationTime = dateTime(buffer.getLong());
+        LocalDateTime addressUpdateTime = dateTime(buffer.getLong());
+        customer.setFirstName(readString(buffer));
+        customer.setLastName(readString(buffer));
+        customer.setFirstNameNormalized(Customer.normalizeName(customer.getFirstName()));
+        customer.setLastNameNormalized(Customer.normalizeName(customer.getLastName()));
+        if (addressId != NULL_LONG) {
+            Address address = new Address();
+            address.setAddressId(addressId);
+            address.setAddressLine1(readString(buffer));
+            address.setAddressLine2(readString(buffer));
+            address.setPostalCode(readString(buffer));
+            address.setCity(readString(buffer));
+            address.setCountry(readString(buffer));
+            address.setCreationTime(addressCreationTime);
+            address.setUpdateTime(addressUpdateTime);
+            customer.setAddress(address);
+        }
+        return customer;
+    }
+
+    private String[] readNames(long offset) {
+        ByteBuffer buffer = recordBuffer(offset);
+        buffer.position(buffer.position() + HEADER_BYTES);
+        return new String[]{readString(buffer), readString(buffer)};
+    }
+
+    /**
+     * {@link Customer#lastModified()} from the update times in the record header, skipping id, address id, age
+     * and the customer creation time.
+     */
+    private LocalDateTime readLastModified(long offset) {
+        ByteBuffer buffer = recordBuffer(offset);
+        buffer.position(buffer.position() + 3 * Long.BYTES + Integer.BYTES);
+        LocalDateTime updateTime = dateTime(buffer.getLong());
+        buffer.position(buffer.position() + Long.BYTES);
+        return Customer.lastModified(updateTime, dateTime(buffer.getLong()));
+    }
+
+    private ByteBuffer recordBuffer(long offset) {
+        ByteBuffer buffer = segments.get(segmentIndex(offset)).duplicate();
+        buffer.position((int) (offset % segmentSize) + Integer.BYTES);
+        return buffer;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == NULL_STRING) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static long epochNanos(LocalDateTime dateTime) {
+        return dateTime == null ? NULL_LONG
+                : dateTime.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + dateTime.getNano();
+    }
+
+    private static LocalDateTime dateTime(long epochNanos) {
+        return epochNanos == NULL_LONG ? null : LocalDateTime.ofEpochSecond(Math.floorDiv(epochNanos, 1_000_000_000L),
+                (int) Math.floorMod(epochNanos, 1_000_000_000L), ZoneOffset.UTC);
+    }
+
+    private int segmentIndex(long position) {
+        return (int) (position / segmentSize);
+    }
+
+    private void mapNextSegment() {
+        try {
+            segments.add(channel.map(FileChannel.MapMode.READ_WRITE, (long) segments.size() * segmentSize, segmentSize));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not map customer store segment " + segments.size(), e);
+        }
+    }
+
+    private int indexOf(long id) {
+        int position = Arrays.binarySearch(ids, 0, size, id);
+        return position >= 0 ? position : -1;
+    }
+
+    private int firstAfter(long id) {
+        int position = Arrays.binarySearch(ids, 0, size, id);
+        return position >= 0 ? position + 1 : -position - 1;
+    }
+
+    /**
+     * Ids assigned by {@link #insert} only grow, so the common case appends; upserts of unknown lower ids shift the tail.
+     */
+    private void index(long id, long offset) {
+        int position = size == 0 || ids[size - 1] < id ? -size - 1 : Arrays.binarySearch(ids, 0, size, id);
+        if (position >= 0) {
+            offsets[position] = offset;
+            return;
+        }
+        position = -position - 1;
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+            offsets = Arrays.copyOf(offsets, size * 2);
+        }
+        System.arraycopy(ids, position, ids, position + 1, size - position);
+        System.arraycopy(offsets, position, offsets, position + 1, size - position);
+        ids[position] = id;
+        offsets[position] = offset;
+        size++;
+    }
+
+    private static final class NameMatch {
+        private final String name;
+        private final long id;
+
+        private NameMatch(String name, long id) {
+            this.name = name;
+            this.id = id;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+create sequence if not exists address_seq start with 1 increment by 50;
+create sequence if not exists customer_seq start with 1 increment by 50;
+
+create table if not exists address (
+    address_id bigint not null,
+    address_line1 varchar(255),
+    address_line2 varchar(255),
+    city varchar(255),
+    country varchar(255),
+    creation_time timestamp,
+    postal_code varchar(255),
+    update_time timestamp,
+    primary key (address_id)
+);
+
+create table if not exists customer (
+    id bigint not null,
+    age integer,
+    creation_time timestamp,
+    first_name varchar(255),
+    first_name_normalized varchar(255),
+    last_name varchar(255),
+    last_name_normalized varchar(255),
+    update_time timestamp,
+    address_id bigint,
+    primary key (id),
+    constraint fk_customer_address foreign key (address_id) references address
+);
+
+create index if not exists idx_customer_first_name on customer (first_name);
+create index if not exists idx_customer_last_name on customer (last_name);
+create index if not exists idx_customer_first_name_normalized on customer (first_name_normalized, id);
+create index if not exists idx_customer_last_name_normalized on customer (last_name_normalized, id);
@@ -0,0 +1,5 @@
+-- rows written before the normalized columns existed are invisible to the prefix and ignore-case searches
+update customer set first_name_normalized = lower(trim(first_name))
+where first_name_normalized is null and first_name is not null;
+update customer set last_name_normalized = lower(trim(last_name))
+where last_name_normalized is null and last_name is not null;
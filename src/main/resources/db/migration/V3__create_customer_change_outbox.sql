@@ -0,0 +1,22 @@
+-- outbox of customer mutations, written in the same transaction as the change and read by /customers/changes
+create table if not exists customer_change (
+    sequence_number bigint not null,
+    customer_id bigint not null,
+    change_type varchar(32) not null,
+    change_time timestamp not null,
+    primary key (sequence_number)
+);
+
+create index if not exists idx_customer_change_time on customer_change (change_time);
+
+-- writers draw sequence numbers without waiting for each other, so they can commit out of sequence order
+create sequence if not exists customer_change_seq start with 1 increment by 1;
+
+-- single row: the sequence through which changes have been pruned
+create table if not exists customer_change_head (
+    id integer not null,
+    pruned_through bigint not null,
+    primary key (id)
+);
+
+insert into customer_change_head (id, pruned_through) values (1, 0);
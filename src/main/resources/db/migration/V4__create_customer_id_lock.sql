@@ -0,0 +1,7 @@
+-- single row: PUT /customers/{id} holds its lock while it checks and moves customer_seq past a new id
+create table if not exists customer_id_lock (
+    id integer not null,
+    primary key (id)
+);
+
+insert into customer_id_lock (id) values (1);
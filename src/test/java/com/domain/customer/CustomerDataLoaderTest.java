@@ -0,0 +1,41 @@
+package com.domain.customer;
+
+import com.domain.customer.entity.Customer;
+import com.domain.customer.store.CustomerStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerDataLoaderTest {
+    private CustomerStore customerStore;
+    private CustomerDataLoader customerDataLoader;
+
+    @BeforeEach
+    void setUp() {
+        customerStore = Mockito.mock(CustomerStore.class);
+        customerDataLoader = new CustomerDataLoader(customerStore);
+    }
+
+    @Test
+    void testSeedsEmptyStoreInOneBatch() {
+        when(customerStore.findPage(0L, 1)).thenReturn(List.of());
+        customerDataLoader.run();
+        verify(customerStore, times(1)).insertAll(argThat(customers -> customers.size() == 2));
+        verify(customerStore, never()).insert(any());
+    }
+
+    @Test
+    void testSkipsSeedWhenStoreHasData() {
+        when(customerStore.findPage(0L, 1)).thenReturn(List.of(new Customer()));
+        customerDataLoader.run();
+        verify(customerStore, never()).insertAll(any());
+    }
+}
@@ -0,0 +1,127 @@
+package com.domain.customer.admission;
+
+import com.domain.customer.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.scheduling.concurrent.ConcurrentTaskExecutor;
+import org.springframework.web.context.request.async.StandardServletAsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncManager;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.method.HandlerMethod;
+
+import javax.servlet.DispatcherType;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionControlInterceptorTest {
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+    private SimpleMeterRegistry meterRegistry;
+    private AdmissionControlProperties properties;
+    private AdmissionControlInterceptor interceptor;
+    private HandlerMethod search;
+    private HandlerMethod byId;
+
+    @BeforeEach
+    void setUp() throws NoSuchMethodException {
+        AdmissionControlProperties.Limits searchLimits = new AdmissionControlProperties.Limits();
+        searchLimits.setMaxConcurrent(1);
+        searchLimits.setPermitsPerSecond(0.001);
+        searchLimits.setBurst(3);
+        properties = new AdmissionControlProperties();
+        properties.setEndpoints(Map.of("search", searchLimits));
+        meterRegistry = new SimpleMeterRegistry();
+        interceptor = new AdmissionControlInterceptor(properties, meterRegistry);
+        Endpoints endpoints = new Endpoints();
+        search = new HandlerMethod(endpoints, Endpoints.class.getMethod("search"));
+        byId = new HandlerMethod(endpoints, Endpoints.class.getMethod("byId"));
+    }
+
+    @Test
+    void testBulkheadShedsConcurrentRequestsUntilCompletion() {
+        MockHttpServletRequest first = request("10.0.0.1");
+        assertTrue(interceptor.preHandle(first, response, search));
+        TooManyRequestsException rejected = assertThrows(TooManyRequestsException.class,
+                () -> interceptor.preHandle(request("10.0.0.2"), response, search));
+        assertEquals(1, rejected.getRetryAfterSeconds());
+        assertTrue(interceptor.preHandle(request("10.0.0.2"), response, byId));
+        assertEquals(1, meterRegistry.get(AdmissionControlInterceptor.REJECTED_COUNTER)
+                .tags("endpoint", "search", "reason", "concurrency").counter().count());
+
+        interceptor.afterCompletion(first, response, search, null);
+        interceptor.afterCompletion(first, response, search, null);
+        MockHttpServletRequest second = request("10.0.0.2");
+        assertTrue(interceptor.preHandle(second, response, search));
+        assertThrows(TooManyRequestsException.class, () -> interceptor.preHandle(request("10.0.0.3"), response, search));
+        assertEquals(2, meterRegistry.get(AdmissionControlInterceptor.QUEUE_TIMER).timer().count());
+    }
+
+    @Test
+    void testRateLimitIsPerRemoteAddress() {
+        for (int i = 0; i < 3; i++) {
+            MockHttpServletRequest request = request("10.0.0.1");
+            assertTrue(interceptor.preHandle(request, response, search));
+            interceptor.afterCompletion(request, response, search, null);
+        }
+        MockHttpServletRequest renamed = request("10.0.0.1");
+        renamed.addHeader("X-Client-Id", "someone-else");
+        TooManyRequestsException rejected = assertThrows(TooManyRequestsException.class,
+                () -> interceptor.preHandle(renamed, response, search));
+        assertTrue(rejected.getRetryAfterSeconds() > 1);
+        MockHttpServletRequest otherClient = request("10.0.0.2");
+        assertTrue(interceptor.preHandle(otherClient, response, search));
+        assertEquals(1, meterRegistry.get(AdmissionControlInterceptor.REJECTED_COUNTER)
+                .tags("endpoint", "search", "reason", "rate").counter().count());
+    }
+
+    @Test
+    void testTrustedClientKeyHeaderReplacesTheRemoteAddress() {
+        properties.setTrustClientKeyHeader(true);
+        for (int i = 0; i < 3; i++) {
+            MockHttpServletRequest request = request("10.0.0.1");
+            request.addHeader("X-Client-Id", "a");
+            assertTrue(interceptor.preHandle(request, response, search));
+            interceptor.afterCompletion(request, response, search, null);
+        }
+        MockHttpServletRequest sameKey = request("10.0.0.2");
+        sameKey.addHeader("X-Client-Id", "a");
+        assertThrows(TooManyRequestsException.class, () -> interceptor.preHandle(sameKey, response, search));
+        assertTrue(interceptor.preHandle(request("10.0.0.1"), response, search));
+    }
+
+    @Test
+    void testAsyncRequestHoldsItsPermitUntilTheAsyncPartCompletes() throws Exception {
+        MockHttpServletRequest request = request("10.0.0.1");
+        request.setAsyncSupported(true);
+        assertTrue(interceptor.preHandle(request, response, search));
+        WebAsyncManager asyncManager = WebAsyncUtils.getAsyncManager(request);
+        asyncManager.setAsyncWebRequest(new StandardServletAsyncWebRequest(request, response));
+        asyncManager.setTaskExecutor(new ConcurrentTaskExecutor(Runnable::run));
+        asyncManager.startCallableProcessing(() -> "streamed");
+        assertThrows(TooManyRequestsException.class, () -> interceptor.preHandle(request("10.0.0.2"), response, search));
+
+        ((MockAsyncContext) request.getAsyncContext()).complete();
+        assertTrue(interceptor.preHandle(request("10.0.0.2"), response, search));
+        request.setDispatcherType(DispatcherType.ASYNC);
+        interceptor.afterCompletion(request, response, search, null);
+        assertThrows(TooManyRequestsException.class, () -> interceptor.preHandle(request("10.0.0.3"), response, search));
+    }
+
+    private static MockHttpServletRequest request(String remoteAddress) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/search");
+        request.setRemoteAddr(remoteAddress);
+        return request;
+    }
+
+    static class Endpoints {
+        public void search() {
+        }
+
+        public void byId() {
+        }
+    }
+}
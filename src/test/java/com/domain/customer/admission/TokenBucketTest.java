@@ -0,0 +1,31 @@
+package com.domain.customer.admission;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+
+    @Test
+    void testBurstThenRefillAtRate() {
+        TokenBucket tokenBucket = new TokenBucket(3, 10, 0);
+        assertEquals(0, tokenBucket.tryConsume(0));
+        assertEquals(0, tokenBucket.tryConsume(0));
+        assertEquals(0, tokenBucket.tryConsume(0));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), tokenBucket.tryConsume(0));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(50), tokenBucket.tryConsume(TimeUnit.MILLISECONDS.toNanos(50)));
+        assertEquals(0, tokenBucket.tryConsume(TimeUnit.MILLISECONDS.toNanos(100)));
+        assertTrue(tokenBucket.tryConsume(TimeUnit.MILLISECONDS.toNanos(100)) > 0);
+    }
+
+    @Test
+    void testRefillIsCappedAtCapacity() {
+        TokenBucket tokenBucket = new TokenBucket(2, 10, 0);
+        long later = TimeUnit.SECONDS.toNanos(60);
+        assertEquals(0, tokenBucket.tryConsume(later));
+        assertEquals(0, tokenBucket.tryConsume(later));
+        assertTrue(tokenBucket.tryConsume(later) > 0);
+    }
+}
@@ -0,0 +1,97 @@
+package com.domain.customer.config;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Migrates the schema Hibernate generated from the original entities (IDENTITY ids, no normalized names) the way
+ * the application does: baseline at version 1, then the pending migrations.
+ */
+class LegacySchemaUpgradeCallbackTest {
+    private DataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:legacy-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                "sa", "password");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table address (address_id bigint generated by default as identity, " +
+                "address_line1 varchar(255), address_line2 varchar(255), city varchar(255), country varchar(255), " +
+                "creation_time timestamp, postal_code varchar(255), update_time timestamp, primary key (address_id))");
+        jdbcTemplate.execute("create table customer (id bigint generated by default as identity, age integer, " +
+                "creation_time timestamp, first_name varchar(255), last_name varchar(255), update_time timestamp, " +
+                "address_id bigint, primary key (id), foreign key (address_id) references address)");
+        for (int i = 1; i <= 120; i++) {
+            jdbcTemplate.update("insert into address (city, postal_code) values ('Utrecht', '8668DF')");
+            jdbcTemplate.update("insert into customer (first_name, last_name, age, address_id) values (?, ?, 30, ?)",
+                    " First" + i, "LAST" + i, i);
+        }
+    }
+
+    @Test
+    void testPreFlywayDatabaseIsUpgradedAndMigrated() {
+        flyway().migrate();
+        assertMigrated();
+    }
+
+    @Test
+    void testDatabaseAlreadyBaselinedByTheBrokenUpgradeIsMigrated() {
+        Flyway.configure().dataSource(dataSource).baselineVersion("1").load().baseline();
+        flyway().migrate();
+        assertMigrated();
+    }
+
+    @Test
+    void testSequencesCreatedByHibernateBelowTheIdentityIdsAreRestarted() {
+        jdbcTemplate.execute("create sequence customer_seq start with 1 increment by 50");
+        jdbcTemplate.execute("create sequence address_seq start with 1 increment by 50");
+        flyway().migrate();
+        assertMigrated();
+    }
+
+    @Test
+    void testMigratedDatabaseIsLeftAlone() {
+        flyway().migrate();
+        long customerSequence = nextValue("CUSTOMER_SEQ");
+        flyway().migrate();
+        assertEquals(customerSequence, nextValue("CUSTOMER_SEQ"));
+    }
+
+    private Flyway flyway() {
+        return Flyway.configure()
+                .dataSource(dataSource)
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .callbacks(new LegacySchemaUpgradeCallback())
+                .load();
+    }
+
+    private void assertMigrated() {
+        assertEquals("first1", jdbcTemplate.queryForObject(
+                "select first_name_normalized from customer where id = 1", String.class));
+        assertEquals("last120", jdbcTemplate.queryForObject(
+                "select last_name_normalized from customer where id = 120", String.class));
+        assertTrue(nextValue("CUSTOMER_SEQ") >= 120 + LegacySchemaUpgradeCallback.SEQUENCE_INCREMENT);
+        assertTrue(nextValue("ADDRESS_SEQ") >= 120 + LegacySchemaUpgradeCallback.SEQUENCE_INCREMENT);
+        List<String> indexes = jdbcTemplate.queryForList("select index_name from information_schema.indexes " +
+                "where table_name = 'CUSTOMER'", String.class);
+        assertTrue(indexes.containsAll(List.of("IDX_CUSTOMER_FIRST_NAME_NORMALIZED",
+                "IDX_CUSTOMER_LAST_NAME_NORMALIZED")), indexes.toString());
+        assertEquals(1, jdbcTemplate.queryForObject("select count(*) from customer_change_head", Integer.class));
+    }
+
+    private long nextValue(String sequence) {
+        return jdbcTemplate.queryForObject("select base_value from information_schema.sequences " +
+                "where sequence_name = ?", Long.class, sequence);
+    }
+}
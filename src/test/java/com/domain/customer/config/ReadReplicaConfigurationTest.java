@@ -0,0 +1,100 @@
+package com.domain.customer.config;
+
+import com.domain.customer.dto.AddressDto;
+import com.domain.customer.dto.CustomerDto;
+import com.domain.customer.dto.CustomerNameDto;
+import com.domain.customer.dto.CustomerPageDto;
+import com.domain.customer.exception.NoSuchCustomerExistsException;
+import com.domain.customer.service.CustomerService;
+import com.domain.customer.store.CustomerStore;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The replica is a separate in-memory database holding a customer the primary does not have, so every read
+ * shows which side served it.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1",
+        "spring.cache.type=none",
+        "customers.seed.enabled=false"})
+class ReadReplicaConfigurationTest {
+    private static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1";
+    private static final long REPLICA_ONLY_ID = -7L;
+
+    @Autowired
+    private CustomerService customerService;
+    @Autowired
+    private CustomerStore customerStore;
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource;
+
+    @DynamicPropertySource
+    static void replica(DynamicPropertyRegistry registry) {
+        Flyway.configure().dataSource(REPLICA_URL, "sa", "password").load().migrate();
+        JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", "password"));
+        replica.update("insert into address (address_id, address_line1, postal_code, city, country, " +
+                "creation_time, update_time) values (?, 'replica street 1', '1011AB', 'Amsterdam', 'NL', " +
+                "current_timestamp, current_timestamp)", REPLICA_ONLY_ID);
+        replica.update("insert into customer (id, first_name, first_name_normalized, last_name, " +
+                "last_name_normalized, age, address_id, creation_time, update_time) values (?, 'Replica', " +
+                "'replica', 'Only', 'only', 30, ?, current_timestamp, current_timestamp)", REPLICA_ONLY_ID,
+                REPLICA_ONLY_ID);
+        registry.add("customers.datasource.replica.url", () -> REPLICA_URL);
+    }
+
+    @Test
+    void testReadOnlyLookupsReadTheReplica() {
+        List<CustomerDto> byName = customerService.searchCustomerByName(CustomerNameDto.builder()
+                .firstName("Replica")
+                .lastName("Only")
+                .build());
+        assertEquals(1, byName.size());
+        assertEquals(REPLICA_ONLY_ID, byName.get(0).getId());
+        assertTrue(customerService.getCustomers().stream()
+                .anyMatch(customer -> Long.valueOf(REPLICA_ONLY_ID).equals(customer.getId())));
+        assertEquals(REPLICA_ONLY_ID, customerService.getCustomersPage(REPLICA_ONLY_ID - 1, 1)
+                .getCustomers().get(0).getId());
+        CustomerPageDto byNamePage = customerService.searchCustomerByNamePage(CustomerNameDto.builder()
+                .firstName("Repl")
+                .build());
+        assertEquals(1, byNamePage.getCustomers().size());
+        assertEquals(REPLICA_ONLY_ID, byNamePage.getCustomers().get(0).getId());
+    }
+
+    @Test
+    void testWritesExistenceChecksAndIdReadsUseThePrimary() {
+        assertFalse(customerStore.findById(REPLICA_ONLY_ID).isPresent());
+        assertFalse(customerStore.existsById(REPLICA_ONLY_ID));
+
+        CustomerDto added = customerService.addCustomer(CustomerDto.builder()
+                .firstName("Primary")
+                .lastName("Only")
+                .age(40)
+                .addressDto(AddressDto.builder()
+                        .addressLine1("primary street 1")
+                        .postalCode("3511AA")
+                        .city("Utrecht")
+                        .country("NL")
+                        .build())
+                .build());
+        assertEquals(1, new JdbcTemplate(primaryDataSource).queryForObject(
+                "select count(*) from customer where id = ?", Integer.class, added.getId()));
+        // id reads fill the customer cache, they must see the write and not a lagging replica
+        assertEquals("Primary", customerService.searchCustomerById(added.getId()).getFirstName());
+        assertThrows(NoSuchCustomerExistsException.class, () -> customerService.searchCustomerById(REPLICA_ONLY_ID));
+    }
+}
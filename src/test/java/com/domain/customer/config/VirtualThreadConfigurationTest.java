@@ -0,0 +1,50 @@
+package com.domain.customer.config;
+
+import org.apache.coyote.ProtocolHandler;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class VirtualThreadConfigurationTest {
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withUserConfiguration(VirtualThreadConfiguration.class);
+
+    @Test
+    void testPlatformModeLeavesTomcatPoolAlone() {
+        contextRunner.withPropertyValues("customers.execution.mode=platform")
+                .run(context -> assertThat(context).doesNotHaveBean(TomcatProtocolHandlerCustomizer.class));
+    }
+
+    @Test
+    void testVirtualThreadModeCustomizesTomcat() {
+        contextRunner.withPropertyValues("customers.execution.mode=virtual-threads")
+                .run(context -> assertThat(context).hasSingleBean(TomcatProtocolHandlerCustomizer.class));
+    }
+
+    @Test
+    void testVirtualThreadExecutorIsClosedWithTheContext() {
+        AtomicReference<Executor> executor = new AtomicReference<>();
+        contextRunner.withPropertyValues("customers.execution.mode=virtual-threads")
+                .run(context -> {
+                    // the bean is declared as TomcatProtocolHandlerCustomizer<?> and customizes any handler
+                    @SuppressWarnings("unchecked")
+                    TomcatProtocolHandlerCustomizer<ProtocolHandler> customizer =
+                            context.getBean(TomcatProtocolHandlerCustomizer.class);
+                    ProtocolHandler protocolHandler = mock(ProtocolHandler.class);
+                    customizer.customize(protocolHandler);
+                    ArgumentCaptor<Executor> captor = ArgumentCaptor.forClass(Executor.class);
+                    verify(protocolHandler).setExecutor(captor.capture());
+                    executor.set(captor.getValue());
+                });
+        assertThat(((ExecutorService) executor.get()).isShutdown()).isTrue();
+    }
+}
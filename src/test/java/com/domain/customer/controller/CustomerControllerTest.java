@@ -1,10 +1,25 @@
 package com.domain.customer.controller;
 
 import com.domain.customer.dto.AddressDto;
+import com.domain.customer.dto.BulkIngestReportDto;
+import com.domain.customer.dto.CustomerChangeDto;
+import com.domain.customer.dto.CustomerChangePageDto;
+import com.domain.customer.dto.CustomerChangeType;
 import com.domain.customer.dto.CustomerDto;
+import com.domain.customer.dto.CustomerLookupDto;
 import com.domain.customer.dto.CustomerNameDto;
+import com.domain.customer.dto.CustomerNameMatchDto;
+import com.domain.customer.dto.CustomerPageDto;
 import com.domain.customer.dto.CustomerPatchDto;
+import com.domain.customer.exception.ChangeFeedExpiredException;
+import com.domain.customer.exception.CustomerModifiedException;
+import com.domain.customer.exception.NoSuchCustomerExistsException;
+import com.domain.customer.search.CustomerNameIndex;
+import com.domain.customer.service.CustomerChangeFeed;
+import com.domain.customer.service.CustomerIngestService;
+import com.domain.customer.service.CustomerLookupService;
 import com.domain.customer.service.CustomerService;
+import com.domain.customer.store.CustomerStore;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.micrometer.core.aop.TimedAspect;
 import org.junit.jupiter.api.Test;
@@ -13,25 +28,38 @@ import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.RequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.web.context.request.async.DeferredResult;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 
 @ExtendWith(SpringExtension.class)
 @WebMvcTest(value = CustomerController.class)
@@ -45,6 +73,14 @@ class CustomerControllerTest {
     TimedAspect timedAspect;
     @MockBean
     CustomerService customerService;
+    @MockBean
+    CustomerIngestService customerIngestService;
+    @MockBean
+    CustomerNameIndex customerNameIndex;
+    @MockBean
+    CustomerLookupService customerLookupService;
+    @MockBean
+    CustomerChangeFeed customerChangeFeed;
 
     @Test
     void testSearchCustomerById() throws Exception {
@@ -59,6 +95,50 @@ class CustomerControllerTest {
         assertNotNull(result.getResponse().getContentAsString());
     }
 
+    @Test
+    void testSearchCustomerByIdNotFound() throws Exception {
+        RequestBuilder requestBuilder = MockMvcRequestBuilders.get(
+                        "/customers/{id}", "99")
+                .accept(MediaType.APPLICATION_JSON);
+        Mockito.when(customerService.searchCustomerById(99L))
+                .thenThrow(new NoSuchCustomerExistsException());
+        MvcResult result = mockMvc.perform(requestBuilder).andReturn();
+        assertEquals(HttpStatus.NOT_FOUND.value(), result.getResponse().getStatus());
+        assertEquals("{\"statusCode\":404,\"message\":\"" + NoSuchCustomerExistsException.MESSAGE + "\"}",
+                result.getResponse().getContentAsString());
+    }
+
+    @Test
+    void testSearchCustomerByIdAnswersNotModifiedWithoutLoadingTheCustomer() throws Exception {
+        LocalDateTime lastModified = LocalDateTime.of(2023, 1, 2, 3, 4, 5, 6000);
+        Mockito.when(customerService.findLastModified(1l)).thenReturn(Optional.of(lastModified));
+        RequestBuilder requestBuilder = MockMvcRequestBuilders.get("/customers/{id}", "1")
+                .header(HttpHeaders.IF_NONE_MATCH, CustomerETags.eTag(lastModified))
+                .accept(MediaType.APPLICATION_JSON);
+        MvcResult result = mockMvc.perform(requestBuilder).andReturn();
+        assertEquals(HttpStatus.NOT_MODIFIED.value(), result.getResponse().getStatus());
+        assertEquals(CustomerETags.eTag(lastModified), result.getResponse().getHeader(HttpHeaders.ETAG));
+        assertEquals("", result.getResponse().getContentAsString());
+        verify(customerService, never()).searchCustomerById(anyLong());
+    }
+
+    @Test
+    void testSearchCustomerByIdReturnsETagOfTheLatestUpdate() throws Exception {
+        CustomerDto customerDto = createCustomerDtoObject(createAddressDtoObject());
+        customerDto.setUpdateTime(LocalDateTime.of(2023, 1, 2, 3, 4, 5));
+        customerDto.getAddressDto().setUpdateTime(LocalDateTime.of(2023, 2, 1, 0, 0));
+        Mockito.when(customerService.findLastModified(1l)).thenReturn(Optional.of(LocalDateTime.of(2023, 2, 1, 0, 0)));
+        Mockito.when(customerService.searchCustomerById(1l)).thenReturn(customerDto);
+        RequestBuilder requestBuilder = MockMvcRequestBuilders.get("/customers/{id}", "1")
+                .header(HttpHeaders.IF_NONE_MATCH, CustomerETags.eTag(LocalDateTime.of(2023, 1, 1, 0, 0)))
+                .accept(MediaType.APPLICATION_JSON);
+        MvcResult result = mockMvc.perform(requestBuilder).andReturn();
+        assertEquals(HttpStatus.OK.value(), result.getResponse().getStatus());
+        assertEquals(CustomerETags.eTag(LocalDateTime.of(2023, 2, 1, 0, 0)), result.getResponse().getHeader(HttpHeaders.ETAG));
+        assertTrue(result.getResponse().getContentAsString().contains("\"firstName\""));
+        assertFalse(result.getResponse().getContentAsString().contains("updateTime"));
+    }
+
     @Test
     void testSearchCustomerByName() throws Exception {
         CustomerDto customerDto = createCustomerDtoObject(createAddressDtoObject());
@@ -94,6 +174,51 @@ class CustomerControllerTest {
         assertEquals("[]", result.getResponse().getContentAsString());
     }
 
+    @Test
+    void testGetAllCustomersAnswersNotModifiedWithoutLoadingTheCustomers() throws Exception {
+        LocalDateTime lastModified = LocalDateTime.of(2023, 1, 2, 3, 4, 5, 6000);
+        CustomerDto first = createCustomerDtoObject(createAddressDtoObject());
+        first.setId(1l);
+        first.setUpdateTime(lastModified);
+        CustomerDto second = createCustomerDtoObject(createAddressDtoObject());
+        second.setId(2l);
+        second.setUpdateTime(lastModified.plusSeconds(1));
+        String eTag = CustomerETags.withValidators(ResponseEntity.ok(), List.of(second, first))
+                .build().getHeaders().getETag();
+        doAnswer(invocation -> {
+            CustomerStore.LastModifiedVisitor visitor = invocation.getArgument(0);
+            visitor.visit(1l, lastModified);
+            visitor.visit(2l, lastModified.plusSeconds(1));
+            return null;
+        }).when(customerService).forEachLastModified(any());
+        RequestBuilder requestBuilder = MockMvcRequestBuilders.get("/customers")
+                .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                .accept(MediaType.APPLICATION_JSON);
+        MvcResult result = mockMvc.perform(requestBuilder).andReturn();
+        assertEquals(HttpStatus.NOT_MODIFIED.value(), result.getResponse().getStatus());
+        assertEquals(eTag, result.getResponse().getHeader(HttpHeaders.ETAG));
+        assertEquals("", result.getResponse().getContentAsString());
+        verify(customerService, never()).getCustomers();
+    }
+
+    @Test
+    void testLookupCustomers() throws Exception {
+        CustomerDto customerDto = createCustomerDtoObject(createAddressDtoObject());
+        Mockito.when(customerLookupService.lookupCustomers(List.of(1l, 2l))).thenReturn(List.of(
+                CustomerLookupDto.builder().id(1l).found(true).customer(customerDto).build(),
+                CustomerLookupDto.builder().id(2l).found(false).build()));
+        RequestBuilder requestBuilder = MockMvcRequestBuilders
+                .post("/customers/lookup")
+                .accept(MediaType.APPLICATION_JSON)
+                .content("[1,2]")
+                .contentType(MediaType.APPLICATION_JSON);
+        MvcResult result = mockMvc.perform(requestBuilder).andReturn();
+        assertEquals(HttpStatus.OK.value(), result.getResponse().getStatus());
+        String body = result.getResponse().getContentAsString();
+        assertTrue(body.startsWith("[{\"id\":1,\"found\":true,\"customer\":{"));
+        assertTrue(body.endsWith("{\"id\":2,\"found\":false}]"));
+    }
+
     @Test
     void testAddCustomer() throws Exception {
         CustomerDto customerDto = createCustomerDtoObject(createAddressDtoObject());
@@ -109,6 +234,20 @@ class CustomerControllerTest {
         assertNotNull(response.getContentAsString());
     }
 
+    @Test
+    void testUpsertCustomer() throws Exception {
+        CustomerDto customerDto = createCustomerDtoObject(createAddressDtoObject());
+        Mockito.when(customerService.upsertCustomer(anyLong(), any())).thenReturn(customerDto);
+        RequestBuilder requestBuilder = MockMvcRequestBuilders
+                .put("/customers/{id}", "5")
+                .accept(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(customerDto))
+                .contentType(MediaType.APPLICATION_JSON);
+        MockHttpServletResponse response = mockMvc.perform(requestBuilder).andReturn().getResponse();
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        verify(customerService, times(1)).upsertCustomer(eq(5l), any());
+    }
+
     @Test
     void testUpdateCustomerAddress() throws Exception {
         CustomerPatchDto customerPatchDto = CustomerPatchDto.builder()
@@ -127,6 +266,165 @@ class CustomerControllerTest {
         assertNotNull(response.getContentAsString());
     }
 
+    @Test
+    void testUpdateCustomerAddressWithStaleIfMatch() throws Exception {
+        LocalDateTime lastModified = LocalDateTime.of(2023, 1, 2, 3, 4, 5);
+        CustomerPatchDto customerPatchDto = CustomerPatchDto.builder()
+                .customerId(2l)
+                .addressDto(createAddressDtoObject())
+                .build();
+        Mockito.when(customerService.updateCustomer(any(), eq(List.of(lastModified))))
+                .thenThrow(new CustomerModifiedException("Customer with id 2 was modified"));
+        RequestBuilder requestBuilder = MockMvcRequestBuilders
+                .patch("/updateAddress")
+                .header(HttpHeaders.IF_MATCH, CustomerETags.eTag(lastModified))
+                .accept(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(customerPatchDto))
+                .contentType(MediaType.APPLICATION_JSON);
+        MvcResult result = mockMvc.perform(requestBuilder).andReturn();
+        assertEquals(HttpStatus.PRECONDITION_FAILED.value(), result.getResponse().getStatus());
+    }
+
+    @Test
+    void testGetCustomersPage() throws Exception {
+        CustomerPageDto customerPageDto = CustomerPageDto.builder()
+                .customers(List.of(createCustomerDtoObject(createAddressDtoObject())))
+                .nextCursor(1l)
+                .build();
+        Mockito.when(customerService.getCustomersPage(any(), any())).thenReturn(customerPageDto);
+        RequestBuilder requestBuilder = MockMvcRequestBuilders.get("/customers/page")
+                .param("after", "0")
+                .param("limit", "1")
+                .accept(MediaType.APPLICATION_JSON);
+        MvcResult result = mockMvc.perform(requestBuilder).andReturn();
+        assertEquals(HttpStatus.OK.value(), result.getResponse().getStatus());
+        assertEquals(1, objectMapper.readValue(result.getResponse().getContentAsString(), CustomerPageDto.class)
+                .getNextCursor());
+        verify(customerService, times(1)).getCustomersPage(0l, 1);
+    }
+
+    @Test
+    void testStreamCustomersAsNdjson() throws Exception {
+        CustomerDto customerDto = createCustomerDtoObject(createAddressDtoObject());
+        doAnswer(invocation -> {
+            Consumer<CustomerDto> consumer = invocation.getArgument(0);
+            consumer.accept(customerDto);
+            consumer.accept(customerDto);
+            return null;
+        }).when(customerService).streamCustomers(any());
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/customers/stream")
+                .accept(MediaType.APPLICATION_NDJSON)).andReturn();
+        MockHttpServletResponse response = mockMvc.perform(asyncDispatch(result)).andReturn().getResponse();
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertEquals(2, response.getContentAsString().split("\n").length);
+    }
+
+    @Test
+    void testStreamCustomersAsJsonArray() throws Exception {
+        CustomerDto customerDto = createCustomerDtoObject(createAddressDtoObject());
+        doAnswer(invocation -> {
+            Consumer<CustomerDto> consumer = invocation.getArgument(0);
+            consumer.accept(customerDto);
+            return null;
+        }).when(customerService).streamCustomers(any());
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/customers/stream")
+                .accept(MediaType.APPLICATION_JSON)).andReturn();
+        MockHttpServletResponse response = mockMvc.perform(asyncDispatch(result)).andReturn().getResponse();
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertEquals(1, objectMapper.readValue(response.getContentAsString(), List.class).size());
+    }
+
+    @Test
+    void testBulkAddCustomersFromNdjson() throws Exception {
+        CustomerDto customerDto = createCustomerDtoObject(createAddressDtoObject());
+        String line = objectMapper.writeValueAsString(customerDto);
+        List<CustomerDto> ingested = new ArrayList<>();
+        Mockito.when(customerIngestService.ingest(any())).thenAnswer(invocation -> {
+            Iterator<CustomerDto> customers = invocation.getArgument(0);
+            customers.forEachRemaining(ingested::add);
+            return BulkIngestReportDto.builder().received(ingested.size()).inserted(ingested.size()).build();
+        });
+        RequestBuilder requestBuilder = MockMvcRequestBuilders
+                .post("/customers/bulk")
+                .accept(MediaType.APPLICATION_JSON)
+                .content(line + "\n" + line + "\n")
+                .contentType(MediaType.APPLICATION_NDJSON);
+        MockHttpServletResponse response = mockMvc.perform(requestBuilder).andReturn().getResponse();
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertEquals(2, ingested.size());
+        assertEquals("fname", ingested.get(1).getFirstName());
+    }
+
+    @Test
+    void testBulkAddCustomersFromJsonArray() throws Exception {
+        CustomerDto customerDto = createCustomerDtoObject(createAddressDtoObject());
+        List<CustomerDto> ingested = new ArrayList<>();
+        Mockito.when(customerIngestService.ingest(any())).thenAnswer(invocation -> {
+            Iterator<CustomerDto> customers = invocation.getArgument(0);
+            customers.forEachRemaining(ingested::add);
+            return BulkIngestReportDto.builder().received(ingested.size()).inserted(ingested.size()).build();
+        });
+        RequestBuilder requestBuilder = MockMvcRequestBuilders
+                .post("/customers/bulk")
+                .accept(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(List.of(customerDto, customerDto, customerDto)))
+                .contentType(MediaType.APPLICATION_JSON);
+        MockHttpServletResponse response = mockMvc.perform(requestBuilder).andReturn().getResponse();
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertEquals(3, objectMapper.readValue(response.getContentAsString(), BulkIngestReportDto.class).getInserted());
+    }
+
+    @Test
+    void testTypeaheadCustomers() throws Exception {
+        CustomerNameMatchDto match = CustomerNameMatchDto.builder()
+                .id(1l)
+                .firstName("fname")
+                .lastName("lname")
+                .score(0.5)
+                .build();
+        Mockito.when(customerNameIndex.search("fna", 5)).thenReturn(List.of(match));
+        RequestBuilder requestBuilder = MockMvcRequestBuilders.get("/customers/typeahead")
+                .param("q", "fna")
+                .param("limit", "5")
+                .accept(MediaType.APPLICATION_JSON);
+        MockHttpServletResponse response = mockMvc.perform(requestBuilder).andReturn().getResponse();
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertEquals(1, objectMapper.readValue(response.getContentAsString(), List.class).size());
+    }
+
+    @Test
+    void testCustomerChangesResumesAfterSequence() throws Exception {
+        CustomerChangeDto change = CustomerChangeDto.builder()
+                .sequence(42l)
+                .customerId(7l)
+                .type(CustomerChangeType.ADDRESS_UPDATED)
+                .changeTime(LocalDateTime.of(2023, 1, 1, 0, 0))
+                .build();
+        DeferredResult<CustomerChangePageDto> page = new DeferredResult<>();
+        page.setResult(CustomerChangePageDto.builder().changes(List.of(change)).nextCursor(42l).build());
+        Mockito.when(customerChangeFeed.changesAfter(41l, 10, 5000l)).thenReturn(page);
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/customers/changes")
+                .param("after", "41")
+                .param("limit", "10")
+                .param("waitMs", "5000")
+                .accept(MediaType.APPLICATION_JSON)).andReturn();
+        MockHttpServletResponse response = mockMvc.perform(asyncDispatch(result)).andReturn().getResponse();
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        CustomerChangePageDto body = objectMapper.readValue(response.getContentAsString(), CustomerChangePageDto.class);
+        assertEquals(42l, body.getNextCursor());
+        assertEquals(CustomerChangeType.ADDRESS_UPDATED, body.getChanges().get(0).getType());
+    }
+
+    @Test
+    void testCustomerChangesAfterPrunedSequenceIsGone() throws Exception {
+        Mockito.when(customerChangeFeed.changesAfter(1l, null, null))
+                .thenThrow(new ChangeFeedExpiredException("Changes after sequence 1 were pruned"));
+        MockHttpServletResponse response = mockMvc.perform(MockMvcRequestBuilders.get("/customers/changes")
+                .param("after", "1")
+                .accept(MediaType.APPLICATION_JSON)).andReturn().getResponse();
+        assertEquals(HttpStatus.GONE.value(), response.getStatus());
+    }
+
     private static CustomerDto createCustomerDtoObject(AddressDto addressDto) {
         CustomerDto customerDto = CustomerDto.builder()
                 .id(1l)
@@ -0,0 +1,70 @@
+package com.domain.customer.controller;
+
+import com.domain.customer.dto.CustomerDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CustomerETagsTest {
+
+    @Test
+    void testETagsAreWeak() {
+        assertEquals("W/\"59b08c1fa4000\"", CustomerETags.eTag(LocalDateTime.of(2020, 1, 1, 0, 0)));
+    }
+
+    @Test
+    void testIfMatchParsesBackTheTagsOfLastModified() {
+        LocalDateTime first = LocalDateTime.of(2023, 1, 2, 3, 4, 5, 123456000);
+        LocalDateTime second = LocalDateTime.of(1969, 12, 31, 23, 59, 59, 999999000);
+        String header = CustomerETags.eTag(first) + ", \"other\", " + CustomerETags.eTag(second).substring(2);
+        assertEquals(List.of(first, second), CustomerETags.parseIfMatch(header));
+        assertNull(CustomerETags.parseIfMatch("*"));
+        assertTrue(CustomerETags.parseIfMatch("W/\"other\"").isEmpty());
+    }
+
+    @Test
+    void testListTagChangesWhenOneCustomerIsUpdated() {
+        LocalDateTime updated = LocalDateTime.of(2023, 1, 2, 3, 4, 5, 6000);
+        List<CustomerDto> customers = List.of(customer(1l, updated), customer(2l, updated.plusSeconds(1)));
+        String eTag = listETag(customers);
+        assertEquals(eTag, listETag(List.of(customer(1l, updated), customer(2l, updated.plusSeconds(1)))));
+        assertNotEquals(eTag, listETag(List.of(customer(1l, updated.plusNanos(1000)),
+                customer(2l, updated.plusSeconds(1)))));
+        assertNotEquals(eTag, listETag(List.of(customer(1l, updated), customer(3l, updated.plusSeconds(1)))));
+        assertTrue(eTag.startsWith("W/\""));
+    }
+
+    @Test
+    void testListTagOfTheLastModificationsInIdOrderMatchesTheListInAnyOrder() {
+        LocalDateTime updated = LocalDateTime.of(2023, 1, 2, 3, 4, 5, 6000);
+        CustomerETags.ListTag listTag = new CustomerETags.ListTag();
+        listTag.visit(1l, updated);
+        listTag.visit(2l, updated.plusSeconds(1));
+        assertEquals(listTag.eTag(), listETag(List.of(customer(2l, updated.plusSeconds(1)), customer(1l, updated))));
+        assertEquals(updated.plusSeconds(1), listTag.lastModified());
+    }
+
+    @Test
+    void testIfNoneMatchUsesWeakComparison() {
+        String eTag = CustomerETags.eTag(LocalDateTime.of(2023, 1, 2, 3, 4, 5));
+        assertTrue(CustomerETags.matchesAny("\"1\", " + eTag.substring(2), eTag));
+        assertTrue(CustomerETags.matchesAny(eTag, eTag));
+        assertTrue(CustomerETags.matchesAny("*", eTag));
+        assertFalse(CustomerETags.matchesAny("\"1\"", eTag));
+    }
+
+    private static String listETag(List<CustomerDto> customers) {
+        return CustomerETags.withValidators(ResponseEntity.ok(), customers).build().getHeaders().getETag();
+    }
+
+    private static CustomerDto customer(Long id, LocalDateTime updateTime) {
+        return CustomerDto.builder()
+                .id(id)
+                .updateTime(updateTime)
+                .build();
+    }
+}
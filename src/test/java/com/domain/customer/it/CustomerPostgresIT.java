@@ -0,0 +1,174 @@
+package com.domain.customer.it;
+
+import com.domain.customer.CustomerApplication;
+import com.domain.customer.dto.AddressDto;
+import com.domain.customer.dto.CustomerChangeDto;
+import com.domain.customer.dto.CustomerChangePageDto;
+import com.domain.customer.dto.CustomerChangeType;
+import com.domain.customer.dto.CustomerDto;
+import com.domain.customer.dto.CustomerNameDto;
+import com.domain.customer.dto.CustomerPatchDto;
+import com.domain.customer.service.CustomerService;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.support.OpenEntityManagerInViewInterceptor;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the postgres profile against an embedded PostgreSQL server, started from the binaries in the
+ * embedded-postgres test dependency, with the replica routing pointed at the same server.
+ * Run it with mvn test -Dtest=CustomerPostgresIT.
+ */
+@ActiveProfiles("postgres")
+@SpringBootTest(classes = CustomerApplication.class,
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.cache.type=none")
+class CustomerPostgresIT {
+    private static EmbeddedPostgres postgres;
+
+    @LocalServerPort
+    private int port;
+    @Autowired
+    private TestRestTemplate restTemplate;
+    @Autowired
+    private CustomerService customerService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @DynamicPropertySource
+    static void postgres(DynamicPropertyRegistry registry) {
+        try {
+            postgres = EmbeddedPostgres.start();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        String url = postgres.getJdbcUrl("postgres", "postgres");
+        registry.add("spring.datasource.url", () -> url);
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "");
+        registry.add("customers.datasource.replica.url", () -> url);
+    }
+
+    @AfterAll
+    static void stopPostgres() throws IOException {
+        postgres.close();
+    }
+
+    @Test
+    void testOpenInViewIsOff() {
+        assertTrue(applicationContext.getBeansOfType(OpenEntityManagerInViewInterceptor.class).isEmpty());
+    }
+
+    @Test
+    void testUpsertInsertsThenReplaces() {
+        CustomerDto customerDto = customer("Upsert", "Postgres");
+        customerDto.getAddressDto().setAddressLine2(null);
+        restTemplate.put(url("/customers/900001"), customerDto);
+        CustomerDto inserted = restTemplate.getForObject(url("/customers/900001"), CustomerDto.class);
+        assertEquals("Utrecht", inserted.getAddressDto().getCity());
+
+        customerDto.setAge(41);
+        customerDto.getAddressDto().setCity("Amsterdam");
+        restTemplate.put(url("/customers/900001"), customerDto);
+        CustomerDto replaced = restTemplate.getForObject(url("/customers/900001"), CustomerDto.class);
+        assertEquals(41, replaced.getAge());
+        assertEquals("Amsterdam", replaced.getAddressDto().getCity());
+        assertEquals(inserted.getAddressDto().getAddressId(), replaced.getAddressDto().getAddressId());
+    }
+
+    @Test
+    void testAddSearchAndUpdateAddress() {
+        CustomerDto added = restTemplate.postForObject(url("/customers"), customer("Added", "Postgres"),
+                CustomerDto.class);
+        assertNotNull(added.getId());
+
+        CustomerNameDto name = CustomerNameDto.builder().firstName("Added").lastName("Postgres").build();
+        CustomerDto[] found = restTemplate.postForObject(url("/searchByName"), name, CustomerDto[].class);
+        assertEquals(1, found.length);
+
+        CustomerPatchDto patchDto = CustomerPatchDto.builder()
+                .customerId(added.getId())
+                .addressDto(AddressDto.builder().city("Rotterdam").build())
+                .build();
+        customerService.updateCustomer(patchDto);
+        assertEquals("Rotterdam", restTemplate.getForObject(url("/customers/" + added.getId()), CustomerDto.class)
+                .getAddressDto().getCity());
+
+        CustomerChangePageDto changes = restTemplate.getForObject(url("/customers/changes?after=0&limit=1000"),
+                CustomerChangePageDto.class);
+        List<CustomerChangeType> addedChanges = List.of(CustomerChangeType.CREATED, CustomerChangeType.ADDRESS_UPDATED);
+        assertTrue(changes.getChanges().stream()
+                .filter(change -> added.getId().equals(change.getCustomerId()))
+                .map(CustomerChangeDto::getType)
+                .collect(Collectors.toList())
+                .containsAll(addedChanges));
+    }
+
+    @Test
+    void testPutOfANewIdDoesNotCollideWithGeneratedIds() {
+        CustomerDto generated;
+        do {
+            generated = restTemplate.postForObject(url("/customers"), customer("Generated", "Postgres"), CustomerDto.class);
+        } while (generated.getId() >= lastGeneratedId());
+        // the rest of the application's block of ids is still to be generated
+        assertEquals(HttpStatus.BAD_REQUEST, put(generated.getId() + 1, customer("Reserved", "Postgres")).getStatusCode());
+
+        long putId = lastGeneratedId() + 1;
+        assertEquals(HttpStatus.OK, put(putId, customer("Put", "Postgres")).getStatusCode());
+        for (int i = 0; i < 100; i++) {
+            ResponseEntity<CustomerDto> added = restTemplate.postForEntity(url("/customers"),
+                    customer("Generated" + i, "Postgres"), CustomerDto.class);
+            assertEquals(HttpStatus.OK, added.getStatusCode());
+            assertNotEquals(putId, added.getBody().getId());
+        }
+    }
+
+    private ResponseEntity<String> put(long id, CustomerDto customerDto) {
+        return restTemplate.exchange(url("/customers/" + id), HttpMethod.PUT, new HttpEntity<>(customerDto), String.class);
+    }
+
+    private long lastGeneratedId() {
+        return jdbcTemplate.queryForObject("select last_value from customer_seq", Long.class);
+    }
+
+    private String url(String path) {
+        return "http://localhost:" + port + path;
+    }
+
+    private static CustomerDto customer(String firstName, String lastName) {
+        return CustomerDto.builder()
+                .firstName(firstName)
+                .lastName(lastName)
+                .age(40)
+                .addressDto(AddressDto.builder()
+                        .addressLine1("addrLine1")
+                        .addressLine2("addrLine2")
+                        .postalCode("8668DF")
+                        .city("Utrecht")
+                        .country("NL")
+                        .build())
+                .build();
+    }
+}
@@ -0,0 +1,110 @@
+package com.domain.customer.repository;
+
+import com.domain.customer.dto.AddressDto;
+import com.domain.customer.entity.Address;
+import com.domain.customer.entity.Customer;
+import org.hibernate.SessionFactory;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.domain.customer.repository.AddressRepositoryTest$RecordingStatementInspector"})
+class AddressRepositoryTest {
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private AddressRepository addressRepository;
+    private Long customerId;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        Address address = new Address();
+        address.setAddressLine1("addrLine1");
+        address.setAddressLine2("addrLine2");
+        address.setPostalCode("8668DF");
+        address.setCity("Utrecht");
+        address.setCountry("NL");
+        Customer customer = new Customer();
+        customer.setFirstName("fname");
+        customer.setLastName("lname");
+        customer.setAge(23);
+        customer.setAddress(address);
+        customerId = testEntityManager.persistAndFlush(customer).getId();
+        testEntityManager.clear();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        RecordingStatementInspector.STATEMENTS.clear();
+    }
+
+    @Test
+    void testUpdateAddressOfCustomerWritesOnlyPresentFieldsInOneStatement() {
+        int updated = addressRepository.updateAddressOfCustomer(customerId, AddressDto.builder()
+                .city("Amsterdam")
+                .build());
+        assertEquals(1, updated);
+        assertEquals(1, statistics.getPrepareStatementCount());
+        String update = RecordingStatementInspector.STATEMENTS.get(0).toLowerCase(Locale.ROOT);
+        assertTrue(update.startsWith("update address set"), update);
+        assertTrue(update.contains("city="), update);
+        for (String untouched : List.of("address_line1", "address_line2", "postal_code", "country")) {
+            assertFalse(update.contains(untouched + "="), update);
+        }
+        testEntityManager.clear();
+        Address address = testEntityManager.find(Customer.class, customerId).getAddress();
+        assertEquals("Amsterdam", address.getCity());
+        assertEquals("addrLine1", address.getAddressLine1());
+        assertEquals("addrLine2", address.getAddressLine2());
+        assertEquals("8668DF", address.getPostalCode());
+    }
+
+    @Test
+    void testUpdateAddressOfCustomerKeepsConcurrentChangesToOtherFields() {
+        testEntityManager.getEntityManager()
+                .createNativeQuery("update address set postal_code = '1011AB' where address_id = " +
+                        "(select address_id from customer where id = :id)")
+                .setParameter("id", customerId)
+                .executeUpdate();
+        addressRepository.updateAddressOfCustomer(customerId, AddressDto.builder()
+                .city("Amsterdam")
+                .build());
+        testEntityManager.clear();
+        Address address = testEntityManager.find(Customer.class, customerId).getAddress();
+        assertEquals("Amsterdam", address.getCity());
+        assertEquals("1011AB", address.getPostalCode());
+    }
+
+    @Test
+    void testUpdateAddressOfUnknownCustomerUpdatesNothing() {
+        assertEquals(0, addressRepository.updateAddressOfCustomer(-1L, AddressDto.builder()
+                .city("Amsterdam")
+                .build()));
+    }
+
+    public static class RecordingStatementInspector implements StatementInspector {
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package com.domain.customer.repository;
+
+import com.domain.customer.dto.AddressDto;
+import com.domain.customer.dto.CustomerDto;
+import com.domain.customer.entity.Address;
+import com.domain.customer.entity.Customer;
+import com.domain.customer.exception.InvalidRequestException;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class CustomerRespositoryTest {
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private CustomerRespository customerRespository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 1; i <= 5; i++) {
+            testEntityManager.persist(createCustomer("fname" + i, "lname"));
+        }
+        testEntityManager.flush();
+        testEntityManager.clear();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void testFindAllLoadsAddressesInOneStatement() {
+        List<Customer> customers = customerRespository.findAll();
+        customers.forEach(customer -> customer.getAddress().getCity());
+        assertEquals(5, customers.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void testFindByFirstNameOrLastNameLoadsAddressesInOneStatement() {
+        List<Customer> customers = customerRespository.findCustomerByFirstNameOrLastName("", "lname").get();
+        customers.forEach(customer -> customer.getAddress().getCity());
+        assertEquals(5, customers.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void testFindByFirstNameAndLastNameLoadsAddressesInOneStatement() {
+        List<Customer> customers = customerRespository.findCustomerByFirstNameAndLastName("fname1", "lname").get();
+        customers.forEach(customer -> customer.getAddress().getCity());
+        assertEquals(1, customers.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void testKeysetPageLoadsAddressesInOneStatement() {
+        List<Customer> customers = customerRespository.findByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, 3));
+        customers.forEach(customer -> customer.getAddress().getCity());
+        assertEquals(3, customers.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void testStreamLoadsAddressesInOneStatement() {
+        List<String> cities;
+        try (Stream<Customer> customers = customerRespository.streamAllOrderById()) {
+            cities = customers.map(customer -> customer.getAddress().getCity()).collect(Collectors.toList());
+        }
+        assertEquals(5, cities.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void testStreamUpdateTimesReadsEveryCustomerInOneStatement() {
+        List<Long> ids;
+        try (Stream<CustomerUpdateTimesProjection> updateTimes = customerRespository.streamUpdateTimesOrderById()) {
+            ids = updateTimes.map(CustomerUpdateTimesProjection::getId).collect(Collectors.toList());
+        }
+        assertEquals(5, ids.size());
+        assertEquals(ids.stream().sorted().collect(Collectors.toList()), ids);
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void testSearchByNormalizedFirstNamePrefixIgnoresCase() {
+        testEntityManager.persistAndFlush(createCustomer("Alexander", "Smith"));
+        testEntityManager.persistAndFlush(createCustomer("ALEXA", "Jones"));
+        testEntityManager.clear();
+        List<Customer> customers = customerRespository.searchByNormalizedFirstName("alex%", "", 0L, PageRequest.of(0, 10));
+        assertEquals(2, customers.size());
+        assertEquals("ALEXA", customers.get(0).getFirstName());
+        List<Customer> nextPage = customerRespository.searchByNormalizedFirstName("alex%", "alexa",
+                customers.get(0).getId(), PageRequest.of(0, 10));
+        assertEquals(1, nextPage.size());
+        assertEquals("Alexander", nextPage.get(0).getFirstName());
+    }
+
+    @Test
+    void testSearchByNormalizedLastNameSeeksOnNameThenId() {
+        Long firstSmith = testEntityManager.persistAndFlush(createCustomer("Bob", "Zzsmith")).getId();
+        Long jones = testEntityManager.persistAndFlush(createCustomer("Carl", "Zzjones")).getId();
+        Long secondSmith = testEntityManager.persistAndFlush(createCustomer("Anna", "zzsmith")).getId();
+        testEntityManager.clear();
+        List<Customer> firstPage = customerRespository.searchByNormalizedLastName("zz%", "", 0L, PageRequest.of(0, 2));
+        assertEquals(List.of(jones, firstSmith), ids(firstPage));
+        List<Customer> nextPage = customerRespository.searchByNormalizedLastName("zz%", "zzsmith", firstSmith,
+                PageRequest.of(0, 2));
+        assertEquals(List.of(secondSmith), ids(nextPage));
+    }
+
+    @Test
+    void testSearchByNormalizedNamesEscapesWildcards() {
+        testEntityManager.persistAndFlush(createCustomer("a_b", "Smith"));
+        testEntityManager.persistAndFlush(createCustomer("axb", "Smith"));
+        testEntityManager.clear();
+        List<Customer> customers = customerRespository.searchByNormalizedNames("a!_b", "smith%", "", 0L,
+                PageRequest.of(0, 10));
+        assertEquals(1, customers.size());
+        assertEquals("a_b", customers.get(0).getFirstName());
+    }
+
+    @Test
+    void testUpsertInsertsThenReplacesCustomerAndAddress() {
+        long id = lastGeneratedId() + 1;
+        CustomerDto customerDto = CustomerDto.builder()
+                .id(id)
+                .firstName("Upsert")
+                .lastName("Customer")
+                .age(40)
+                .addressDto(AddressDto.builder()
+                        .addressLine1("addrLine1")
+                        .postalCode("8668DF")
+                        .city("Utrecht")
+                        .country("NL")
+                        .build())
+                .build();
+        customerRespository.upsert(customerDto);
+        testEntityManager.clear();
+        Customer inserted = testEntityManager.find(Customer.class, id);
+        assertEquals("upsert", inserted.getFirstNameNormalized());
+        assertEquals("Utrecht", inserted.getAddress().getCity());
+
+        customerDto.setAge(41);
+        customerDto.getAddressDto().setCity("Amsterdam");
+        customerRespository.upsert(customerDto);
+        testEntityManager.clear();
+        Customer replaced = testEntityManager.find(Customer.class, id);
+        assertEquals(41, replaced.getAge());
+        assertEquals("Amsterdam", replaced.getAddress().getCity());
+        assertEquals(inserted.getAddress().getAddressId(), replaced.getAddress().getAddressId());
+        assertEquals(inserted.getCreationTime(), replaced.getCreationTime());
+        assertEquals(6, customerRespository.count());
+    }
+
+    @Test
+    void testUpsertOfAnExistingCustomerOnlyUpdatesCustomerAndAddress() {
+        Customer existing = customerRespository.findAll().get(0);
+        testEntityManager.clear();
+        statistics.clear();
+        CustomerDto customerDto = upsertCustomerDto(existing.getId());
+        customerDto.getAddressDto().setCity("Amsterdam");
+        customerRespository.upsert(customerDto);
+        assertEquals(2, statistics.getPrepareStatementCount());
+        testEntityManager.clear();
+        Customer replaced = testEntityManager.find(Customer.class, existing.getId());
+        assertEquals("Upsert", replaced.getFirstName());
+        assertEquals("Amsterdam", replaced.getAddress().getCity());
+        assertEquals(existing.getAddress().getAddressId(), replaced.getAddress().getAddressId());
+    }
+
+    @Test
+    void testUpsertGivesAnExistingCustomerWithoutAddressOne() {
+        Customer customer = createCustomer("NoAddress", "lname");
+        customer.setAddress(null);
+        Long id = testEntityManager.persistAndFlush(customer).getId();
+        testEntityManager.clear();
+        customerRespository.upsert(upsertCustomerDto(id));
+        testEntityManager.clear();
+        Customer replaced = testEntityManager.find(Customer.class, id);
+        assertEquals("Upsert", replaced.getFirstName());
+        assertEquals("Utrecht", replaced.getAddress().getCity());
+    }
+
+    @Test
+    void testUpsertOfANewIdMovesGeneratedIdsPastIt() {
+        long id = lastGeneratedId() + 1;
+        customerRespository.upsert(CustomerDto.builder()
+                .id(id)
+                .firstName("Upsert")
+                .lastName("Customer")
+                .age(40)
+                .addressDto(AddressDto.builder()
+                        .addressLine1("addrLine1")
+                        .postalCode("8668DF")
+                        .city("Utrecht")
+                        .country("NL")
+                        .build())
+                .build());
+        // more than a block, the generated ids run into the upserted one unless the sequence moved past it
+        for (int i = 0; i < 2 * CustomerRespositoryImpl.CUSTOMER_ID_BLOCK_SIZE; i++) {
+            testEntityManager.persist(createCustomer("generated" + i, "lname"));
+        }
+        testEntityManager.flush();
+        assertEquals(5 + 1 + 2 * CustomerRespositoryImpl.CUSTOMER_ID_BLOCK_SIZE, customerRespository.count());
+    }
+
+    @Test
+    void testUpsertRejectsANewIdTheSequenceMayStillGenerate() {
+        long lastGeneratedId = lastGeneratedId();
+        long unused = LongStream.rangeClosed(1, lastGeneratedId)
+                .filter(id -> !customerRespository.existsById(id))
+                .max()
+                .orElseThrow();
+        CustomerDto customerDto = CustomerDto.builder()
+                .id(unused)
+                .firstName("Upsert")
+                .lastName("Customer")
+                .age(40)
+                .addressDto(AddressDto.builder().addressLine1("addrLine1").city("Utrecht").build())
+                .build();
+        assertThrows(InvalidRequestException.class, () -> customerRespository.upsert(customerDto));
+        assertFalse(customerRespository.existsById(unused));
+    }
+
+    @Test
+    void testConcurrentUpsertsOfNewIdsOnlyRaiseTheSequence() throws Exception {
+        long lastGeneratedId = lastGeneratedId();
+        List<Long> ids = List.of(lastGeneratedId + 1000, lastGeneratedId + 500, lastGeneratedId + 750,
+                lastGeneratedId + 250);
+        // the upserts commit in their own transactions, as concurrent requests would
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        ExecutorService executor = Executors.newFixedThreadPool(ids.size());
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> upserts = new ArrayList<>();
+            for (Long id : ids) {
+                upserts.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        transactionTemplate.executeWithoutResult(status -> customerRespository.upsert(
+                                upsertCustomerDto(id)));
+                    } catch (InvalidRequestException e) {
+                        // a higher id reserved first put this one in the generated range
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> upsert : upserts) {
+                upsert.get(30, TimeUnit.SECONDS);
+            }
+            assertEquals(Collections.max(ids), lastGeneratedId());
+        } finally {
+            executor.shutdownNow();
+            transactionTemplate.executeWithoutResult(status -> ids.forEach(id -> {
+                List<Long> addressIds = jdbcTemplate.queryForList("select address_id from customer where id = ?",
+                        Long.class, id);
+                jdbcTemplate.update("delete from customer where id = ?", id);
+                addressIds.forEach(addressId -> jdbcTemplate.update("delete from address where address_id = ?",
+                        addressId));
+            }));
+        }
+    }
+
+    private long lastGeneratedId() {
+        return jdbcTemplate.queryForObject(CustomerRespositoryImpl.LAST_CUSTOMER_ID_H2_SQL, Long.class);
+    }
+
+    private static CustomerDto upsertCustomerDto(long id) {
+        return CustomerDto.builder()
+                .id(id)
+                .firstName("Upsert")
+                .lastName("Customer")
+                .age(40)
+                .addressDto(AddressDto.builder().addressLine1("addrLine1").city("Utrecht").build())
+                .build();
+    }
+
+    private static List<Long> ids(List<Customer> customers) {
+        return customers.stream().map(Customer::getId).collect(Collectors.toList());
+    }
+
+    private static Customer createCustomer(String firstName, String lastName) {
+        Address address = new Address();
+        address.setAddressLine1("addrLine1");
+        address.setPostalCode("8668DF");
+        address.setCity("Utrecht");
+        address.setCountry("NL");
+        Customer customer = new Customer();
+        customer.setFirstName(firstName);
+        customer.setLastName(lastName);
+        customer.setAge(23);
+        customer.setAddress(address);
+        return customer;
+    }
+}
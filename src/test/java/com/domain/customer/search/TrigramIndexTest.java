@@ -0,0 +1,127 @@
+package com.domain.customer.search;
+
+import com.domain.customer.dto.CustomerNameMatchDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrigramIndexTest {
+
+    @Test
+    void testSearchRanksClosestNameFirst() {
+        TrigramIndex index = new TrigramIndex();
+        index.add(1, "Alexander", "Smith");
+        index.add(2, "Alexandra", "Smithson");
+        index.add(3, "Peter", "Jones");
+        List<CustomerNameMatchDto> matches = index.search("alexander smith", 10);
+        assertEquals(2, matches.size());
+        assertEquals(1, matches.get(0).getId());
+        assertTrue(matches.get(0).getScore() > matches.get(1).getScore());
+    }
+
+    @Test
+    void testSearchKeepsLowestIdsAmongEqualScoresWhenLimited() {
+        TrigramIndex index = new TrigramIndex();
+        for (long id = 10; id >= 1; id--) {
+            index.add(id, "Maria", "Lopez");
+        }
+        index.add(11, "Mario", "Lopes");
+        List<CustomerNameMatchDto> matches = index.search("maria lopez", 3);
+        assertEquals(3, matches.size());
+        assertEquals(1, matches.get(0).getId());
+        assertEquals(2, matches.get(1).getId());
+        assertEquals(3, matches.get(2).getId());
+    }
+
+    @Test
+    void testSearchMatchesPartiallyTypedPrefixCaseInsensitive() {
+        TrigramIndex index = new TrigramIndex();
+        index.add(1, "Peter", "Jones");
+        index.add(2, "Petra", "Jansen");
+        index.add(3, "Anna", "Peterson");
+        List<CustomerNameMatchDto> matches = index.search("PET", 10);
+        assertEquals(3, matches.size());
+        assertEquals(1, matches.get(0).getId());
+        assertEquals(2, matches.get(1).getId());
+        assertEquals(3, matches.get(2).getId());
+    }
+
+    @Test
+    void testSearchToleratesTypos() {
+        TrigramIndex index = new TrigramIndex();
+        index.add(1, "Jonathan", "Miller");
+        index.add(2, "Maria", "Garcia");
+        List<CustomerNameMatchDto> matches = index.search("jonatan miler", 1);
+        assertEquals(1, matches.size());
+        assertEquals(1, matches.get(0).getId());
+    }
+
+    @Test
+    void testSearchHonoursLimit() {
+        TrigramIndex index = new TrigramIndex();
+        for (int i = 0; i < 2000; i++) {
+            index.add(i, "name" + i, "lname");
+        }
+        assertEquals(2000, index.size());
+        assertEquals(5, index.search("name1", 5).size());
+        assertTrue(index.estimatedMemoryBytes() > 0);
+    }
+
+    @Test
+    void testContainsWithOutOfOrderIds() {
+        TrigramIndex index = new TrigramIndex();
+        index.add(5, "a", "b");
+        index.add(9, "a", "b");
+        index.add(7, "a", "b");
+        assertTrue(index.contains(5));
+        assertTrue(index.contains(7));
+        assertTrue(index.contains(9));
+        assertFalse(index.contains(6));
+    }
+
+    @Test
+    void testReAddReplacesPreviousNames() {
+        TrigramIndex index = new TrigramIndex();
+        index.add(1, "Peter", "Jones");
+        index.add(2, "Maria", "Garcia");
+        index.add(1, "Petra", "Jansen");
+        assertEquals(2, index.size());
+        List<CustomerNameMatchDto> matches = index.search("peter jones", 10);
+        assertEquals(1, matches.size());
+        assertEquals("Petra", matches.get(0).getFirstName());
+        assertTrue(index.contains(1));
+    }
+
+    @Test
+    void testRepeatedReAddsStayBounded() {
+        TrigramIndex index = new TrigramIndex();
+        for (long id = 5000; id >= 1; id--) {
+            index.add(id, "Peter" + id, "Jones");
+        }
+        long memoryBytes = index.estimatedMemoryBytes();
+        for (int round = 1; round <= 20; round++) {
+            for (long id = 1; id <= 5000; id++) {
+                index.add(id, "Petra" + id, "Jansen" + round);
+            }
+            assertEquals(5000, index.size());
+        }
+        assertTrue(index.estimatedMemoryBytes() < memoryBytes * 2,
+                index.estimatedMemoryBytes() + " bytes after re-adds, " + memoryBytes + " before");
+        assertTrue(index.contains(1));
+        assertTrue(index.contains(5000));
+        assertFalse(index.contains(5001));
+        List<CustomerNameMatchDto> matches = index.search("petra4321 jansen20", 1);
+        assertEquals(1, matches.size());
+        assertEquals(4321, matches.get(0).getId());
+        assertEquals("Jansen20", matches.get(0).getLastName());
+    }
+
+    @Test
+    void testBlankQueryReturnsNothing() {
+        TrigramIndex index = new TrigramIndex();
+        index.add(1, "Peter", "Jones");
+        assertTrue(index.search("  ", 10).isEmpty());
+    }
+}
@@ -0,0 +1,153 @@
+package com.domain.customer.service;
+
+import com.domain.customer.dto.AddressDto;
+import com.domain.customer.dto.CustomerChangeType;
+import com.domain.customer.exception.NoSuchCustomerExistsException;
+import com.domain.customer.store.CustomerChangeOutbox;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class AddressWriteBehindQueueTest {
+    private JdbcTemplate jdbcTemplate;
+    private CustomerChangeOutbox customerChangeOutbox;
+    private SimpleMeterRegistry meterRegistry;
+    private AddressWriteBehindQueue addressWriteBehindQueue;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = Mockito.mock(JdbcTemplate.class);
+        TransactionTemplate transactionTemplate = Mockito.mock(TransactionTemplate.class);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                ((TransactionCallback<?>) invocation.getArgument(0)).doInTransaction(null));
+        customerChangeOutbox = Mockito.mock(CustomerChangeOutbox.class);
+        meterRegistry = new SimpleMeterRegistry();
+        addressWriteBehindQueue = new AddressWriteBehindQueue(jdbcTemplate, transactionTemplate, customerChangeOutbox,
+                meterRegistry, false, 500, 50);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFlushCoalescesUpdatesPerCustomer() throws Exception {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1, 1});
+        CompletableFuture<Void> first = addressWriteBehindQueue.submit(1l, createAddressDtoObject("Utrecht"));
+        CompletableFuture<Void> second = addressWriteBehindQueue.submit(1l, createAddressDtoObject("Amsterdam"));
+        CompletableFuture<Void> other = addressWriteBehindQueue.submit(2l, createAddressDtoObject("Delft"));
+        assertEquals(2, addressWriteBehindQueue.depth());
+        assertFalse(first.isDone());
+
+        addressWriteBehindQueue.flush();
+
+        ArgumentCaptor<List<Object[]>> arguments = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(1)).batchUpdate(eq(AddressWriteBehindQueue.UPDATE_ADDRESS_SQL), arguments.capture());
+        assertEquals(2, arguments.getValue().size());
+        assertEquals("Amsterdam", arguments.getValue().get(0)[3]);
+        assertEquals(1l, arguments.getValue().get(0)[6]);
+        assertNull(first.get());
+        assertNull(second.get());
+        assertNull(other.get());
+        assertEquals(0, addressWriteBehindQueue.depth());
+        verify(customerChangeOutbox, times(1)).append(CustomerChangeType.ADDRESS_UPDATED, List.of(1l, 2l));
+        assertEquals(1, meterRegistry.get("customer.address.write-behind.coalesced").counter().count());
+        assertEquals(2, meterRegistry.get("customer.address.write-behind.lag").timer().count());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFlushMergesPartialUpdatesPerField() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1});
+        addressWriteBehindQueue.submit(1l, AddressDto.builder().city("Utrecht").postalCode("1111AA").build());
+        addressWriteBehindQueue.submit(1l, AddressDto.builder().city("Amsterdam").build());
+        addressWriteBehindQueue.flush();
+        ArgumentCaptor<List<Object[]>> arguments = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), arguments.capture());
+        Object[] row = arguments.getValue().get(0);
+        assertNull(row[0]);
+        assertEquals("1111AA", row[2]);
+        assertEquals("Amsterdam", row[3]);
+    }
+
+    @Test
+    void testFlushFailsAcknowledgementForUnknownCustomer() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{0});
+        CompletableFuture<Void> acknowledgement = addressWriteBehindQueue.submit(9l, createAddressDtoObject("Utrecht"));
+        addressWriteBehindQueue.flush();
+        ExecutionException exception = assertThrows(ExecutionException.class, acknowledgement::get);
+        assertTrue(exception.getCause() instanceof NoSuchCustomerExistsException);
+        verify(customerChangeOutbox, times(1)).append(CustomerChangeType.ADDRESS_UPDATED, List.of());
+    }
+
+    @Test
+    void testFlushFailsAllAcknowledgementsWhenBatchFails() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenThrow(new IllegalStateException("db down"));
+        CompletableFuture<Void> acknowledgement = addressWriteBehindQueue.submit(1l, createAddressDtoObject("Utrecht"));
+        addressWriteBehindQueue.flush();
+        assertTrue(acknowledgement.isCompletedExceptionally());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFailedBatchIsRetriedRowByRowAndFailsOnlyTheOffendingUpdate() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation -> {
+            List<Object[]> rows = invocation.getArgument(1);
+            if (rows.size() > 1) {
+                throw new DataIntegrityViolationException("value too long for postal_code");
+            }
+            if ("toolong".equals(rows.get(0)[2])) {
+                throw new DataIntegrityViolationException("value too long for postal_code");
+            }
+            return new int[]{"Nowhere".equals(rows.get(0)[3]) ? 0 : 1};
+        });
+        CompletableFuture<Void> good = addressWriteBehindQueue.submit(1l, createAddressDtoObject("Utrecht"));
+        CompletableFuture<Void> bad = addressWriteBehindQueue.submit(2l, AddressDto.builder().postalCode("toolong").build());
+        CompletableFuture<Void> unknown = addressWriteBehindQueue.submit(3l, createAddressDtoObject("Nowhere"));
+        addressWriteBehindQueue.flush();
+        assertNull(good.join());
+        ExecutionException badFailure = assertThrows(ExecutionException.class, bad::get);
+        assertTrue(badFailure.getCause() instanceof DataIntegrityViolationException);
+        ExecutionException unknownFailure = assertThrows(ExecutionException.class, unknown::get);
+        assertTrue(unknownFailure.getCause() instanceof NoSuchCustomerExistsException);
+        verify(jdbcTemplate, times(4)).batchUpdate(anyString(), anyList());
+        verify(customerChangeOutbox, times(1)).append(CustomerChangeType.ADDRESS_UPDATED, List.of(1l));
+    }
+
+    @Test
+    void testEnabledQueueAcknowledgesAfterTimedFlushAndFlushesOnShutdown() throws Exception {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1});
+        TransactionTemplate transactionTemplate = Mockito.mock(TransactionTemplate.class);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                ((TransactionCallback<?>) invocation.getArgument(0)).doInTransaction(null));
+        AddressWriteBehindQueue enabledQueue = new AddressWriteBehindQueue(jdbcTemplate, transactionTemplate,
+                customerChangeOutbox, new SimpleMeterRegistry(), true, 500, 10);
+        enabledQueue.update(1l, createAddressDtoObject("Utrecht"));
+        verify(jdbcTemplate, atLeastOnce()).batchUpdate(anyString(), anyList());
+        enabledQueue.shutdown();
+        assertThrows(IllegalStateException.class, () -> enabledQueue.submit(1l, createAddressDtoObject("Delft")));
+    }
+
+    private static AddressDto createAddressDtoObject(String city) {
+        return AddressDto.builder()
+                .addressLine1("addrLine1")
+                .addressLine2("addrLine2")
+                .postalCode("8668DF")
+                .city(city)
+                .country("NL")
+                .build();
+    }
+}
@@ -0,0 +1,93 @@
+package com.domain.customer.service;
+
+import com.domain.customer.dto.CustomerChangeDto;
+import com.domain.customer.dto.CustomerChangeType;
+import com.domain.customer.dto.CustomerDto;
+import com.domain.customer.entity.Customer;
+import com.domain.customer.exception.ChangeFeedExpiredException;
+import com.domain.customer.search.CustomerNameIndex;
+import com.domain.customer.store.CustomerChangeOutbox;
+import com.domain.customer.store.CustomerStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CustomerCacheInvalidatorTest {
+    private CustomerChangeOutbox customerChangeOutbox;
+    private CustomerStore customerStore;
+    private CustomerNameIndex customerNameIndex;
+    private CustomerCache customerCache;
+    private CustomerCacheInvalidator customerCacheInvalidator;
+
+    @BeforeEach
+    void setUp() {
+        customerChangeOutbox = Mockito.mock(CustomerChangeOutbox.class);
+        customerStore = Mockito.mock(CustomerStore.class);
+        customerNameIndex = Mockito.mock(CustomerNameIndex.class);
+        customerCache = new CustomerCache(new ConcurrentMapCacheManager(CustomerService.CUSTOMER_CACHE));
+        customerCacheInvalidator = new CustomerCacheInvalidator(customerChangeOutbox, customerStore, customerCache,
+                customerNameIndex, new SimpleMeterRegistry(), true, 1000, "jpa");
+    }
+
+    @AfterEach
+    void tearDown() {
+        customerCacheInvalidator.shutdown();
+    }
+
+    @Test
+    void testChangesAfterTheSettledSequenceAreEvictedAndRenamesReindexed() {
+        when(customerChangeOutbox.lastSettledSequence()).thenReturn(10l);
+        when(customerChangeOutbox.findAfter(10, CustomerCacheInvalidator.BATCH_SIZE)).thenReturn(List.of(
+                change(11, 1l, CustomerChangeType.SAVED), change(12, 2l, CustomerChangeType.ADDRESS_UPDATED)));
+        Customer renamed = new Customer();
+        renamed.setId(1l);
+        when(customerStore.findAllById(Set.of(1l))).thenReturn(List.of(renamed));
+        customerCache.putIfCurrent(1l, CustomerDto.builder().id(1l).build(), customerCache.generation(1l));
+        customerCache.putIfCurrent(2l, CustomerDto.builder().id(2l).build(), customerCache.generation(2l));
+        customerCache.putIfCurrent(3l, CustomerDto.builder().id(3l).build(), customerCache.generation(3l));
+
+        customerCacheInvalidator.poll();
+        assertNull(customerCache.get(1l));
+        assertNull(customerCache.get(2l));
+        assertNotNull(customerCache.get(3l));
+        verify(customerNameIndex, times(1)).add(renamed);
+
+        when(customerChangeOutbox.findAfter(12, CustomerCacheInvalidator.BATCH_SIZE)).thenReturn(List.of());
+        customerCacheInvalidator.poll();
+        verify(customerChangeOutbox, times(1)).lastSettledSequence();
+        verify(customerChangeOutbox, times(1)).findAfter(12, CustomerCacheInvalidator.BATCH_SIZE);
+    }
+
+    @Test
+    void testPrunedChangesClearTheCache() {
+        when(customerChangeOutbox.lastSettledSequence()).thenReturn(10l, 50l);
+        when(customerChangeOutbox.findAfter(10, CustomerCacheInvalidator.BATCH_SIZE))
+                .thenThrow(new ChangeFeedExpiredException("pruned"));
+        customerCache.putIfCurrent(3l, CustomerDto.builder().id(3l).build(), customerCache.generation(3l));
+
+        customerCacheInvalidator.poll();
+        assertNull(customerCache.get(3l));
+        when(customerChangeOutbox.findAfter(50, CustomerCacheInvalidator.BATCH_SIZE)).thenReturn(List.of());
+        customerCacheInvalidator.poll();
+        verify(customerChangeOutbox, times(1)).findAfter(50, CustomerCacheInvalidator.BATCH_SIZE);
+    }
+
+    private static CustomerChangeDto change(long sequence, long customerId, CustomerChangeType type) {
+        return CustomerChangeDto.builder()
+                .sequence(sequence)
+                .customerId(customerId)
+                .type(type)
+                .changeTime(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,129 @@
+package com.domain.customer.service;
+
+import com.domain.customer.dto.CustomerChangeDto;
+import com.domain.customer.dto.CustomerChangePageDto;
+import com.domain.customer.dto.CustomerChangeType;
+import com.domain.customer.exception.ChangeFeedUnavailableException;
+import com.domain.customer.store.CustomerChangeOutbox;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerChangeFeedTest {
+    private CustomerChangeOutbox customerChangeOutbox;
+    private CustomerChangeFeed customerChangeFeed;
+
+    @BeforeEach
+    void setUp() {
+        customerChangeOutbox = Mockito.mock(CustomerChangeOutbox.class);
+        customerChangeFeed = new CustomerChangeFeed(customerChangeOutbox, new SimpleMeterRegistry(), 30000, 0, "jpa");
+    }
+
+    @AfterEach
+    void tearDown() {
+        customerChangeFeed.shutdown();
+    }
+
+    @Test
+    void testChangesAfterWithoutWaitReturnsThePageAtOnce() {
+        when(customerChangeOutbox.findAfter(5, CustomerChangeFeed.DEFAULT_LIMIT)).thenReturn(List.of());
+        CustomerChangePageDto page = (CustomerChangePageDto) customerChangeFeed.changesAfter(5, null, null).getResult();
+        assertTrue(page.getChanges().isEmpty());
+        assertEquals(5l, page.getNextCursor());
+        assertEquals(0, customerChangeFeed.waiting());
+    }
+
+    @Test
+    void testWaitingReadIsCompletedByACommittedChange() {
+        when(customerChangeOutbox.findAfter(5, 10)).thenReturn(List.of());
+        DeferredResult<CustomerChangePageDto> result = customerChangeFeed.changesAfter(5, 10, 1000l);
+        assertFalse(result.hasResult());
+        assertEquals(1, customerChangeFeed.waiting());
+
+        when(customerChangeOutbox.findAfter(5, CustomerChangeFeed.MAX_LIMIT)).thenReturn(changes(6, 20));
+        customerChangeFeed.wake(20);
+        CustomerChangePageDto page = (CustomerChangePageDto) result.getResult();
+        assertEquals(10, page.getChanges().size());
+        assertEquals(15l, page.getNextCursor());
+        assertEquals(0, customerChangeFeed.waiting());
+    }
+
+    @Test
+    void testWaitersAtTheSameSequenceShareOneRead() {
+        when(customerChangeOutbox.findAfter(5, 100)).thenReturn(List.of());
+        when(customerChangeOutbox.findAfter(8, 100)).thenReturn(List.of());
+        DeferredResult<CustomerChangePageDto> first = customerChangeFeed.changesAfter(5, null, 1000l);
+        DeferredResult<CustomerChangePageDto> second = customerChangeFeed.changesAfter(5, null, 1000l);
+        DeferredResult<CustomerChangePageDto> ahead = customerChangeFeed.changesAfter(8, null, 1000l);
+
+        when(customerChangeOutbox.findAfter(5, CustomerChangeFeed.MAX_LIMIT)).thenReturn(changes(6, 6));
+        customerChangeFeed.wake(6);
+        assertTrue(first.hasResult());
+        assertTrue(second.hasResult());
+        assertFalse(ahead.hasResult());
+        verify(customerChangeOutbox, times(1)).findAfter(5, CustomerChangeFeed.MAX_LIMIT);
+        assertEquals(1, customerChangeFeed.waiting());
+    }
+
+    @Test
+    void testChangesFoundImmediatelyAreNotParked() {
+        when(customerChangeOutbox.findAfter(0, 100)).thenReturn(changes(1, 3));
+        DeferredResult<CustomerChangePageDto> result = customerChangeFeed.changesAfter(0, null, Long.MAX_VALUE);
+        assertEquals(3l, ((CustomerChangePageDto) result.getResult()).getNextCursor());
+        assertEquals(0, customerChangeFeed.waiting());
+    }
+
+    @Test
+    void testWokenReadStaysParkedWhileChangesAreHeldBack() throws InterruptedException {
+        when(customerChangeOutbox.findAfter(5, 10)).thenReturn(List.of());
+        DeferredResult<CustomerChangePageDto> result = customerChangeFeed.changesAfter(5, 10, 60000l);
+        CountDownLatch completed = new CountDownLatch(1);
+        result.setResultHandler(page -> completed.countDown());
+
+        when(customerChangeOutbox.findAfter(5, CustomerChangeFeed.MAX_LIMIT)).thenReturn(List.of(), changes(6, 7));
+        customerChangeFeed.wake(7);
+        assertFalse(result.hasResult());
+        assertEquals(1, customerChangeFeed.waiting());
+        assertTrue(completed.await(5, TimeUnit.SECONDS));
+        assertEquals(7l, ((CustomerChangePageDto) result.getResult()).getNextCursor());
+    }
+
+    @Test
+    void testFeedIsUnavailableWithTheMappedStore() {
+        CustomerChangeFeed mappedFeed = new CustomerChangeFeed(customerChangeOutbox, new SimpleMeterRegistry(),
+                30000, 0, "mapped");
+        try {
+            assertThrows(ChangeFeedUnavailableException.class, () -> mappedFeed.changesAfter(0, null, null));
+            verifyNoInteractions(customerChangeOutbox);
+        } finally {
+            mappedFeed.shutdown();
+        }
+    }
+
+    private static List<CustomerChangeDto> changes(long fromSequence, long toSequence) {
+        return LongStream.rangeClosed(fromSequence, toSequence)
+                .mapToObj(sequence -> CustomerChangeDto.builder()
+                        .sequence(sequence)
+                        .customerId(sequence)
+                        .type(CustomerChangeType.CREATED)
+                        .changeTime(LocalDateTime.now())
+                        .build())
+                .collect(Collectors.toList());
+    }
+}
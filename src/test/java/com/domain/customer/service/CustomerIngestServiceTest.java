@@ -0,0 +1,98 @@
+package com.domain.customer.service;
+
+import com.domain.customer.dto.AddressDto;
+import com.domain.customer.dto.BulkIngestReportDto;
+import com.domain.customer.dto.CustomerDto;
+import com.domain.customer.entity.Customer;
+import com.domain.customer.search.CustomerNameIndex;
+import com.domain.customer.store.CustomerStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.support.NoOpCacheManager;
+
+import javax.persistence.PersistenceException;
+import javax.validation.Validation;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerIngestServiceTest {
+    private CustomerStore customerStore;
+    private CustomerNameIndex customerNameIndex;
+    private CustomerIngestService customerIngestService;
+
+    @BeforeEach
+    void setUp() {
+        customerStore = Mockito.mock(CustomerStore.class);
+        customerNameIndex = Mockito.mock(CustomerNameIndex.class);
+        lenient().when(customerStore.insertAll(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        customerIngestService = new CustomerIngestService(customerStore,
+                Validation.buildDefaultValidatorFactory().getValidator(), customerNameIndex,
+                new CustomerCache(new NoOpCacheManager()));
+    }
+
+    @Test
+    void testIngestPersistsValidRecordsWithoutIds() {
+        BulkIngestReportDto report = customerIngestService.ingest(
+                List.of(createCustomerDtoObject("fname1"), createCustomerDtoObject("fname2")).iterator());
+        assertEquals(2, report.getReceived());
+        assertEquals(2, report.getInserted());
+        assertTrue(report.getFailures().isEmpty());
+        verify(customerStore, times(1)).insertAll(argThat(customers -> customers.size() == 2 && customers.stream()
+                .allMatch(customer -> customer.getId() == null && customer.getAddress().getAddressId() == null)));
+        verify(customerNameIndex, times(2)).add(any());
+    }
+
+    @Test
+    void testIngestReportsInvalidRecords() {
+        BulkIngestReportDto report = customerIngestService.ingest(
+                List.of(createCustomerDtoObject("fname1"), createCustomerDtoObject("")).iterator());
+        assertEquals(2, report.getReceived());
+        assertEquals(1, report.getInserted());
+        assertEquals(1, report.getFailures().size());
+        assertEquals(1, report.getFailures().get(0).getIndex());
+        assertTrue(report.getFailures().get(0).getReason().contains("firstName"));
+    }
+
+    @Test
+    void testIngestRetriesFailedChunkRecordByRecord() {
+        CustomerDto rejected = createCustomerDtoObject("rejected");
+        when(customerStore.insertAll(any())).thenAnswer(invocation -> {
+            List<Customer> customers = invocation.getArgument(0);
+            if (customers.stream().anyMatch(customer -> "rejected".equals(customer.getFirstName()))) {
+                throw new PersistenceException("constraint violation");
+            }
+            return customers;
+        });
+        BulkIngestReportDto report = customerIngestService.ingest(
+                List.of(createCustomerDtoObject("fname1"), rejected, createCustomerDtoObject("fname3")).iterator());
+        assertEquals(3, report.getReceived());
+        assertEquals(2, report.getInserted());
+        assertEquals(1, report.getFailures().size());
+        assertEquals(1, report.getFailures().get(0).getIndex());
+        assertEquals("constraint violation", report.getFailures().get(0).getReason());
+        verify(customerNameIndex, times(2)).add(any());
+    }
+
+    private static CustomerDto createCustomerDtoObject(String firstName) {
+        return CustomerDto.builder()
+                .id(1l)
+                .firstName(firstName)
+                .lastName("lname")
+                .age(23)
+                .addressDto(AddressDto.builder()
+                        .addressId(1l)
+                        .addressLine1("addrLine1")
+                        .postalCode("8668DF")
+                        .city("Utrecht")
+                        .country("NL")
+                        .build())
+                .build();
+    }
+}
@@ -0,0 +1,85 @@
+package com.domain.customer.service;
+
+import com.domain.customer.dto.CustomerDto;
+import com.domain.customer.dto.CustomerLookupDto;
+import com.domain.customer.entity.Customer;
+import com.domain.customer.exception.InvalidRequestException;
+import com.domain.customer.store.CustomerStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerLookupServiceTest {
+    private CustomerStore customerStore;
+    private Cache customerCache;
+    private CustomerLookupService customerLookupService;
+
+    @BeforeEach
+    void setUp() {
+        customerStore = Mockito.mock(CustomerStore.class);
+        ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager(CustomerService.CUSTOMER_CACHE);
+        customerCache = cacheManager.getCache(CustomerService.CUSTOMER_CACHE);
+        customerLookupService = new CustomerLookupService(customerStore, new CustomerCache(cacheManager));
+    }
+
+    @Test
+    void testLookupReturnsRequestOrderWithNotFoundMarkers() {
+        when(customerStore.findAllById(any())).thenReturn(List.of(createCustomer(3l), createCustomer(1l)));
+        List<CustomerLookupDto> results = customerLookupService.lookupCustomers(List.of(1l, 2l, 3l, 1l));
+        assertEquals(List.of(1l, 2l, 3l, 1l), results.stream().map(CustomerLookupDto::getId).collect(Collectors.toList()));
+        assertEquals(List.of(true, false, true, true),
+                results.stream().map(CustomerLookupDto::isFound).collect(Collectors.toList()));
+        assertNull(results.get(1).getCustomer());
+        assertEquals("fname3", results.get(2).getCustomer().getFirstName());
+        verify(customerStore, times(1)).findAllById(Set.of(1l, 2l, 3l));
+    }
+
+    @Test
+    void testLookupReadsOnlyCacheMissesAndCachesThem() {
+        CustomerDto cached = CustomerDto.builder().id(1l).firstName("cached").build();
+        customerCache.put(1l, cached);
+        when(customerStore.findAllById(any())).thenReturn(List.of(createCustomer(2l)));
+        List<CustomerLookupDto> results = customerLookupService.lookupCustomers(List.of(1l, 2l));
+        assertSame(cached, results.get(0).getCustomer());
+        verify(customerStore, times(1)).findAllById(Set.of(2l));
+        assertNotNull(customerCache.get(2l));
+
+        List<CustomerLookupDto> again = customerLookupService.lookupCustomers(List.of(2l, 1l));
+        assertTrue(again.stream().allMatch(CustomerLookupDto::isFound));
+        verifyNoMoreInteractions(customerStore);
+    }
+
+    @Test
+    void testLookupRejectsInvalidIdLists() {
+        assertThrows(InvalidRequestException.class, () -> customerLookupService.lookupCustomers(null));
+        assertThrows(InvalidRequestException.class, () -> customerLookupService.lookupCustomers(Collections.emptyList()));
+        assertThrows(InvalidRequestException.class, () -> customerLookupService.lookupCustomers(Arrays.asList(1l, null)));
+        List<Long> tooMany = new ArrayList<>(Collections.nCopies(CustomerLookupService.MAX_IDS + 1, 1l));
+        assertThrows(InvalidRequestException.class, () -> customerLookupService.lookupCustomers(tooMany));
+        verifyNoInteractions(customerStore);
+    }
+
+    private static Customer createCustomer(Long id) {
+        Customer customer = new Customer();
+        customer.setId(id);
+        customer.setFirstName("fname" + id);
+        customer.setLastName("lname" + id);
+        return customer;
+    }
+}
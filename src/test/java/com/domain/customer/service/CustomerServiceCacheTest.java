@@ -0,0 +1,198 @@
+package com.domain.customer.service;
+
+import com.domain.customer.dto.AddressDto;
+import com.domain.customer.dto.CustomerDto;
+import com.domain.customer.dto.CustomerNameDto;
+import com.domain.customer.dto.CustomerPatchDto;
+import com.domain.customer.entity.Customer;
+import com.domain.customer.mapper.CustomerMapper;
+import com.domain.customer.search.CustomerNameIndex;
+import com.domain.customer.store.CustomerStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@SpringJUnitConfig(CustomerServiceCacheTest.CacheTestConfig.class)
+class CustomerServiceCacheTest {
+
+    // not a @Configuration, the benchmarks start the application on the test classpath and must not scan it
+    @EnableCaching
+    static class CacheTestConfig {
+        @Bean
+        CacheManager cacheManager() {
+            return new CaffeineCacheManager(CustomerService.CUSTOMER_CACHE);
+        }
+
+        @Bean
+        CustomerStore customerStore() {
+            return Mockito.mock(CustomerStore.class);
+        }
+
+        @Bean
+        CustomerCache customerCache(CacheManager cacheManager) {
+            return new CustomerCache(cacheManager);
+        }
+
+        @Bean
+        CustomerService customerService(CustomerStore customerStore, CustomerCache customerCache) {
+            return new CustomerService(customerStore, Mockito.mock(CustomerNameIndex.class), customerCache,
+                    new SimpleMeterRegistry(), true);
+        }
+    }
+
+    @Autowired
+    private CustomerService customerService;
+    @Autowired
+    private CustomerStore customerStore;
+    @Autowired
+    private CacheManager cacheManager;
+
+    @BeforeEach
+    void setUp() {
+        reset(customerStore);
+        cacheManager.getCache(CustomerService.CUSTOMER_CACHE).clear();
+    }
+
+    @Test
+    void testSearchCustomerByIdIsServedFromCache() {
+        when(customerStore.findById(1l)).thenReturn(Optional.of(createCustomer()));
+        CustomerDto first = customerService.searchCustomerById(1l);
+        CustomerDto second = customerService.searchCustomerById(1l);
+        assertSame(first, second);
+        verify(customerStore, times(1)).findById(1l);
+    }
+
+    @Test
+    void testUpdateCustomerEvictsCachedCustomer() {
+        Customer customer = createCustomer();
+        when(customerStore.findById(1l)).thenReturn(Optional.of(customer));
+        when(customerStore.updateAddress(any(), any())).thenReturn(1);
+        customerService.searchCustomerById(1l);
+        customerService.updateCustomer(CustomerPatchDto.builder()
+                .customerId(1l)
+                .addressDto(createAddressDtoObject())
+                .build());
+        customerService.searchCustomerById(1l);
+        verify(customerStore, times(2)).findById(1l);
+    }
+
+    @Test
+    void testLoadStartedBeforeAnUpdateIsNeitherCachedNorShared() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Customer before = createCustomer();
+        Customer after = createCustomer();
+        after.getAddress().setCity("Amsterdam");
+        when(customerStore.findById(1l)).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return Optional.of(before);
+        }).thenReturn(Optional.of(after));
+        when(customerStore.updateAddress(any(), any())).thenReturn(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<CustomerDto> staleRead = executor.submit(() -> customerService.searchCustomerById(1l));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            customerService.updateCustomer(CustomerPatchDto.builder()
+                    .customerId(1l)
+                    .addressDto(createAddressDtoObject())
+                    .build());
+            assertEquals("Amsterdam", customerService.searchCustomerById(1l).getAddressDto().getCity());
+            release.countDown();
+            assertEquals("Utrecht", staleRead.get(5, TimeUnit.SECONDS).getAddressDto().getCity());
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals("Amsterdam", customerService.searchCustomerById(1l).getAddressDto().getCity());
+        verify(customerStore, times(2)).findById(1l);
+    }
+
+    @Test
+    void testNameSearchAfterAnAddDoesNotJoinALoadStartedBeforeIt() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Customer existing = createCustomer();
+        Customer added = createCustomer();
+        added.setId(2l);
+        when(customerStore.findByFirstNameAndLastName("fname", "lname")).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return List.of(existing);
+        }).thenReturn(List.of(existing, added));
+        when(customerStore.insert(any(Customer.class))).thenReturn(added);
+        CustomerNameDto byName = CustomerNameDto.builder()
+                .firstName("fname")
+                .lastName("lname")
+                .build();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<List<CustomerDto>> staleRead = executor.submit(() -> customerService.searchCustomerByName(byName));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            customerService.addCustomer(CustomerMapper.MAPPER.customerToCustomerDto(added));
+            assertEquals(2, customerService.searchCustomerByName(byName).size());
+            release.countDown();
+            assertEquals(1, staleRead.get(5, TimeUnit.SECONDS).size());
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(customerStore, times(2)).findByFirstNameAndLastName("fname", "lname");
+    }
+
+    @Test
+    void testAddCustomerEvictsCachedCustomer() {
+        Customer customer = createCustomer();
+        CustomerDto customerDto = CustomerMapper.MAPPER.customerToCustomerDto(customer);
+        cacheManager.getCache(CustomerService.CUSTOMER_CACHE).put(1l, customerDto);
+        cacheManager.getCache(CustomerService.CUSTOMER_CACHE).put(99l, customerDto);
+        customerDto.setId(99l);
+        when(customerStore.existsById(99l)).thenReturn(false);
+        when(customerStore.insert(any(Customer.class))).thenReturn(customer);
+        customerService.addCustomer(customerDto);
+        // the saved id is evicted, the id the client sent is not the one that was written
+        assertNull(cacheManager.getCache(CustomerService.CUSTOMER_CACHE).get(1l));
+        assertNotNull(cacheManager.getCache(CustomerService.CUSTOMER_CACHE).get(99l));
+    }
+
+    private static Customer createCustomer() {
+        return CustomerMapper.MAPPER.customerDtoToCustomer(CustomerDto.builder()
+                .id(1l)
+                .firstName("fname")
+                .lastName("lname")
+                .age(23)
+                .addressDto(createAddressDtoObject())
+                .build());
+    }
+
+    private static AddressDto createAddressDtoObject() {
+        return AddressDto.builder()
+                .addressId(1l)
+                .addressLine1("addrLine1")
+                .postalCode("8668DF")
+                .city("Utrecht")
+                .country("NL")
+                .build();
+    }
+}
@@ -3,24 +3,28 @@ package com.domain.customer.service;
 import com.domain.customer.dto.AddressDto;
 import com.domain.customer.dto.CustomerDto;
 import com.domain.customer.dto.CustomerNameDto;
+import com.domain.customer.dto.CustomerPageDto;
 import com.domain.customer.dto.CustomerPatchDto;
+import com.domain.customer.dto.NameMatchMode;
 import com.domain.customer.entity.Customer;
 import com.domain.customer.exception.CustomerAlreadyExistsException;
 import com.domain.customer.exception.InvalidRequestException;
 import com.domain.customer.exception.NoSuchCustomerExistsException;
-import com.domain.customer.mapper.AddressMapper;
 import com.domain.customer.mapper.CustomerMapper;
-import com.domain.customer.repository.AddressRepository;
-import com.domain.customer.repository.CustomerRespository;
+import com.domain.customer.search.CustomerNameIndex;
+import com.domain.customer.store.CustomerStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.support.NoOpCacheManager;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -28,40 +32,76 @@ import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class CustomerServiceTest {
-    private CustomerRespository customerRespository;
-    private AddressRepository addressRepository;
+    private CustomerStore customerStore;
+    private CustomerNameIndex customerNameIndex;
     private CustomerService customerService;
 
     @BeforeEach
     void setUp() {
-        customerRespository = Mockito.mock(CustomerRespository.class);
-        addressRepository = Mockito.mock(AddressRepository.class);
-        customerService = new CustomerService(customerRespository, addressRepository);
+        customerStore = Mockito.mock(CustomerStore.class);
+        customerNameIndex = Mockito.mock(CustomerNameIndex.class);
+        customerService = new CustomerService(customerStore, customerNameIndex,
+                new CustomerCache(new NoOpCacheManager()), new SimpleMeterRegistry(), true);
     }
     @Test
     void testAddCustomer() {
         AddressDto addressDto = createAddressDtoObject();
         CustomerDto customerDto = createCustomerDtoObject(addressDto);
         Customer customer = CustomerMapper.MAPPER.customerDtoToCustomer(customerDto);
-        when(customerRespository.findById(any())).thenReturn(null);
-        when(customerRespository.save(any(Customer.class))).thenReturn(customer);
+        when(customerStore.existsById(any())).thenReturn(false);
+        when(customerStore.insert(any(Customer.class))).thenReturn(customer);
         CustomerDto response = customerService.addCustomer(customerDto);
         assertNotNull(response);
         assertEquals(response.getMessage(), "Customer added successfully!!!");
-        verify(customerRespository, times(1)).findById(anyLong());
-        verify(customerRespository, times(1)).save(any());
+        verify(customerStore, times(1)).existsById(anyLong());
+        verify(customerStore, never()).findById(anyLong());
+        verify(customerStore, times(1)).insert(argThat((Customer saved) -> saved.getId() == null));
+        verify(customerNameIndex, times(1)).add(customer);
     }
 
     @Test
     void testAddCustomerAlreadyExists() {
         AddressDto addressDto = createAddressDtoObject();
         CustomerDto customerDto = createCustomerDtoObject(addressDto);
-        when(customerRespository.findById(any())).thenReturn(Optional.ofNullable(CustomerMapper.MAPPER.customerDtoToCustomer(customerDto)));
+        when(customerStore.existsById(any())).thenReturn(true);
         Exception exception = assertThrows(
                 CustomerAlreadyExistsException.class,
                 () -> customerService.addCustomer(customerDto));
         assertTrue(exception.getMessage().contains("already exists"));
-        verify(customerRespository, times(1)).findById(anyLong());
+        verify(customerStore, times(1)).existsById(anyLong());
+        verify(customerStore, never()).insert(any());
+    }
+
+    @Test
+    void testAddCustomerWithoutIdSkipsExistenceCheck() {
+        CustomerDto customerDto = createCustomerDtoObject(createAddressDtoObject());
+        customerDto.setId(null);
+        when(customerStore.insert(any(Customer.class)))
+                .thenReturn(CustomerMapper.MAPPER.customerDtoToCustomer(createCustomerDtoObject(createAddressDtoObject())));
+        CustomerDto response = customerService.addCustomer(customerDto);
+        assertEquals("Customer added successfully!!!", response.getMessage());
+        verify(customerStore, never()).existsById(any());
+    }
+
+    @Test
+    void testUpsertCustomer() {
+        CustomerDto customerDto = createCustomerDtoObject(createAddressDtoObject());
+        CustomerDto response = customerService.upsertCustomer(7l, customerDto);
+        assertEquals(7l, response.getId());
+        assertNull(response.getAddressDto().getAddressId());
+        assertEquals("Customer saved successfully!!!", response.getMessage());
+        assertEquals(createCustomerDtoObject(createAddressDtoObject()), customerDto);
+        verify(customerStore, times(1)).upsert(argThat(saved -> saved.getId() == 7l
+                && "fname".equals(saved.getFirstName()) && saved.getAddressDto().getAddressId() == null));
+        verify(customerNameIndex, times(1)).add(argThat(customer -> customer.getId() == 7l));
+        verify(customerStore, never()).findById(any());
+    }
+
+    @Test
+    void testUpsertCustomerWithoutAddress() {
+        CustomerDto customerDto = createCustomerDtoObject(null);
+        assertThrows(InvalidRequestException.class, () -> customerService.upsertCustomer(7l, customerDto));
+        verify(customerStore, never()).upsert(any());
     }
 
     @Test
@@ -69,22 +109,22 @@ class CustomerServiceTest {
         AddressDto addressDto = createAddressDtoObject();
         CustomerDto customerDto = createCustomerDtoObject(addressDto);
         Customer customer = CustomerMapper.MAPPER.customerDtoToCustomer(customerDto);
-        when(customerRespository.findById(any())).thenReturn(Optional.ofNullable(customer));
+        when(customerStore.findById(any())).thenReturn(Optional.ofNullable(customer));
         CustomerDto response = customerService.searchCustomerById(anyLong());
         assertNotNull(response);
         assertEquals(response.getAge(), 23);
         assertNull(response.getMessage());
-        verify(customerRespository, times(1)).findById(anyLong());
+        verify(customerStore, times(1)).findById(anyLong());
     }
 
     @Test
     void testSearchCustomerByIdWithNoCustomerException() {
-        when(customerRespository.findById(any())).thenReturn(null);
+        when(customerStore.findById(any())).thenReturn(null);
         Exception exception = assertThrows(
                 NoSuchCustomerExistsException.class,
                 () -> customerService.searchCustomerById(anyLong()));
         assertTrue(exception.getMessage().contains("No Customer present"));
-        verify(customerRespository, times(1)).findById(anyLong());
+        verify(customerStore, times(1)).findById(anyLong());
     }
 
     @Test
@@ -93,26 +133,12 @@ class CustomerServiceTest {
                 .firstName("fname")
                 .lastName("lname")
                 .build();
-        when(customerRespository.findCustomerByFirstNameAndLastName(any(), any())).thenReturn(Optional.ofNullable(List.of()));
-        Exception exception = assertThrows(
-                NoSuchCustomerExistsException.class,
-                () -> customerService.searchCustomerByName(customerNameDto));
-        assertTrue(exception.getMessage().contains("No Customer present"));
-        verify(customerRespository, times(1)).findCustomerByFirstNameAndLastName(anyString(), anyString());
-    }
-
-    @Test
-    void testSearchCustomerByBothNamesButNullResponse() {
-        CustomerNameDto customerNameDto = CustomerNameDto.builder()
-                .firstName("fname")
-                .lastName("lname")
-                .build();
-        when(customerRespository.findCustomerByFirstNameAndLastName(any(), any())).thenReturn(Optional.ofNullable(null));
+        when(customerStore.findByFirstNameAndLastName(any(), any())).thenReturn(List.of());
         Exception exception = assertThrows(
                 NoSuchCustomerExistsException.class,
                 () -> customerService.searchCustomerByName(customerNameDto));
         assertTrue(exception.getMessage().contains("No Customer present"));
-        verify(customerRespository, times(1)).findCustomerByFirstNameAndLastName(anyString(), anyString());
+        verify(customerStore, times(1)).findByFirstNameAndLastName(anyString(), anyString());
     }
 
     @Test
@@ -125,12 +151,12 @@ class CustomerServiceTest {
                 .firstName("fname")
                 .lastName("lname")
                 .build();
-        when(customerRespository.findCustomerByFirstNameAndLastName(any(), any())).thenReturn(Optional.ofNullable(customers));
+        when(customerStore.findByFirstNameAndLastName(any(), any())).thenReturn(customers);
         List<CustomerDto> response = customerService.searchCustomerByName(customerNameDto);
         assertNotNull(response);
         assertEquals(response.size(), 1);
-        verify(customerRespository, times(1))
-                .findCustomerByFirstNameAndLastName(anyString(), anyString());
+        verify(customerStore, times(1))
+                .findByFirstNameAndLastName(anyString(), anyString());
     }
 
     @Test
@@ -143,12 +169,12 @@ class CustomerServiceTest {
                 .firstName("fname")
                 .lastName("")
                 .build();
-        when(customerRespository.findCustomerByFirstNameOrLastName(any(), any())).thenReturn(Optional.ofNullable(customers));
+        when(customerStore.findByFirstNameOrLastName(any(), any())).thenReturn(customers);
         List<CustomerDto> response = customerService.searchCustomerByName(customerNameDto);
         assertNotNull(response);
         assertTrue(response.size()==1);
-        verify(customerRespository, times(1)).
-                findCustomerByFirstNameOrLastName(anyString(),anyString());
+        verify(customerStore, times(1)).
+                findByFirstNameOrLastName(anyString(),anyString());
     }
 
     @Test
@@ -157,13 +183,13 @@ class CustomerServiceTest {
                 .firstName("fname")
                 .lastName("")
                 .build();
-        when(customerRespository.findCustomerByFirstNameOrLastName(any(), any())).thenReturn(Optional.of(List.of()));
+        when(customerStore.findByFirstNameOrLastName(any(), any())).thenReturn(List.of());
         Exception exception = assertThrows(
                 NoSuchCustomerExistsException.class,
                 () -> customerService.searchCustomerByName(customerNameDto));
         assertTrue(exception.getMessage().contains("No Customer present"));
-        verify(customerRespository, times(1))
-                .findCustomerByFirstNameOrLastName(anyString(), anyString());
+        verify(customerStore, times(1))
+                .findByFirstNameOrLastName(anyString(), anyString());
     }
 
     @Test
@@ -176,12 +202,12 @@ class CustomerServiceTest {
                 .firstName("")
                 .lastName("lname")
                 .build();
-        when(customerRespository.findCustomerByFirstNameOrLastName(any(), any())).thenReturn(Optional.ofNullable(customers));
+        when(customerStore.findByFirstNameOrLastName(any(), any())).thenReturn(customers);
         List<CustomerDto> response = customerService.searchCustomerByName(customerNameDto);
         assertNotNull(response);
         assertTrue(response.size()==1);
-        verify(customerRespository, times(1)).
-                findCustomerByFirstNameOrLastName(anyString(),anyString());
+        verify(customerStore, times(1)).
+                findByFirstNameOrLastName(anyString(),anyString());
     }
 
     @Test
@@ -190,28 +216,13 @@ class CustomerServiceTest {
                 .firstName("")
                 .lastName("lname")
                 .build();
-        when(customerRespository.findCustomerByFirstNameOrLastName(any(), any())).thenReturn(Optional.of(List.of()));
+        when(customerStore.findByFirstNameOrLastName(any(), any())).thenReturn(List.of());
         Exception exception = assertThrows(
                 NoSuchCustomerExistsException.class,
                 () -> customerService.searchCustomerByName(customerNameDto));
         assertTrue(exception.getMessage().contains("No Customer present"));
-        verify(customerRespository, times(1))
-                .findCustomerByFirstNameOrLastName(anyString(), anyString());
-    }
-
-    @Test
-    void testSearchCustomerByLastNameWithExceptionOne() {
-        CustomerNameDto customerNameDto = CustomerNameDto.builder()
-                .firstName("")
-                .lastName("lname")
-                .build();
-        when(customerRespository.findCustomerByFirstNameOrLastName(any(), any())).thenReturn(Optional.ofNullable(null));
-        Exception exception = assertThrows(
-                NoSuchCustomerExistsException.class,
-                () -> customerService.searchCustomerByName(customerNameDto));
-        assertTrue(exception.getMessage().contains("or last name"));
-        verify(customerRespository, times(1))
-                .findCustomerByFirstNameOrLastName(anyString(), anyString());
+        verify(customerStore, times(1))
+                .findByFirstNameOrLastName(anyString(), anyString());
     }
 
     @Test
@@ -228,42 +239,56 @@ class CustomerServiceTest {
 
     @Test
     void testUpdateCustomerWithSuccessResponse() {
-        CustomerDto customerDto = CustomerDto.builder()
-                .id(3l)
-                .addressDto(AddressDto.builder().addressId(1l).build())
-                .build();
-        Customer customer = CustomerMapper.MAPPER.customerDtoToCustomer(customerDto);
         CustomerPatchDto customerPatchDto = CustomerPatchDto.builder()
                 .customerId(3l)
                 .addressDto(createAddressDtoObject())
                 .build();
-        when(customerRespository.findById(anyLong())).thenReturn(Optional.ofNullable(customer));
-        when(addressRepository.save(any())).thenReturn(AddressMapper.MAPPER.mapAddressDtoToAddress(createAddressDtoObject()));
+        when(customerStore.updateAddress(anyLong(), any())).thenReturn(1);
         String response = customerService.updateCustomer(customerPatchDto);
         assertNotNull(response);
         assertTrue(response.contains("updated successfully"));
-        verify(customerRespository, times(1)).findById(anyLong());
-        verify(addressRepository, times(1)).save(any());
+        verify(customerStore, times(1)).updateAddress(3l, customerPatchDto.getAddressDto());
+        verify(customerStore, never()).findById(anyLong());
     }
 
     @Test
-    void testUpdateCustomerWithFailureResponse() {
-        CustomerDto customerDto = CustomerDto.builder()
-                .id(3l)
-                .addressDto(AddressDto.builder().addressId(1l).build())
+    void testUpdateCustomerWithPartialAddress() {
+        CustomerPatchDto customerPatchDto = CustomerPatchDto.builder()
+                .customerId(3l)
+                .addressDto(AddressDto.builder().city("Amsterdam").build())
                 .build();
-        Customer customer = CustomerMapper.MAPPER.customerDtoToCustomer(customerDto);
+        when(customerStore.updateAddress(anyLong(), any())).thenReturn(1);
+        String response = customerService.updateCustomer(customerPatchDto);
+        assertTrue(response.contains("updated successfully"));
+        verify(customerStore, times(1)).updateAddress(3l, customerPatchDto.getAddressDto());
+    }
+
+    @Test
+    void testUpdateCustomerWithNoCustomerException() {
         CustomerPatchDto customerPatchDto = CustomerPatchDto.builder()
                 .customerId(3l)
                 .addressDto(createAddressDtoObject())
                 .build();
-        when(customerRespository.findById(anyLong())).thenReturn(Optional.ofNullable(customer));
-        when(addressRepository.save(any())).thenReturn(null);
-        String response = customerService.updateCustomer(customerPatchDto);
-        assertNotNull(response);
-        assertTrue(response.contains("update failed"));
-        verify(customerRespository, times(1)).findById(anyLong());
-        verify(addressRepository, times(1)).save(any());
+        when(customerStore.updateAddress(anyLong(), any())).thenReturn(0);
+        Exception exception = assertThrows(
+                NoSuchCustomerExistsException.class,
+                () -> customerService.updateCustomer(customerPatchDto));
+        assertTrue(exception.getMessage().contains("No Customer present"));
+    }
+
+    @Test
+    void testUpdateCustomerWithBlankOrEmptyChanges() {
+        CustomerPatchDto blankCity = CustomerPatchDto.builder()
+                .customerId(3l)
+                .addressDto(AddressDto.builder().city(" ").build())
+                .build();
+        CustomerPatchDto noChanges = CustomerPatchDto.builder()
+                .customerId(3l)
+                .addressDto(AddressDto.builder().build())
+                .build();
+        assertThrows(InvalidRequestException.class, () -> customerService.updateCustomer(blankCity));
+        assertThrows(InvalidRequestException.class, () -> customerService.updateCustomer(noChanges));
+        verify(customerStore, never()).updateAddress(any(), any());
     }
 
     @Test
@@ -272,19 +297,111 @@ class CustomerServiceTest {
         List<CustomerDto> customerDtoList = new ArrayList<>();
         customerDtoList.add(customerDto);
         List<Customer> customerList = CustomerMapper.MAPPER.customerDtoListToCustomer(customerDtoList);
-        when(customerRespository.findAll()).thenReturn(customerList);
+        when(customerStore.findAll()).thenReturn(customerList);
         List<CustomerDto> response = customerService.getCustomers();
         assertNotNull(response);
-        verify(customerRespository, times(1)).findAll();
+        verify(customerStore, times(1)).findAll();
     }
 
     @Test
     void testGetAllCustomersWithFailure() {
-        when(customerRespository.findAll()).thenReturn(List.of());
+        when(customerStore.findAll()).thenReturn(List.of());
         List<CustomerDto> response = customerService.getCustomers();
         assertNotNull(response);
         assertEquals(response.get(0).getMessage(), "No customers found, please add customers");
-        verify(customerRespository, times(1)).findAll();
+        verify(customerStore, times(1)).findAll();
+    }
+
+    @Test
+    void testGetCustomersPageWithNextCursor() {
+        Customer first = CustomerMapper.MAPPER.customerDtoToCustomer(createCustomerDtoObject(createAddressDtoObject()));
+        Customer second = CustomerMapper.MAPPER.customerDtoToCustomer(createCustomerDtoObject(createAddressDtoObject()));
+        second.setId(2l);
+        when(customerStore.findPage(anyLong(), anyInt()))
+                .thenReturn(List.of(first, second));
+        CustomerPageDto response = customerService.getCustomersPage(null, 2);
+        assertEquals(2, response.getCustomers().size());
+        assertEquals(2l, response.getNextCursor());
+        verify(customerStore, times(1)).findPage(0L, 2);
+    }
+
+    @Test
+    void testGetCustomersPageWithLastPage() {
+        Customer customer = CustomerMapper.MAPPER.customerDtoToCustomer(createCustomerDtoObject(createAddressDtoObject()));
+        when(customerStore.findPage(anyLong(), anyInt()))
+                .thenReturn(List.of(customer));
+        CustomerPageDto response = customerService.getCustomersPage(5l, 10);
+        assertEquals(1, response.getCustomers().size());
+        assertNull(response.getNextCursor());
+        verify(customerStore, times(1)).findPage(5L, 10);
+    }
+
+    @Test
+    void testSearchCustomerByNamePagePrefixOnBothNames() {
+        Customer customer = CustomerMapper.MAPPER.customerDtoToCustomer(createCustomerDtoObject(createAddressDtoObject()));
+        when(customerStore.searchByNormalizedNames(anyString(), anyString(), any(), anyString(), anyLong(), anyInt()))
+                .thenReturn(List.of(customer));
+        CustomerNameDto customerNameDto = CustomerNameDto.builder()
+                .firstName(" FName")
+                .lastName("L_n%")
+                .limit(1)
+                .build();
+        CustomerPageDto response = customerService.searchCustomerByNamePage(customerNameDto);
+        assertEquals(1, response.getCustomers().size());
+        assertEquals(1l, response.getNextCursor());
+        assertEquals("fname", response.getNextName());
+        verify(customerStore, times(1))
+                .searchByNormalizedNames("fname", "l_n%", NameMatchMode.PREFIX, "", 0L, 1);
+    }
+
+    @Test
+    void testSearchCustomerByNamePageIgnoreCaseOnLastName() {
+        when(customerStore.searchByNormalizedNames(any(), anyString(), any(), anyString(), anyLong(), anyInt()))
+                .thenReturn(List.of());
+        CustomerNameDto customerNameDto = CustomerNameDto.builder()
+                .lastName("LName")
+                .matchMode(NameMatchMode.IGNORE_CASE)
+                .afterName("lname")
+                .after(10l)
+                .build();
+        CustomerPageDto response = customerService.searchCustomerByNamePage(customerNameDto);
+        assertTrue(response.getCustomers().isEmpty());
+        assertNull(response.getNextName());
+        verify(customerStore, times(1)).searchByNormalizedNames(null, "lname", NameMatchMode.IGNORE_CASE, "lname",
+                10L, CustomerService.DEFAULT_PAGE_SIZE);
+    }
+
+    @Test
+    void testSearchCustomerByNamePageRejectsIdCursorWithoutName() {
+        CustomerNameDto customerNameDto = CustomerNameDto.builder()
+                .firstName("fname")
+                .after(10l)
+                .build();
+        assertThrows(InvalidRequestException.class, () -> customerService.searchCustomerByNamePage(customerNameDto));
+    }
+
+    @Test
+    void testSearchCustomerByNamePageRejectsExactMode() {
+        CustomerNameDto customerNameDto = CustomerNameDto.builder()
+                .firstName("fname")
+                .matchMode(NameMatchMode.EXACT)
+                .build();
+        assertThrows(InvalidRequestException.class, () -> customerService.searchCustomerByNamePage(customerNameDto));
+    }
+
+    @Test
+    void testStreamCustomersMapsEveryCustomer() {
+        Customer customer = CustomerMapper.MAPPER.customerDtoToCustomer(createCustomerDtoObject(createAddressDtoObject()));
+        doAnswer(invocation -> {
+            Consumer<Customer> consumer = invocation.getArgument(0);
+            consumer.accept(customer);
+            consumer.accept(customer);
+            return null;
+        }).when(customerStore).forEachOrderById(any());
+        List<CustomerDto> streamed = new ArrayList<>();
+        customerService.streamCustomers(streamed::add);
+        assertEquals(2, streamed.size());
+        assertEquals("fname", streamed.get(0).getFirstName());
     }
 
     private static CustomerDto createCustomerDtoObject(AddressDto addressDto) {
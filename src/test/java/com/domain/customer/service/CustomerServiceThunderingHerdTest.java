@@ -0,0 +1,76 @@
+package com.domain.customer.service;
+
+import com.domain.customer.entity.Customer;
+import com.domain.customer.search.CustomerNameIndex;
+import com.domain.customer.store.CustomerStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.cache.support.NoOpCacheManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+/**
+ * Many threads reading the same customer for a fixed time against a store that takes 2ms per call, as after a
+ * deploy or a cache flush. Store calls per second stay at the rate of one caller with coalescing.
+ */
+class CustomerServiceThunderingHerdTest {
+    private static final int THREADS = 64;
+    private static final long DURATION_MS = 300;
+
+    @Test
+    void testStoreCallsCollapseWithCoalescing() throws Exception {
+        double uncoalesced = storeCallsPerSecond(false);
+        double coalesced = storeCallsPerSecond(true);
+        assertTrue(coalesced * 10 < uncoalesced, "store calls per second: " + coalesced + " coalesced, "
+                + uncoalesced + " without");
+    }
+
+    private static double storeCallsPerSecond(boolean coalesce) throws Exception {
+        AtomicInteger storeCalls = new AtomicInteger();
+        CustomerStore customerStore = Mockito.mock(CustomerStore.class, Mockito.withSettings().stubOnly());
+        when(customerStore.findById(anyLong())).thenAnswer(invocation -> {
+            storeCalls.incrementAndGet();
+            Thread.sleep(2);
+            Customer customer = new Customer();
+            customer.setId(invocation.getArgument(0));
+            return Optional.of(customer);
+        });
+        CustomerService customerService = new CustomerService(customerStore, Mockito.mock(CustomerNameIndex.class),
+                new CustomerCache(new NoOpCacheManager()), new SimpleMeterRegistry(), coalesce);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> readers = new ArrayList<>();
+        try {
+            for (int i = 0; i < THREADS; i++) {
+                readers.add(executor.submit(() -> {
+                    start.await();
+                    long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DURATION_MS);
+                    while (System.nanoTime() < end) {
+                        customerService.searchCustomerById(1l);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> reader : readers) {
+                reader.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return storeCalls.get() * 1000d / DURATION_MS;
+    }
+}
@@ -0,0 +1,105 @@
+package com.domain.customer.service;
+
+import com.domain.customer.exception.NoSuchCustomerExistsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+    private SimpleMeterRegistry meterRegistry;
+    private SingleFlight<Long, List<String>> singleFlight;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        singleFlight = new SingleFlight<>(meterRegistry, "test", true);
+    }
+
+    @Test
+    void testConcurrentCallsShareOneLoadAndResult() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        List<String> loaded = List.of("customer");
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<List<String>> first = executor.submit(() -> singleFlight.execute(1l, () -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                await(release);
+                return loaded;
+            }));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            Future<List<String>> second = executor.submit(() -> singleFlight.execute(1l, () -> {
+                loads.incrementAndGet();
+                return List.of("second");
+            }));
+            while (meterRegistry.get("customer.reads.coalesced").counter().count() == 0) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+            assertSame(loaded, first.get(5, TimeUnit.SECONDS));
+            assertSame(loaded, second.get(5, TimeUnit.SECONDS));
+            assertEquals(1, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(List.of("again"), singleFlight.execute(1l, () -> List.of("again")));
+    }
+
+    @Test
+    void testCallAfterAnEvictionDoesNotJoinAnOlderLoad() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<List<String>> old = executor.submit(() -> singleFlight.execute(1l, 4, () -> {
+                loading.countDown();
+                await(release);
+                return List.of("old");
+            }));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            assertEquals(List.of("new"), singleFlight.execute(1l, 5, () -> List.of("new")));
+            assertEquals(0, meterRegistry.get("customer.reads.coalesced").counter().count());
+            release.countDown();
+            assertEquals(List.of("old"), old.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testFailedLoadIsRethrownAndNotKept() {
+        assertThrows(NoSuchCustomerExistsException.class, () -> singleFlight.execute(2l, () -> {
+            throw new NoSuchCustomerExistsException("No Customer present with Id 2");
+        }));
+        assertEquals(List.of("found"), singleFlight.execute(2l, () -> List.of("found")));
+    }
+
+    @Test
+    void testDisabledAlwaysLoads() {
+        SingleFlight<Long, Integer> disabled = new SingleFlight<>(meterRegistry, "disabled", false);
+        AtomicInteger loads = new AtomicInteger();
+        disabled.execute(1l, loads::incrementAndGet);
+        disabled.execute(1l, loads::incrementAndGet);
+        assertEquals(2, loads.get());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.domain.customer.store;
+
+import com.domain.customer.dto.CustomerChangeDto;
+import com.domain.customer.dto.CustomerChangeType;
+import com.domain.customer.exception.ChangeFeedExpiredException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import(CustomerChangeOutbox.class)
+class CustomerChangeOutboxTest {
+
+    @Autowired
+    private CustomerChangeOutbox customerChangeOutbox;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void testAppendedChangesAreReadInSequenceOrder() {
+        long start = lastSequence();
+        customerChangeOutbox.append(CustomerChangeType.CREATED, List.of(1l, 2l));
+        customerChangeOutbox.append(CustomerChangeType.ADDRESS_UPDATED, List.of(1l));
+        List<CustomerChangeDto> changes = customerChangeOutbox.findAfter(start, 10);
+        assertEquals(List.of(start + 1, start + 2, start + 3), sequences(changes));
+        assertEquals(List.of(1l, 2l, 1l), changes.stream().map(CustomerChangeDto::getCustomerId).collect(Collectors.toList()));
+        assertEquals(CustomerChangeType.ADDRESS_UPDATED, changes.get(2).getType());
+        assertEquals(List.of(start + 3), sequences(customerChangeOutbox.findAfter(start + 2, 10)));
+        assertEquals(1, customerChangeOutbox.findAfter(start, 1).size());
+        assertTrue(customerChangeOutbox.findAfter(start + 3, 10).isEmpty());
+    }
+
+    @Test
+    void testReadStopsBeforeAGapUntilTheNextChangeSettles() {
+        long start = lastSequence();
+        customerChangeOutbox.append(CustomerChangeType.CREATED, List.of(1l));
+        // start + 2 is still committing in another transaction
+        insertChange(start + 3, LocalDateTime.now());
+        insertChange(start + 4, LocalDateTime.now());
+        assertEquals(List.of(start + 1), sequences(customerChangeOutbox.findAfter(start, 10)));
+        assertTrue(customerChangeOutbox.findAfter(start + 1, 10).isEmpty());
+    }
+
+    @Test
+    void testReadSkipsAGapOnceTheNextChangeSettled() {
+        long start = lastSequence();
+        // start + 1 was rolled back
+        insertChange(start + 2, LocalDateTime.now().minusMinutes(1));
+        insertChange(start + 3, LocalDateTime.now());
+        assertEquals(List.of(start + 2, start + 3), sequences(customerChangeOutbox.findAfter(start, 10)));
+    }
+
+    @Test
+    void testGapOfATransactionOpenLongerThanTheSettleDelayIsNotSkipped() throws Exception {
+        long settleMs = 500;
+        CustomerChangeOutbox outbox = new CustomerChangeOutbox(jdbcTemplate, eventPublisher, settleMs);
+        // the appends commit in their own transactions, as concurrent writers would
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        long start = lastSequence();
+        CountDownLatch earlierAppended = new CountDownLatch(1);
+        CountDownLatch commitEarlier = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> earlier = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+                outbox.append(CustomerChangeType.SAVED, List.of(1l));
+                earlierAppended.countDown();
+                try {
+                    commitEarlier.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            // started long before it appends, like a writer that waited on a row lock
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.queryForObject("select localtimestamp", Timestamp.class);
+                try {
+                    assertTrue(earlierAppended.await(10, TimeUnit.SECONDS));
+                    Thread.sleep(2 * settleMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                outbox.append(CustomerChangeType.SAVED, List.of(2l));
+            });
+            assertTrue(outbox.findAfter(start, 10).isEmpty());
+            commitEarlier.countDown();
+            earlier.get(10, TimeUnit.SECONDS);
+            assertEquals(List.of(start + 1, start + 2), sequences(outbox.findAfter(start, 10)));
+        } finally {
+            commitEarlier.countDown();
+            executor.shutdownNow();
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update(
+                    "delete from customer_change where sequence_number > ?", start));
+        }
+    }
+
+    @Test
+    void testReadSkipsAGapOnceItWasSeenForTheSettleDelay() throws InterruptedException {
+        CustomerChangeOutbox outbox = new CustomerChangeOutbox(jdbcTemplate, eventPublisher, 200);
+        long start = lastSequence();
+        // start + 1 was rolled back
+        insertChange(start + 2, LocalDateTime.now());
+        assertTrue(outbox.findAfter(start, 10).isEmpty());
+        Thread.sleep(250);
+        assertEquals(List.of(start + 2), sequences(outbox.findAfter(start, 10)));
+    }
+
+    @Test
+    void testLastSettledSequenceLeavesOutRecentChanges() {
+        long start = lastSequence();
+        insertChange(start + 1, LocalDateTime.now().minusMinutes(1));
+        insertChange(start + 2, LocalDateTime.now());
+        assertEquals(start + 1, customerChangeOutbox.lastSettledSequence());
+    }
+
+    @Test
+    void testResumingBeforePrunedChangesIsRejected() {
+        long start = lastSequence();
+        customerChangeOutbox.append(CustomerChangeType.CREATED, List.of(1l, 2l));
+        assertEquals(2, customerChangeOutbox.pruneBefore(LocalDateTime.now().plusMinutes(1)));
+        customerChangeOutbox.append(CustomerChangeType.SAVED, List.of(2l));
+        assertThrows(ChangeFeedExpiredException.class, () -> customerChangeOutbox.findAfter(start + 1, 10));
+        assertEquals(start + 3, customerChangeOutbox.findAfter(start + 2, 10).get(0).getSequence());
+        assertEquals(0, customerChangeOutbox.pruneBefore(LocalDateTime.now().minusDays(1)));
+    }
+
+    private long lastSequence() {
+        // sequences are not transactional, earlier tests may have used some
+        return jdbcTemplate.queryForObject("select next value for customer_change_seq", Long.class);
+    }
+
+    private void insertChange(long sequence, LocalDateTime changeTime) {
+        jdbcTemplate.update("insert into customer_change (sequence_number, customer_id, change_type, change_time) " +
+                "values (?, 1, 'SAVED', ?)", sequence, Timestamp.valueOf(changeTime));
+    }
+
+    private static List<Long> sequences(List<CustomerChangeDto> changes) {
+        return changes.stream().map(CustomerChangeDto::getSequence).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,194 @@
+package com.domain.customer.store;
+
+import com.domain.customer.dto.AddressDto;
+import com.domain.customer.dto.CustomerChangeType;
+import com.domain.customer.dto.NameMatchMode;
+import com.domain.customer.entity.Address;
+import com.domain.customer.entity.Customer;
+import com.domain.customer.exception.CustomerModifiedException;
+import com.domain.customer.repository.AddressRepository;
+import com.domain.customer.repository.CustomerRespository;
+import com.domain.customer.service.AddressWriteBehindQueue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JpaCustomerStoreTest {
+    private CustomerRespository customerRespository;
+    private AddressRepository addressRepository;
+    private EntityManager entityManager;
+    private AddressWriteBehindQueue addressWriteBehindQueue;
+    private TransactionTemplate transactionTemplate;
+    private CustomerChangeOutbox customerChangeOutbox;
+    private JpaCustomerStore customerStore;
+
+    @BeforeEach
+    void setUp() {
+        customerRespository = Mockito.mock(CustomerRespository.class);
+        addressRepository = Mockito.mock(AddressRepository.class);
+        entityManager = Mockito.mock(EntityManager.class);
+        addressWriteBehindQueue = Mockito.mock(AddressWriteBehindQueue.class);
+        transactionTemplate = Mockito.mock(TransactionTemplate.class);
+        customerChangeOutbox = Mockito.mock(CustomerChangeOutbox.class);
+        lenient().doAnswer(invocation -> {
+            Consumer<TransactionStatus> action = invocation.getArgument(0);
+            action.accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        lenient().when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        customerStore = new JpaCustomerStore(customerRespository, addressRepository, entityManager,
+                transactionTemplate, addressWriteBehindQueue, customerChangeOutbox);
+    }
+
+    @Test
+    void testFindByNamesWithEmptyOptional() {
+        when(customerRespository.findCustomerByFirstNameAndLastName(any(), any())).thenReturn(Optional.empty());
+        when(customerRespository.findCustomerByFirstNameOrLastName(any(), any())).thenReturn(Optional.empty());
+        assertTrue(customerStore.findByFirstNameAndLastName("fname", "lname").isEmpty());
+        assertTrue(customerStore.findByFirstNameOrLastName("", "lname").isEmpty());
+    }
+
+    @Test
+    void testInsertAllFlushesOnceAndClearsTheSession() {
+        List<Customer> customers = List.of(new Customer(), new Customer());
+        assertSame(customers, customerStore.insertAll(customers));
+        verify(entityManager, times(2)).persist(any());
+        verify(entityManager, times(1)).flush();
+        verify(entityManager, times(1)).clear();
+    }
+
+    @Test
+    void testInsertAllClearsTheSessionOnFailure() {
+        doThrow(new PersistenceException("constraint violation")).when(entityManager).flush();
+        assertThrows(PersistenceException.class, () -> customerStore.insertAll(List.of(new Customer())));
+        verify(entityManager, times(1)).clear();
+    }
+
+    @Test
+    void testFindAllByIdQueriesInChunks() {
+        List<Long> ids = LongStream.rangeClosed(1, 1201).boxed().collect(Collectors.toList());
+        when(customerRespository.findByIdIn(any())).thenReturn(List.of(new Customer()));
+        assertEquals(3, customerStore.findAllById(ids).size());
+        ArgumentCaptor<Collection<Long>> chunks = ArgumentCaptor.forClass(Collection.class);
+        verify(customerRespository, times(3)).findByIdIn(chunks.capture());
+        assertEquals(List.of(500, 500, 201),
+                chunks.getAllValues().stream().map(Collection::size).collect(Collectors.toList()));
+    }
+
+    @Test
+    void testInsertAppendsCreatedChangeInTheSameTransaction() {
+        Customer customer = new Customer();
+        customer.setId(7l);
+        when(customerRespository.save(customer)).thenReturn(customer);
+        assertSame(customer, customerStore.insert(customer));
+        verify(transactionTemplate, times(1)).execute(any());
+        verify(customerChangeOutbox, times(1)).append(CustomerChangeType.CREATED, List.of(7l));
+    }
+
+    @Test
+    void testInsertAllAppendsOneCreatedChangePerCustomer() {
+        Customer first = new Customer();
+        first.setId(1l);
+        Customer second = new Customer();
+        second.setId(2l);
+        customerStore.insertAll(List.of(first, second));
+        verify(customerChangeOutbox, times(1)).append(CustomerChangeType.CREATED, List.of(1l, 2l));
+    }
+
+    @Test
+    void testConditionalUpdateAddressLocksAndComparesLastModified() {
+        Customer customer = new Customer();
+        customer.setUpdateTime(LocalDateTime.of(2023, 1, 1, 0, 0));
+        customer.setAddress(new Address());
+        customer.getAddress().setUpdateTime(LocalDateTime.of(2023, 2, 1, 0, 0));
+        when(entityManager.find(Customer.class, 1l, LockModeType.PESSIMISTIC_WRITE)).thenReturn(customer);
+        when(entityManager.find(Customer.class, 2l, LockModeType.PESSIMISTIC_WRITE)).thenReturn(null);
+        AddressDto changes = AddressDto.builder().city("Amsterdam").build();
+        assertThrows(CustomerModifiedException.class, () -> customerStore.updateAddressIfUnmodified(1l, changes,
+                List.of(LocalDateTime.of(2023, 1, 1, 0, 0))));
+        verify(entityManager, times(1)).lock(customer.getAddress(), LockModeType.PESSIMISTIC_WRITE);
+        verify(addressRepository, never()).updateAddressOfCustomer(any(), any());
+
+        when(addressRepository.updateAddressOfCustomer(1l, changes)).thenReturn(1);
+        assertEquals(1, customerStore.updateAddressIfUnmodified(1l, changes, List.of(LocalDateTime.of(2023, 2, 1, 0, 0))));
+        assertEquals(0, customerStore.updateAddressIfUnmodified(2l, changes, List.of(LocalDateTime.of(2023, 2, 1, 0, 0))));
+        verifyNoInteractions(addressWriteBehindQueue);
+        verify(customerChangeOutbox, times(1)).append(CustomerChangeType.ADDRESS_UPDATED, List.of(1l));
+    }
+
+    @Test
+    void testSearchByNormalizedNamesEscapesLikePatterns() {
+        when(customerRespository.searchByNormalizedNames(anyString(), anyString(), anyString(), anyLong(),
+                any(Pageable.class))).thenReturn(List.of());
+        customerStore.searchByNormalizedNames("fname", "l_n%", NameMatchMode.PREFIX, "", 0L, 10);
+        verify(customerRespository, times(1))
+                .searchByNormalizedNames(eq("fname%"), eq("l!_n!%%"), eq(""), eq(0L), any(Pageable.class));
+    }
+
+    @Test
+    void testSearchByNormalizedLastNameIgnoringCase() {
+        when(customerRespository.searchByNormalizedLastName(anyString(), anyString(), anyLong(), any(Pageable.class)))
+                .thenReturn(List.of());
+        customerStore.searchByNormalizedNames(null, "lname", NameMatchMode.IGNORE_CASE, "lname", 10L, 10);
+        verify(customerRespository, times(1))
+                .searchByNormalizedLastName(eq("lname"), eq("lname"), eq(10L), any(Pageable.class));
+        verify(customerRespository, never()).searchByNormalizedFirstName(any(), any(), any(), any());
+    }
+
+    @Test
+    void testForEachOrderByIdDetachesEachEntity() {
+        Customer customer = new Customer();
+        when(customerRespository.streamAllOrderById()).thenReturn(Stream.of(customer, customer));
+        List<Customer> visited = new ArrayList<>();
+        customerStore.forEachOrderById(visited::add);
+        assertEquals(2, visited.size());
+        verify(entityManager, times(2)).detach(customer);
+    }
+
+    @Test
+    void testUpdateAddressGoesThroughWriteBehindWhenEnabled() {
+        AddressDto changes = AddressDto.builder().city("Amsterdam").build();
+        when(addressWriteBehindQueue.isEnabled()).thenReturn(true);
+        assertEquals(1, customerStore.updateAddress(3l, changes));
+        verify(addressWriteBehindQueue, times(1)).update(3l, changes);
+        verify(addressRepository, never()).updateAddressOfCustomer(any(), any());
+        verifyNoInteractions(customerChangeOutbox);
+    }
+
+    @Test
+    void testUpdateAddressReturnsUpdatedRows() {
+        AddressDto changes = AddressDto.builder().city("Amsterdam").build();
+        when(addressRepository.updateAddressOfCustomer(3l, changes)).thenReturn(0);
+        assertEquals(0, customerStore.updateAddress(3l, changes));
+        when(addressRepository.updateAddressOfCustomer(4l, changes)).thenReturn(1);
+        assertEquals(1, customerStore.updateAddress(4l, changes));
+        verify(customerChangeOutbox, times(1)).append(CustomerChangeType.ADDRESS_UPDATED, List.of(4l));
+        verifyNoMoreInteractions(customerChangeOutbox);
+    }
+}
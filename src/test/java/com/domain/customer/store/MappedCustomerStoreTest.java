@@ -0,0 +1,184 @@
+package com.domain.customer.store;
+
+import com.domain.customer.dto.AddressDto;
+import com.domain.customer.dto.CustomerDto;
+import com.domain.customer.dto.NameMatchMode;
+import com.domain.customer.entity.Customer;
+import com.domain.customer.exception.CustomerModifiedException;
+import com.domain.customer.mapper.CustomerMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedCustomerStoreTest {
+    private static final int SEGMENT_SIZE = 512;
+    @TempDir
+    Path directory;
+    private MappedCustomerStore customerStore;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        customerStore = open();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        customerStore.close();
+    }
+
+    @Test
+    void testInsertAssignsIdsAndReadsBackTheRecord() {
+        Customer first = customerStore.insert(createCustomer("Fname1", "lname"));
+        Customer second = customerStore.insert(createCustomer("Fname2", "lname"));
+        assertEquals(1l, first.getId());
+        assertEquals(2l, second.getId());
+        assertNotEquals(first.getAddress().getAddressId(), second.getAddress().getAddressId());
+        Customer found = customerStore.findById(2l).get();
+        assertEquals("Fname2", found.getFirstName());
+        assertEquals("fname2", found.getFirstNameNormalized());
+        assertEquals(23, found.getAge());
+        assertEquals("Utrecht", found.getAddress().getCity());
+        assertNull(found.getAddress().getAddressLine2());
+        assertEquals(second.getCreationTime(), found.getCreationTime());
+        assertTrue(customerStore.existsById(1l));
+        assertFalse(customerStore.existsById(3l));
+        assertTrue(customerStore.findById(3l).isEmpty());
+    }
+
+    @Test
+    void testUpsertReplacesCustomerAndKeepsCreationTimeAndAddressId() {
+        Customer inserted = customerStore.insert(createCustomer("fname", "lname"));
+        CustomerDto replacement = CustomerMapper.MAPPER.customerToCustomerDto(createCustomer("replaced", "lname"));
+        replacement.setId(inserted.getId());
+        customerStore.upsert(replacement);
+        replacement.setId(10l);
+        customerStore.upsert(replacement);
+        Customer replaced = customerStore.findById(inserted.getId()).get();
+        assertEquals("replaced", replaced.getFirstName());
+        assertEquals(inserted.getCreationTime(), replaced.getCreationTime());
+        assertEquals(inserted.getAddress().getAddressId(), replaced.getAddress().getAddressId());
+        assertEquals(List.of(1l, 10l), ids(customerStore.findAll()));
+        assertEquals(11l, customerStore.insert(createCustomer("next", "lname")).getId());
+    }
+
+    @Test
+    void testUpdateAddressWritesOnlyTheChangedFields() {
+        customerStore.insert(createCustomer("fname", "lname"));
+        assertEquals(1, customerStore.updateAddress(1l, AddressDto.builder().city("Amsterdam").build()));
+        assertEquals(0, customerStore.updateAddress(2l, AddressDto.builder().city("Amsterdam").build()));
+        Customer updated = customerStore.findById(1l).get();
+        assertEquals("Amsterdam", updated.getAddress().getCity());
+        assertEquals("addrLine1", updated.getAddress().getAddressLine1());
+    }
+
+    @Test
+    void testConditionalUpdateAddressComparesLastModified() {
+        Customer inserted = customerStore.insert(createCustomer("fname", "lname"));
+        LocalDateTime lastModified = customerStore.findLastModifiedById(1l).get();
+        assertEquals(inserted.lastModified(), lastModified);
+        assertThrows(CustomerModifiedException.class, () -> customerStore.updateAddressIfUnmodified(1l,
+                AddressDto.builder().city("Amsterdam").build(), List.of(lastModified.minusSeconds(1))));
+        assertEquals(1, customerStore.updateAddressIfUnmodified(1l,
+                AddressDto.builder().city("Amsterdam").build(), List.of(lastModified)));
+        assertEquals(0, customerStore.updateAddressIfUnmodified(2l,
+                AddressDto.builder().city("Amsterdam").build(), List.of(lastModified)));
+    }
+
+    @Test
+    void testReopenRestoresLatestRecordsAcrossSegments() throws IOException {
+        for (int i = 1; i <= 20; i++) {
+            customerStore.insert(createCustomer("fname" + i, "lname"));
+        }
+        customerStore.updateAddress(5l, AddressDto.builder().country("BE").build());
+        customerStore.close();
+        customerStore = open();
+        assertEquals(20, customerStore.findAll().size());
+        assertEquals("BE", customerStore.findById(5l).get().getAddress().getCountry());
+        assertEquals("fname20", customerStore.findById(20l).get().getFirstName());
+        Customer added = customerStore.insert(createCustomer("fname21", "lname"));
+        assertEquals(21l, added.getId());
+        assertEquals(21l, added.getAddress().getAddressId());
+    }
+
+    @Test
+    void testQueriesReturnCustomersInIdOrder() {
+        customerStore.insertAll(List.of(createCustomer("Anna", "Smith"), createCustomer("annabel", "Jones"),
+                createCustomer("Bob", "Smith"), createCustomer("Anna", "Jones")));
+        assertEquals(List.of(2l, 3l), ids(customerStore.findPage(1l, 2)));
+        assertEquals(List.of(3l, 1l), ids(customerStore.findAllById(List.of(3l, 99l, 1l))));
+        assertEquals(List.of(1l), ids(customerStore.findByFirstNameAndLastName("Anna", "Smith")));
+        assertEquals(List.of(1l, 3l, 4l), ids(customerStore.findByFirstNameOrLastName("Anna", "Smith")));
+        assertEquals(List.of(1l, 4l, 2l),
+                ids(customerStore.searchByNormalizedNames("ann", null, NameMatchMode.PREFIX, "", 0L, 10)));
+        assertEquals(List.of(4l),
+                ids(customerStore.searchByNormalizedNames("anna", "jones", NameMatchMode.IGNORE_CASE, "", 0L, 10)));
+        assertEquals(List.of(4l, 2l),
+                ids(customerStore.searchByNormalizedNames("ann", null, NameMatchMode.PREFIX, "anna", 1L, 10)));
+        assertEquals(List.of(1l),
+                ids(customerStore.searchByNormalizedNames(null, "smith", NameMatchMode.PREFIX, "", 0L, 1)));
+        assertEquals(List.of(3l),
+                ids(customerStore.searchByNormalizedNames(null, "smith", NameMatchMode.PREFIX, "smith", 1L, 1)));
+        List<Long> visited = new ArrayList<>();
+        customerStore.forEachNameOrderById((id, firstName, lastName) -> visited.add(id));
+        assertEquals(List.of(1l, 2l, 3l, 4l), visited);
+    }
+
+    @Test
+    void testForEachLastModifiedVisitsTheLastModificationOfEveryCustomerInIdOrder() {
+        customerStore.insertAll(List.of(createCustomer("fname1", "lname"), createCustomer("fname2", "lname")));
+        customerStore.updateAddress(1l, AddressDto.builder().city("Amsterdam").build());
+        Map<Long, LocalDateTime> visited = new LinkedHashMap<>();
+        customerStore.forEachLastModifiedOrderById(visited::put);
+        assertEquals(List.of(1l, 2l), new ArrayList<>(visited.keySet()));
+        assertEquals(customerStore.findById(1l).get().lastModified(), visited.get(1l));
+        assertEquals(customerStore.findById(2l).get().lastModified(), visited.get(2l));
+    }
+
+    @Test
+    void testRejectsRecordsLargerThanASegmentWithoutPartialWrites() {
+        Customer tooLarge = createCustomer("x".repeat(SEGMENT_SIZE), "lname");
+        assertThrows(IllegalArgumentException.class,
+                () -> customerStore.insertAll(List.of(createCustomer("fname", "lname"), tooLarge)));
+        assertTrue(customerStore.findAll().isEmpty());
+    }
+
+    @Test
+    void testWriteBehindIsRejected() {
+        assertThrows(IllegalStateException.class,
+                () -> new MappedCustomerStore(directory.resolve("other.store").toString(), SEGMENT_SIZE, true));
+    }
+
+    private MappedCustomerStore open() throws IOException {
+        return new MappedCustomerStore(directory.resolve("customers.store").toString(), SEGMENT_SIZE, false);
+    }
+
+    private static List<Long> ids(List<Customer> customers) {
+        return customers.stream().map(Customer::getId).collect(Collectors.toList());
+    }
+
+    private static Customer createCustomer(String firstName, String lastName) {
+        return CustomerMapper.MAPPER.customerDtoToCustomer(CustomerDto.builder()
+                .firstName(firstName)
+                .lastName(lastName)
+                .age(23)
+                .addressDto(AddressDto.builder()
+                        .addressLine1("addrLine1")
+                        .postalCode("8668DF")
+                        .city("Utrecht")
+                        .country("NL")
+                        .build())
+                .build());
+    }
+}